@@ -41,6 +41,7 @@ ls -la /tmp/opencv-links/
 # Iniciar a aplicação
 echo "✨  Iniciando aplicação..."
 exec java $JAVA_OPTS \
+  --add-modules=jdk.incubator.vector \
   -Djava.security.egd=file:/dev/./urandom \
   -Djava.library.path=/usr/local/lib/opencv:/usr/lib:/lib \
   -Dnu.pattern.opencv.lib.path=/usr/local/lib/opencv \
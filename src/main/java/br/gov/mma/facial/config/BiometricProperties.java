@@ -3,8 +3,10 @@ package br.gov.mma.facial.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
@@ -37,6 +39,14 @@ public class BiometricProperties {
      */
     private LbphConfig lbph = new LbphConfig();
 
+    /**
+     * Versão do algoritmo usada em novos cadastros e na identificação
+     * (LBPH-1.0 = pixels normalizados, LBPH-HIST-1.0 = histogramas LBP).
+     * Templates de outra versão não participam da identificação até serem recadastrados.
+     */
+    @NotBlank(message = "Versão do algoritmo de template é obrigatória")
+    private String templateAlgorithm = "LBPH-1.0";
+
     /**
      * Caminho para o arquivo de classificador Haar Cascade
      */
@@ -55,6 +65,54 @@ public class BiometricProperties {
     @Min(value = 1, message = "Pelo menos 1 frame é necessário para enrollment")
     private Integer enrollmentFramesRequired = 5;
 
+    /**
+     * Configurações da busca 1:N na galeria
+     */
+    @Valid
+    private SearchConfig search = new SearchConfig();
+
+    /**
+     * Configurações da representação compacta usada como pré-filtro
+     */
+    @Valid
+    private CompactConfig compact = new CompactConfig();
+
+    /**
+     * Configurações do snapshot em disco da galeria
+     */
+    @Valid
+    private SnapshotConfig snapshot = new SnapshotConfig();
+
+    /**
+     * Configurações da decodificação das imagens recebidas
+     */
+    @Valid
+    private DecodeConfig decode = new DecodeConfig();
+
+    /**
+     * Configurações da detecção de faces
+     */
+    @Valid
+    private DetectionConfig detection = new DetectionConfig();
+
+    /**
+     * Configurações do executor dedicado ao processamento biométrico
+     */
+    @Valid
+    private ExecutorConfig executor = new ExecutorConfig();
+
+    /**
+     * Configurações da triagem de qualidade dos quadros antes da detecção
+     */
+    @Valid
+    private QualityConfig quality = new QualityConfig();
+
+    /**
+     * Configurações das sessões de liveness por streaming (WebSocket)
+     */
+    @Valid
+    private LivenessStreamConfig livenessStream = new LivenessStreamConfig();
+
     /**
      * Configurações específicas do algoritmo LBPH
      */
@@ -64,6 +122,11 @@ public class BiometricProperties {
         private Integer gridX = 8;
         private Integer gridY = 8;
 
+        /**
+         * Limiar do qui-quadrado médio por bin para templates de histograma (LBPH-HIST-1.0)
+         */
+        private Double histogramThreshold = 1.5;
+
         public Integer getRadius() { return radius; }
         public void setRadius(Integer radius) { this.radius = radius; }
 
@@ -75,6 +138,558 @@ public class BiometricProperties {
 
         public Integer getGridY() { return gridY; }
         public void setGridY(Integer gridY) { this.gridY = gridY; }
+
+        public Double getHistogramThreshold() { return histogramThreshold; }
+        public void setHistogramThreshold(Double histogramThreshold) { this.histogramThreshold = histogramThreshold; }
+    }
+
+    /**
+     * Configurações da busca 1:N paralela na galeria residente
+     */
+    public static class SearchConfig {
+        /**
+         * Número de threads da busca (0 = número de processadores disponíveis)
+         */
+        @Min(value = 0, message = "Paralelismo não pode ser negativo")
+        private Integer parallelism = 0;
+
+        /**
+         * Quantidade mínima de templates por fatia; galerias menores que duas fatias
+         * são varridas na própria thread da requisição
+         */
+        @Min(value = 1, message = "Fatia mínima deve ter pelo menos 1 template")
+        private Integer minShardSize = 1024;
+
+        /**
+         * Máximo de templates ativos mantidos por usuário na galeria (os mais antigos saem primeiro)
+         */
+        @Min(value = 1, message = "A galeria deve manter pelo menos 1 template por usuário")
+        @Max(value = 16, message = "A galeria mantém no máximo 16 templates por usuário")
+        private Integer templatesPerUser = 5;
+
+        /**
+         * Fusão das distâncias dos templates de um usuário: min ou mean
+         */
+        @NotBlank(message = "Regra de fusão de scores é obrigatória")
+        private String fusion = "min";
+
+        /**
+         * Índice aproximado (HNSW) usado no lugar da varredura linear
+         */
+        @Valid
+        private HnswConfig hnsw = new HnswConfig();
+
+        public Integer getParallelism() { return parallelism; }
+        public void setParallelism(Integer parallelism) { this.parallelism = parallelism; }
+
+        public Integer getMinShardSize() { return minShardSize; }
+        public void setMinShardSize(Integer minShardSize) { this.minShardSize = minShardSize; }
+
+        public Integer getTemplatesPerUser() { return templatesPerUser; }
+        public void setTemplatesPerUser(Integer templatesPerUser) { this.templatesPerUser = templatesPerUser; }
+
+        public String getFusion() { return fusion; }
+        public void setFusion(String fusion) { this.fusion = fusion; }
+
+        public HnswConfig getHnsw() { return hnsw; }
+        public void setHnsw(HnswConfig hnsw) { this.hnsw = hnsw; }
+
+        /**
+         * Paralelismo efetivo, resolvendo 0 para o número de processadores
+         */
+        public int resolveParallelism() {
+            return parallelism == null || parallelism <= 0
+                ? Runtime.getRuntime().availableProcessors()
+                : parallelism;
+        }
+    }
+
+    /**
+     * Configurações do índice HNSW (Hierarchical Navigable Small World)
+     */
+    public static class HnswConfig {
+        /**
+         * Usa o grafo HNSW para gerar os candidatos da identificação 1:N
+         */
+        private Boolean enabled = false;
+
+        /**
+         * Vizinhos por nó nas camadas superiores (o dobro na camada 0)
+         */
+        @Min(value = 4, message = "HNSW precisa de pelo menos 4 vizinhos por nó")
+        @Max(value = 64, message = "HNSW aceita no máximo 64 vizinhos por nó")
+        private Integer m = 16;
+
+        /**
+         * Tamanho da lista de candidatos durante a inserção (qualidade do grafo)
+         */
+        @Min(value = 8, message = "efConstruction deve ser pelo menos 8")
+        private Integer efConstruction = 200;
+
+        /**
+         * Tamanho da lista de candidatos na busca: maior = mais recall, mais latência
+         */
+        @Min(value = 1, message = "efSearch deve ser pelo menos 1")
+        private Integer efSearch = 64;
+
+        /**
+         * Fração de nós removidos (soft delete) que dispara a reconstrução do grafo
+         */
+        @DecimalMin(value = "0.01", message = "Fração de removidos deve ser pelo menos 0.01")
+        @DecimalMax(value = "1.0", message = "Fração de removidos deve ser no máximo 1.0")
+        private Double maxDeletedRatio = 0.2;
+
+        public Boolean getEnabled() { return enabled; }
+        public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+
+        public Integer getM() { return m; }
+        public void setM(Integer m) { this.m = m; }
+
+        public Integer getEfConstruction() { return efConstruction; }
+        public void setEfConstruction(Integer efConstruction) { this.efConstruction = efConstruction; }
+
+        public Integer getEfSearch() { return efSearch; }
+        public void setEfSearch(Integer efSearch) { this.efSearch = efSearch; }
+
+        public Double getMaxDeletedRatio() { return maxDeletedRatio; }
+        public void setMaxDeletedRatio(Double maxDeletedRatio) { this.maxDeletedRatio = maxDeletedRatio; }
+    }
+
+    /**
+     * Configurações da representação compacta (projeção aleatória quantizada em 8 bits)
+     */
+    public static class CompactConfig {
+        /**
+         * Usa a representação compacta como pré-filtro da galeria: a varredura percorre os códigos
+         * e só os melhores candidatos são re-ranqueados nos templates completos, também residentes
+         */
+        private Boolean enabled = false;
+
+        /**
+         * Dimensões da projeção (1 byte por dimensão)
+         */
+        @Min(value = 16, message = "A projeção compacta deve ter pelo menos 16 dimensões")
+        @Max(value = 4096, message = "A projeção compacta deve ter no máximo 4096 dimensões")
+        private Integer dimensions = 256;
+
+        /**
+         * Candidatos do pré-filtro re-ranqueados no template completo
+         */
+        @Min(value = 1, message = "Pelo menos 1 candidato deve ser re-ranqueado")
+        private Integer rerankCandidates = 32;
+
+        public Boolean getEnabled() { return enabled; }
+        public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+
+        public Integer getDimensions() { return dimensions; }
+        public void setDimensions(Integer dimensions) { this.dimensions = dimensions; }
+
+        public Integer getRerankCandidates() { return rerankCandidates; }
+        public void setRerankCandidates(Integer rerankCandidates) { this.rerankCandidates = rerankCandidates; }
+    }
+
+    /**
+     * Configurações do snapshot da galeria (arquivo mapeado em memória para a inicialização)
+     */
+    public static class SnapshotConfig {
+        /**
+         * Restaura a galeria a partir do snapshot e o regrava após alterações
+         */
+        private Boolean enabled = false;
+
+        /**
+         * Caminho do arquivo de snapshot
+         */
+        @NotBlank(message = "Caminho do snapshot da galeria é obrigatório")
+        private String path = "data/face-gallery.snapshot";
+
+        /**
+         * Atraso, em segundos, entre uma alteração da galeria e a regravação do snapshot
+         * (alterações no intervalo são agrupadas em uma única escrita)
+         */
+        @Min(value = 0, message = "Atraso de gravação do snapshot não pode ser negativo")
+        private Integer writeDelaySeconds = 30;
+
+        public Boolean getEnabled() { return enabled; }
+        public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+
+        public Integer getWriteDelaySeconds() { return writeDelaySeconds; }
+        public void setWriteDelaySeconds(Integer writeDelaySeconds) { this.writeDelaySeconds = writeDelaySeconds; }
+    }
+
+    public static class DecodeConfig {
+        /**
+         * Decodifica com os codecs nativos do OpenCV (Imgcodecs.imdecode); o ImageIO fica
+         * apenas como fallback para ambientes sem os codecs ou formatos não suportados
+         */
+        private Boolean nativeEnabled = true;
+
+        /**
+         * Fator de redução aplicado na própria decodificação da imagem usada na extração
+         * do template (1 = resolução original; 2, 4 ou 8 = IMREAD_REDUCED_GRAYSCALE_*)
+         */
+        @Min(value = 1, message = "Fator de redução deve ser no mínimo 1")
+        @Max(value = 8, message = "Fator de redução deve ser no máximo 8")
+        private Integer reducedScale = 1;
+
+        /**
+         * Tamanho máximo, em bytes, de uma imagem recebida como corpo binário
+         */
+        @Min(value = 1024, message = "Tamanho máximo da imagem deve ser de pelo menos 1 KB")
+        private Integer maxImageBytes = 10 * 1024 * 1024;
+
+        public Boolean getNativeEnabled() { return nativeEnabled; }
+        public void setNativeEnabled(Boolean nativeEnabled) { this.nativeEnabled = nativeEnabled; }
+
+        public Integer getReducedScale() { return reducedScale; }
+        public void setReducedScale(Integer reducedScale) { this.reducedScale = reducedScale; }
+
+        public Integer getMaxImageBytes() { return maxImageBytes; }
+        public void setMaxImageBytes(Integer maxImageBytes) { this.maxImageBytes = maxImageBytes; }
+    }
+
+    public static class DetectionConfig {
+        /**
+         * Implementação da detecção: haar (cascata de cascadeClassifierPath), lbp (cascata LBP,
+         * mais rápida) ou dnn (rede SSD do módulo DNN do OpenCV, modelo em arquivo local)
+         */
+        @NotBlank(message = "Detector facial é obrigatório")
+        private String detector = "haar";
+
+        /**
+         * Arquivo da cascata LBP usada pelo detector lbp
+         */
+        @NotBlank(message = "Caminho da cascata LBP é obrigatório")
+        private String lbpCascadePath = "lbpcascade_frontalface_improved.xml";
+
+        /**
+         * Pesos da rede do detector dnn (ex.: res10_300x300_ssd_iter_140000.caffemodel)
+         */
+        private String dnnModelPath = "models/res10_300x300_ssd_iter_140000.caffemodel";
+
+        /**
+         * Arquivo de configuração da rede do detector dnn (ex.: deploy.prototxt); vazio para modelos ONNX
+         */
+        private String dnnConfigPath = "models/deploy.prototxt";
+
+        /**
+         * Lado, em pixels, da entrada da rede do detector dnn
+         */
+        @Min(value = 32, message = "Entrada da rede de detecção deve ter pelo menos 32 pixels")
+        private Integer dnnInputSize = 300;
+
+        /**
+         * Confiança mínima de uma detecção da rede
+         */
+        @DecimalMin(value = "0.0", message = "Confiança mínima não pode ser negativa")
+        @DecimalMax(value = "1.0", message = "Confiança mínima deve ser no máximo 1.0")
+        private Double dnnConfidence = 0.6;
+
+        /**
+         * Instâncias do classificador no pool de detecção (0 = número de processadores)
+         */
+        @Min(value = 0, message = "Tamanho do pool de classificadores não pode ser negativo")
+        private Integer poolSize = 0;
+
+        /**
+         * Tempo máximo, em milissegundos, aguardando um classificador livre
+         */
+        @Min(value = 1, message = "Tempo de espera pelo classificador deve ser positivo")
+        private Long borrowTimeoutMs = 2000L;
+
+        /**
+         * Largura, em pixels, da cópia reduzida em que o classificador roda (0 = resolução original).
+         * O retângulo encontrado é mapeado de volta e o recorte sai da imagem completa.
+         */
+        @Min(value = 0, message = "Largura de trabalho da detecção não pode ser negativa")
+        private Integer workingWidth = 640;
+
+        /**
+         * Fator de escala entre os níveis da pirâmide do detectMultiScale
+         */
+        @DecimalMin(value = "1.01", message = "Fator de escala da detecção deve ser maior que 1.0")
+        private Double scaleFactor = 1.1;
+
+        /**
+         * Vizinhos mínimos para o classificador aceitar uma detecção
+         */
+        @Min(value = 1, message = "Vizinhos mínimos da detecção devem ser pelo menos 1")
+        private Integer minNeighbors = 3;
+
+        /**
+         * Usa a posição da face no quadro anterior, devolvida ao cliente e reenviada por ele,
+         * para procurar primeiro numa janela ao redor dela; sem face na janela, a imagem
+         * inteira é varrida
+         */
+        private Boolean roiHints = true;
+
+        /**
+         * Ampliação da janela de busca em torno da face anterior (lado da janela = fator x lado da face)
+         */
+        @DecimalMin(value = "1.0", message = "Ampliação da janela de busca deve ser pelo menos 1.0")
+        private Double roiExpansion = 2.0;
+
+        public String getDetector() { return detector; }
+        public void setDetector(String detector) { this.detector = detector; }
+
+        public String getLbpCascadePath() { return lbpCascadePath; }
+        public void setLbpCascadePath(String lbpCascadePath) { this.lbpCascadePath = lbpCascadePath; }
+
+        public String getDnnModelPath() { return dnnModelPath; }
+        public void setDnnModelPath(String dnnModelPath) { this.dnnModelPath = dnnModelPath; }
+
+        public String getDnnConfigPath() { return dnnConfigPath; }
+        public void setDnnConfigPath(String dnnConfigPath) { this.dnnConfigPath = dnnConfigPath; }
+
+        public Integer getDnnInputSize() { return dnnInputSize; }
+        public void setDnnInputSize(Integer dnnInputSize) { this.dnnInputSize = dnnInputSize; }
+
+        public Double getDnnConfidence() { return dnnConfidence; }
+        public void setDnnConfidence(Double dnnConfidence) { this.dnnConfidence = dnnConfidence; }
+
+        public Integer getPoolSize() { return poolSize; }
+        public void setPoolSize(Integer poolSize) { this.poolSize = poolSize; }
+
+        public Long getBorrowTimeoutMs() { return borrowTimeoutMs; }
+        public void setBorrowTimeoutMs(Long borrowTimeoutMs) { this.borrowTimeoutMs = borrowTimeoutMs; }
+
+        public Integer getWorkingWidth() { return workingWidth; }
+        public void setWorkingWidth(Integer workingWidth) { this.workingWidth = workingWidth; }
+
+        public Double getScaleFactor() { return scaleFactor; }
+        public void setScaleFactor(Double scaleFactor) { this.scaleFactor = scaleFactor; }
+
+        public Integer getMinNeighbors() { return minNeighbors; }
+        public void setMinNeighbors(Integer minNeighbors) { this.minNeighbors = minNeighbors; }
+
+        public Boolean getRoiHints() { return roiHints; }
+        public void setRoiHints(Boolean roiHints) { this.roiHints = roiHints; }
+
+        public Double getRoiExpansion() { return roiExpansion; }
+        public void setRoiExpansion(Double roiExpansion) { this.roiExpansion = roiExpansion; }
+    }
+
+    public static class ExecutorConfig {
+        /**
+         * Threads do executor biométrico (0 = número de processadores)
+         */
+        @Min(value = 0, message = "Número de threads do executor não pode ser negativo")
+        private Integer threads = 0;
+
+        /**
+         * Tarefas aguardando na fila de cada classe de prioridade; acima disso as requisições são recusadas com 503
+         */
+        @Min(value = 1, message = "Capacidade da fila do executor deve ser pelo menos 1")
+        private Integer queueCapacity = 16;
+
+        /**
+         * Total de tarefas aguardando, somadas todas as classes. Cada tarefa na fila mantém uma
+         * thread do Tomcat bloqueada à espera do resultado, por isso o limite deve ficar bem abaixo
+         * de server.tomcat.threads.max (200 por padrão); acima dele a recusa é imediata
+         */
+        @Min(value = 1, message = "Limite total da fila do executor deve ser pelo menos 1")
+        private Integer maxQueued = 32;
+
+        /**
+         * Tempo máximo, em milissegundos, que uma tarefa pode aguardar na fila antes de ser descartada
+         */
+        @Min(value = 1, message = "Tempo de espera na fila deve ser positivo")
+        private Long queueTimeoutMs = 3000L;
+
+        /**
+         * Espera, em milissegundos, a partir da qual uma tarefa de classe inferior (cadastro, lote)
+         * passa à frente das mais prioritárias, evitando inanição
+         */
+        @Min(value = 1, message = "Limite de inanição deve ser positivo")
+        private Long starvationThresholdMs = 500L;
+
+        /**
+         * Valor do cabeçalho Retry-After, em segundos, das respostas 503 por sobrecarga
+         */
+        @Min(value = 1, message = "Retry-After deve ser de pelo menos 1 segundo")
+        private Integer retryAfterSeconds = 2;
+
+        public Integer getThreads() { return threads; }
+        public void setThreads(Integer threads) { this.threads = threads; }
+
+        public Integer getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(Integer queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public Integer getMaxQueued() { return maxQueued; }
+        public void setMaxQueued(Integer maxQueued) { this.maxQueued = maxQueued; }
+
+        public Long getQueueTimeoutMs() { return queueTimeoutMs; }
+        public void setQueueTimeoutMs(Long queueTimeoutMs) { this.queueTimeoutMs = queueTimeoutMs; }
+
+        public Long getStarvationThresholdMs() { return starvationThresholdMs; }
+        public void setStarvationThresholdMs(Long starvationThresholdMs) { this.starvationThresholdMs = starvationThresholdMs; }
+
+        public Integer getRetryAfterSeconds() { return retryAfterSeconds; }
+        public void setRetryAfterSeconds(Integer retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    }
+
+    public static class QualityConfig {
+        /**
+         * Rejeita quadros sem chance de extração (escuros, estourados, sem contraste ou borrados)
+         * antes de executar a detecção de faces. Vale também para os quadros do cadastro e do
+         * liveness; desabilitado por padrão até que os limites sejam calibrados com as câmeras
+         * em uso
+         */
+        private Boolean enabled = false;
+
+        /**
+         * Largura, em pixels, da miniatura em que brilho, contraste e nitidez são medidos
+         */
+        @Min(value = 16, message = "Largura da miniatura de qualidade deve ser pelo menos 16 pixels")
+        private Integer thumbnailWidth = 96;
+
+        /**
+         * Brilho médio mínimo (0-255)
+         */
+        @DecimalMin(value = "0.0", message = "Brilho mínimo não pode ser negativo")
+        private Double minBrightness = 40.0;
+
+        /**
+         * Brilho médio máximo (0-255)
+         */
+        @DecimalMin(value = "0.0", message = "Brilho máximo não pode ser negativo")
+        private Double maxBrightness = 220.0;
+
+        /**
+         * Contraste mínimo (desvio padrão dos níveis de cinza)
+         */
+        @DecimalMin(value = "0.0", message = "Contraste mínimo não pode ser negativo")
+        private Double minContrast = 18.0;
+
+        /**
+         * Nitidez mínima (variância do Laplaciano da miniatura)
+         */
+        @DecimalMin(value = "0.0", message = "Nitidez mínima não pode ser negativa")
+        private Double minSharpness = 20.0;
+
+        public Boolean getEnabled() { return enabled; }
+        public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+
+        public Integer getThumbnailWidth() { return thumbnailWidth; }
+        public void setThumbnailWidth(Integer thumbnailWidth) { this.thumbnailWidth = thumbnailWidth; }
+
+        public Double getMinBrightness() { return minBrightness; }
+        public void setMinBrightness(Double minBrightness) { this.minBrightness = minBrightness; }
+
+        public Double getMaxBrightness() { return maxBrightness; }
+        public void setMaxBrightness(Double maxBrightness) { this.maxBrightness = maxBrightness; }
+
+        public Double getMinContrast() { return minContrast; }
+        public void setMinContrast(Double minContrast) { this.minContrast = minContrast; }
+
+        public Double getMinSharpness() { return minSharpness; }
+        public void setMinSharpness(Double minSharpness) { this.minSharpness = minSharpness; }
+    }
+
+    public static class LivenessStreamConfig {
+        /**
+         * Sessões de streaming abertas ao mesmo tempo; acima disso a conexão é recusada
+         */
+        @Min(value = 1, message = "Número máximo de sessões de liveness deve ser pelo menos 1")
+        private Integer maxSessions = 200;
+
+        /**
+         * Duração máxima de uma sessão, em segundos, até o veredito
+         */
+        @Min(value = 1, message = "Duração da sessão de liveness deve ser positiva")
+        private Integer sessionTimeoutSeconds = 20;
+
+        /**
+         * Quadros mínimos antes de um veredito positivo
+         */
+        @Min(value = 2, message = "Sessão de liveness exige pelo menos 2 quadros")
+        private Integer minFrames = 8;
+
+        /**
+         * Quadros máximos por sessão; ao atingir o limite o veredito é emitido
+         */
+        @Min(value = 2, message = "Sessão de liveness exige pelo menos 2 quadros")
+        private Integer maxFrames = 60;
+
+        /**
+         * Tamanho máximo, em bytes, de cada quadro enviado (miniaturas JPEG)
+         */
+        @Min(value = 1024, message = "Tamanho máximo do quadro deve ser pelo menos 1 KB")
+        private Integer maxFrameBytes = 256 * 1024;
+
+        /**
+         * Fração mínima dos quadros com face detectada
+         */
+        @DecimalMin(value = "0.0", message = "Fração mínima de quadros com face não pode ser negativa")
+        @DecimalMax(value = "1.0", message = "Fração mínima de quadros com face não pode ser maior que 1.0")
+        private Double minFaceRatio = 0.8;
+
+        /**
+         * Energia de movimento mínima (diferença absoluta média, 0-255, entre faces consecutivas)
+         */
+        @DecimalMin(value = "0.0", message = "Energia de movimento mínima não pode ser negativa")
+        private Double minMotion = 1.5;
+
+        /**
+         * Queda da variância da região dos olhos, relativa à mediana recente, que caracteriza olhos fechados
+         */
+        @DecimalMin(value = "0.0", message = "Fator de piscada não pode ser negativo")
+        @DecimalMax(value = "1.0", message = "Fator de piscada não pode ser maior que 1.0")
+        private Double blinkDrop = 0.65;
+
+        /**
+         * Exige uma piscada (fechar e reabrir os olhos) para o veredito positivo
+         */
+        private Boolean requireBlink = true;
+
+        /**
+         * Validade, em segundos, do token de liveness emitido com o veredito positivo
+         */
+        @Min(value = 1, message = "Validade do token de liveness deve ser positiva")
+        private Integer proofTtlSeconds = 60;
+
+        /**
+         * Tokens de liveness pendentes (emitidos e ainda não usados nem expirados); com o limite
+         * atingido, novas sessões aprovadas recebem o veredito BUSY, sem descartar tokens alheios
+         */
+        @Min(value = 1, message = "Número máximo de tokens de liveness pendentes deve ser pelo menos 1")
+        private Integer maxPendingProofs = 1000;
+
+        public Integer getMaxSessions() { return maxSessions; }
+        public void setMaxSessions(Integer maxSessions) { this.maxSessions = maxSessions; }
+
+        public Integer getSessionTimeoutSeconds() { return sessionTimeoutSeconds; }
+        public void setSessionTimeoutSeconds(Integer sessionTimeoutSeconds) { this.sessionTimeoutSeconds = sessionTimeoutSeconds; }
+
+        public Integer getMinFrames() { return minFrames; }
+        public void setMinFrames(Integer minFrames) { this.minFrames = minFrames; }
+
+        public Integer getMaxFrames() { return maxFrames; }
+        public void setMaxFrames(Integer maxFrames) { this.maxFrames = maxFrames; }
+
+        public Integer getMaxFrameBytes() { return maxFrameBytes; }
+        public void setMaxFrameBytes(Integer maxFrameBytes) { this.maxFrameBytes = maxFrameBytes; }
+
+        public Double getMinFaceRatio() { return minFaceRatio; }
+        public void setMinFaceRatio(Double minFaceRatio) { this.minFaceRatio = minFaceRatio; }
+
+        public Double getMinMotion() { return minMotion; }
+        public void setMinMotion(Double minMotion) { this.minMotion = minMotion; }
+
+        public Double getBlinkDrop() { return blinkDrop; }
+        public void setBlinkDrop(Double blinkDrop) { this.blinkDrop = blinkDrop; }
+
+        public Boolean getRequireBlink() { return requireBlink; }
+        public void setRequireBlink(Boolean requireBlink) { this.requireBlink = requireBlink; }
+
+        public Integer getProofTtlSeconds() { return proofTtlSeconds; }
+        public void setProofTtlSeconds(Integer proofTtlSeconds) { this.proofTtlSeconds = proofTtlSeconds; }
+
+        public Integer getMaxPendingProofs() { return maxPendingProofs; }
+        public void setMaxPendingProofs(Integer maxPendingProofs) { this.maxPendingProofs = maxPendingProofs; }
     }
 
     // Getters e Setters
@@ -87,6 +702,33 @@ public class BiometricProperties {
     public LbphConfig getLbph() { return lbph; }
     public void setLbph(LbphConfig lbph) { this.lbph = lbph; }
 
+    public String getTemplateAlgorithm() { return templateAlgorithm; }
+    public void setTemplateAlgorithm(String templateAlgorithm) { this.templateAlgorithm = templateAlgorithm; }
+
+    public SearchConfig getSearch() { return search; }
+    public void setSearch(SearchConfig search) { this.search = search; }
+
+    public CompactConfig getCompact() { return compact; }
+    public void setCompact(CompactConfig compact) { this.compact = compact; }
+
+    public SnapshotConfig getSnapshot() { return snapshot; }
+    public void setSnapshot(SnapshotConfig snapshot) { this.snapshot = snapshot; }
+
+    public DecodeConfig getDecode() { return decode; }
+    public void setDecode(DecodeConfig decode) { this.decode = decode; }
+
+    public DetectionConfig getDetection() { return detection; }
+    public void setDetection(DetectionConfig detection) { this.detection = detection; }
+
+    public ExecutorConfig getExecutor() { return executor; }
+    public void setExecutor(ExecutorConfig executor) { this.executor = executor; }
+
+    public QualityConfig getQuality() { return quality; }
+    public void setQuality(QualityConfig quality) { this.quality = quality; }
+
+    public LivenessStreamConfig getLivenessStream() { return livenessStream; }
+    public void setLivenessStream(LivenessStreamConfig livenessStream) { this.livenessStream = livenessStream; }
+
     public String getCascadeClassifierPath() { return cascadeClassifierPath; }
     public void setCascadeClassifierPath(String cascadeClassifierPath) { this.cascadeClassifierPath = cascadeClassifierPath; }
 
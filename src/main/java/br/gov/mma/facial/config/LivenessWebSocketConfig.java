@@ -0,0 +1,65 @@
+package br.gov.mma.facial.config;
+
+import br.gov.mma.facial.controller.LivenessStreamEndpoint;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.ServletContextAware;
+
+/**
+ * Registra o endpoint de liveness por streaming no container WebSocket do Tomcat embutido
+ * (API Jakarta WebSocket), usando o bean do Spring como instância do endpoint.
+ *
+ * O registro acontece depois da criação dos singletons, quando o container já foi publicado
+ * no contexto do servlet; em testes com contexto simulado não há container e o endpoint
+ * simplesmente não é registrado.
+ */
+@Configuration
+public class LivenessWebSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivenessWebSocketConfig.class);
+
+    private final LivenessStreamEndpoint livenessStreamEndpoint;
+    private ServletContext servletContext;
+
+    public LivenessWebSocketConfig(LivenessStreamEndpoint livenessStreamEndpoint) {
+        this.livenessStreamEndpoint = livenessStreamEndpoint;
+    }
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext != null
+            ? (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName())
+            : null;
+        if (container == null) {
+            logger.info("Container WebSocket indisponível; liveness por streaming não registrado");
+            return;
+        }
+
+        ServerEndpointConfig endpointConfig = ServerEndpointConfig.Builder
+            .create(LivenessStreamEndpoint.class, LivenessStreamEndpoint.PATH)
+            .configurator(new ServerEndpointConfig.Configurator() {
+                @Override
+                public <T> T getEndpointInstance(Class<T> endpointClass) {
+                    return endpointClass.cast(livenessStreamEndpoint);
+                }
+            })
+            .build();
+        try {
+            container.addEndpoint(endpointConfig);
+            logger.info("Liveness por streaming disponível em {}", LivenessStreamEndpoint.PATH);
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Falha ao registrar o endpoint WebSocket de liveness", e);
+        }
+    }
+}
@@ -88,7 +88,7 @@ public class WebSecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
                 // Endpoints públicos
-                .requestMatchers("/api/auth/login", "/api/auth/login-face", "/api/auth/register", "/api/auth/register/complete-face", "/api/auth/reset-password").permitAll()
+                .requestMatchers("/api/auth/login", "/api/auth/login-face", "/api/auth/register", "/api/auth/register/complete-face", "/api/auth/reset-password", "/api/auth/frame-quality", "/api/auth/liveness-stream").permitAll()
                 .requestMatchers("/api/health", "/actuator/health").permitAll()
                 .requestMatchers("/", "/index.html", "/register", "/register.html", "/dashboard", "/dashboard.html", "/static/**", "/css/**", "/js/**", "/images/**", "/favicon.ico").permitAll()
 
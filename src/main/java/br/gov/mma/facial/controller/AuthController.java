@@ -1,5 +1,6 @@
 package br.gov.mma.facial.controller;
 
+import br.gov.mma.facial.config.BiometricProperties;
 import br.gov.mma.facial.dto.BiometricLoginRequest;
 import br.gov.mma.facial.dto.FaceEnrollmentRequest;
 import br.gov.mma.facial.dto.JwtResponse;
@@ -11,7 +12,16 @@ import br.gov.mma.facial.dto.CompleteFaceRegistrationRequest;
 import br.gov.mma.facial.entity.User;
 import br.gov.mma.facial.security.BiometricAuthenticationToken;
 import br.gov.mma.facial.security.UserDetailsImpl;
+import br.gov.mma.facial.service.BiometricExecutor;
+import br.gov.mma.facial.service.BiometricExecutor.Priority;
+import br.gov.mma.facial.service.BiometricOverloadException;
 import br.gov.mma.facial.service.BiometricService;
+import br.gov.mma.facial.service.FaceGallery;
+import br.gov.mma.facial.service.FaceRegion;
+import br.gov.mma.facial.service.FrameAnalysis;
+import br.gov.mma.facial.service.FrameDecoder;
+import br.gov.mma.facial.service.FrameQuality;
+import br.gov.mma.facial.service.LivenessStreamService;
 import br.gov.mma.facial.service.UserService;
 import br.gov.mma.facial.service.PendingRegistrationService;
 import br.gov.mma.facial.util.JwtUtils;
@@ -19,7 +29,9 @@ import br.gov.mma.facial.util.JwtUtils;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -29,12 +41,17 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -52,8 +69,11 @@ public class AuthController {
     private final JwtUtils jwtUtils;
     private final UserService userService;
     private final BiometricService biometricService;
+    private final BiometricExecutor biometricExecutor;
+    private final LivenessStreamService livenessStreamService;
     private final PasswordEncoder passwordEncoder;
     private final PendingRegistrationService pendingRegistrationService;
+    private final BiometricProperties biometricProperties;
     
     // JWT expiration time in milliseconds (24 hours)
     private final long jwtExpirationMs = 86400000;
@@ -62,14 +82,20 @@ public class AuthController {
                          JwtUtils jwtUtils,
                          UserService userService,
                          BiometricService biometricService,
+                         BiometricExecutor biometricExecutor,
+                         LivenessStreamService livenessStreamService,
                          PasswordEncoder passwordEncoder,
-                         PendingRegistrationService pendingRegistrationService) {
+                         PendingRegistrationService pendingRegistrationService,
+                         BiometricProperties biometricProperties) {
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.userService = userService;
         this.biometricService = biometricService;
+        this.biometricExecutor = biometricExecutor;
+        this.livenessStreamService = livenessStreamService;
         this.passwordEncoder = passwordEncoder;
         this.pendingRegistrationService = pendingRegistrationService;
+        this.biometricProperties = biometricProperties;
     }
 
     /**
@@ -202,14 +228,55 @@ public class AuthController {
      */
     @PostMapping("/register/complete-face")
     public ResponseEntity<?> completeRegistrationWithFace(@Valid @RequestBody CompleteFaceRegistrationRequest request) {
-        logger.info("[REGISTER-STEP2] Completing registration with facial enrollment for session: {}", request.getSessionToken());
+        return completeRegistration(request.getSessionToken(),
+            user -> biometricService.enrollUserFace(user, request.getFaceImagesBase64(), false));
+    }
+
+    /**
+     * STEP 2 com as imagens enviadas como multipart/form-data (partes "faceImages")
+     */
+    @PostMapping(value = "/register/complete-face", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> completeRegistrationWithFaceImages(@RequestParam("sessionToken") String sessionToken,
+                                                                @RequestPart("faceImages") List<MultipartFile> faceImages) {
+        if (faceImages.isEmpty() || faceImages.size() > 5) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Entre 1 e 5 imagens faciais são necessárias"));
+        }
+        List<byte[]> images;
+        try {
+            images = readImages(faceImages);
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        return completeRegistration(sessionToken,
+            user -> biometricService.enrollUserFaceImages(user, images, false));
+    }
+
+    /**
+     * STEP 2 com uma única imagem como corpo da requisição (image/jpeg)
+     */
+    @PostMapping(value = "/register/complete-face", consumes = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<?> completeRegistrationWithFaceJpeg(@RequestParam("sessionToken") String sessionToken,
+                                                              InputStream faceImage) {
+        byte[] image;
+        try {
+            image = readImage(faceImage);
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        return completeRegistration(sessionToken,
+            user -> biometricService.enrollUserFaceImages(user, List.of(image), false));
+    }
+
+    private ResponseEntity<?> completeRegistration(String sessionToken, Predicate<User> enrollment) {
+        logger.info("[REGISTER-STEP2] Completing registration with facial enrollment for session: {}", sessionToken);
 
         try {
             // Retrieve pending registration
-            PendingRegistrationRequest pending = pendingRegistrationService.getPendingRegistration(request.getSessionToken());
+            PendingRegistrationRequest pending = pendingRegistrationService.getPendingRegistration(sessionToken);
             
             if (pending == null) {
-                logger.warn("[REGISTER-STEP2] Pending registration not found or expired: {}", request.getSessionToken());
+                logger.warn("[REGISTER-STEP2] Pending registration not found or expired: {}", sessionToken);
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error("Sessão de registro inválida ou expirada. Por favor, reinicie o cadastro."));
             }
@@ -227,11 +294,16 @@ public class AuthController {
 
             // Enroll face and save biometric template
             logger.info("[REGISTER-STEP2] Enrolling facial biometric for user: {}", newUser.getEmail());
-            boolean biometricSaved = biometricService.enrollUserFace(
-                newUser,
-                request.getFaceImagesBase64(),
-                false // Don't replace existing (first enrollment)
-            );
+            boolean biometricSaved;
+            try {
+                // Os quadros são extraídos em paralelo no executor biométrico pelo próprio serviço
+                biometricSaved = enrollment.test(newUser); // Don't replace existing (first enrollment)
+            } catch (BiometricOverloadException e) {
+                // Sessão pendente preservada: o cliente repete o passo 2 após o Retry-After
+                logger.warn("[REGISTER-STEP2] Biometric executor saturated, rolling back user: {}", newUser.getId());
+                userService.delete(newUser);
+                return biometricOverloaded(e);
+            }
 
             if (!biometricSaved) {
                 logger.error("[REGISTER-STEP2] Failed to save biometric data for user: {}", newUser.getId());
@@ -244,7 +316,7 @@ public class AuthController {
             logger.info("[REGISTER-STEP2] Facial biometric enrolled successfully for: {}", newUser.getEmail());
 
             // Complete and remove pending registration
-            pendingRegistrationService.completePendingRegistration(request.getSessionToken());
+            pendingRegistrationService.completePendingRegistration(sessionToken);
 
             logger.info("[REGISTER-STEP2] User registered successfully with facial biometric: {}", newUser.getEmail());
 
@@ -296,68 +368,232 @@ public class AuthController {
     public ResponseEntity<?> authenticateBiometric(@Valid @RequestBody BiometricLoginRequest biometricRequest) {
         logger.info("Tentativa de login biométrico - Session: {}", biometricRequest.getSessionId());
 
+        // Validar que a imagem facial foi fornecida
+        if (biometricRequest.getFaceImageBase64() == null || biometricRequest.getFaceImageBase64().trim().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Imagem facial é obrigatória"));
+        }
+        return authenticateBiometricFrame(biometricRequest,
+            withColor -> biometricService.analyzeFrame(biometricRequest.getFaceImageBase64(), withColor));
+    }
+
+    /**
+     * Login biométrico facial com a imagem enviada como multipart/form-data (parte "faceImage");
+     * os demais campos seguem os nomes do JSON
+     */
+    @PostMapping(value = "/login-face", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> authenticateBiometricMultipart(@Valid @ModelAttribute BiometricLoginRequest biometricRequest,
+                                                            @RequestPart("faceImage") MultipartFile faceImage) {
+        logger.info("Tentativa de login biométrico (multipart) - Session: {}", biometricRequest.getSessionId());
+
+        byte[] image;
+        try {
+            image = readImage(faceImage.getInputStream());
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        return authenticateBiometricFrame(biometricRequest,
+            withColor -> biometricService.analyzeFrame(image, withColor));
+    }
+
+    /**
+     * Login biométrico facial com a imagem como corpo da requisição (image/jpeg).
+     * Os demais campos vão na query string, exceto a senha, enviada no cabeçalho X-Password
+     * para não aparecer em URLs e logs de acesso.
+     */
+    @PostMapping(value = "/login-face", consumes = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<?> authenticateBiometricJpeg(@Valid @ModelAttribute BiometricLoginRequest biometricRequest,
+                                                       @RequestHeader(value = "X-Password", required = false) String password,
+                                                       InputStream faceImage) {
+        logger.info("Tentativa de login biométrico (image/jpeg) - Session: {}", biometricRequest.getSessionId());
+
+        biometricRequest.setPassword(password);
+        byte[] image;
+        try {
+            image = readImage(faceImage);
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        return authenticateBiometricFrame(biometricRequest,
+            withColor -> biometricService.analyzeFrame(image, withColor));
+    }
+
+    /**
+     * Limites e mensagens da triagem de qualidade: a interface mede a miniatura da câmera no
+     * próprio navegador, com os mesmos critérios do servidor, em vez de enviar um quadro a cada
+     * verificação
+     */
+    @GetMapping("/frame-quality")
+    public ResponseEntity<?> getFrameQualityThresholds() {
+        BiometricProperties.QualityConfig config = biometricProperties.getQuality();
+        Map<String, String> messages = new HashMap<>();
+        for (FrameQuality.Reason reason : FrameQuality.Reason.values()) {
+            messages.put(reason.name(), reason.getMessage());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", Boolean.TRUE.equals(config.getEnabled()));
+        result.put("thumbnailWidth", config.getThumbnailWidth());
+        result.put("minBrightness", config.getMinBrightness());
+        result.put("maxBrightness", config.getMaxBrightness());
+        result.put("minContrast", config.getMinContrast());
+        result.put("minSharpness", config.getMinSharpness());
+        result.put("messages", messages);
+        return ResponseEntity.ok(ApiResponse.success("Limites da triagem de qualidade", result));
+    }
+
+    /**
+     * Triagem de qualidade de um quadro da câmera (image/jpeg, tipicamente uma miniatura), sem
+     * detecção de faces: devolve o motivo estruturado para a interface orientar o usuário.
+     * Mantida para clientes que não medem o quadro localmente; roda na classe de menor
+     * prioridade do executor para não competir com os logins
+     */
+    @PostMapping(value = "/frame-quality", consumes = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<?> assessFrameQuality(InputStream frameImage) {
+        byte[] image;
         try {
-            // Validar que a imagem facial foi fornecida
-            if (biometricRequest.getFaceImageBase64() == null || biometricRequest.getFaceImageBase64().trim().isEmpty()) {
+            image = readImage(frameImage);
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        try {
+            FrameQuality quality = biometricExecutor.execute(Priority.BATCH, () -> {
+                try (FrameAnalysis frame = biometricService.analyzeFrame(image, false)) {
+                    return frame != null ? biometricService.assessQuality(frame) : null;
+                }
+            });
+            if (quality == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(ApiResponse.error("Imagem facial é obrigatória"));
+                    .body(ApiResponse.error("Imagem inválida"));
             }
 
-            // Processar imagem facial e extrair template
-            byte[] faceTemplate = biometricService.extractFaceTemplate(biometricRequest.getFaceImageBase64());
+            Map<String, Object> result = new HashMap<>();
+            result.put("accepted", quality.accepted());
+            result.put("reason", quality.reason().name());
+            result.put("brightness", quality.brightness());
+            result.put("contrast", quality.contrast());
+            result.put("sharpness", quality.sharpness());
+            return ResponseEntity.ok(ApiResponse.success(quality.reason().getMessage(), result));
+
+        } catch (BiometricOverloadException e) {
+            return biometricOverloaded(e);
+        } catch (Exception e) {
+            logger.error("Erro na triagem de qualidade do quadro", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Erro na análise da imagem"));
+        }
+    }
+
+    /**
+     * Origem do quadro de um login biométrico (base64, multipart ou corpo binário)
+     */
+    @FunctionalInterface
+    private interface FaceFrameSource {
+        FrameAnalysis analyze(boolean withColor) throws IOException;
+    }
+
+    /**
+     * Resultado do processamento do quadro no executor biométrico
+     */
+    private record FaceMatch(byte[] template, boolean live, BiometricService.Identification identification,
+                             FrameQuality quality, FaceRegion faceRegion) {
+        User identifiedUser() {
+            return identification != null ? identification.user() : null;
+        }
+
+        FaceGallery.Match galleryMatch() {
+            return identification != null ? identification.match() : null;
+        }
+    }
+
+    /**
+     * Etapa comum às variantes do login biométrico (JSON, multipart e image/jpeg), incluindo o
+     * token de uma sessão de liveness por streaming aprovada
+     */
+    private ResponseEntity<?> authenticateBiometricFrame(BiometricLoginRequest biometricRequest,
+                                                         FaceFrameSource frameSource) {
+        String livenessToken = biometricRequest.getLivenessToken();
+        if (livenessToken == null || livenessToken.isBlank()) {
+            return authenticateBiometricFrame(biometricRequest, frameSource, null);
+        }
+
+        // Sessão de liveness por streaming aprovada: a captura na resolução da câmera é comparada
+        // e só é aceita se for a mesma face do melhor quadro da sessão. O token só é consumido
+        // depois que a captura gerar um template, para uma imagem ruim não exigir nova sessão
+        if (!livenessStreamService.hasProof(livenessToken.trim())) {
+            logger.warn("Token de liveness inválido ou expirado - Session: {}", biometricRequest.getSessionId());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Verificação de vitalidade expirada ou inválida. Repita a verificação."));
+        }
+        return authenticateBiometricFrame(biometricRequest, frameSource, livenessToken.trim());
+    }
+
+    /**
+     * @param livenessToken token de uma sessão de liveness por streaming aprovada, ou null.
+     *                      Substitui o liveness de imagem única: o quadro enviado só é aceito
+     *                      se for a mesma face do melhor quadro da sessão
+     */
+    private ResponseEntity<?> authenticateBiometricFrame(BiometricLoginRequest biometricRequest,
+                                                         FaceFrameSource frameSource,
+                                                         String livenessToken) {
+        try {
+            boolean livenessRequested = Boolean.TRUE.equals(biometricRequest.getEnableLivenessCheck());
+            String claimedCredential = biometricRequest.getEmailOrMatricula() != null
+                ? biometricRequest.getEmailOrMatricula().trim()
+                : "";
+            boolean claimedIdentity = !claimedCredential.isEmpty();
+
+            // Decodificação, extração, liveness e busca 1:N rodam no executor biométrico, fora da thread do Tomcat
+            boolean streamedLiveness = livenessToken != null;
+            FaceMatch faceMatch = biometricExecutor.execute(Priority.LOGIN, () -> {
+                // Decodificar o quadro uma única vez: extração e liveness compartilham os planos e a detecção
+                try (FrameAnalysis frame = frameSource.analyze(livenessRequested && !streamedLiveness)) {
+                    if (frame != null) {
+                        frame.setRegionHint(FaceRegion.parse(biometricRequest.getFaceRegionHint()));
+                    }
+                    byte[] template = frame != null ? biometricService.extractFaceTemplate(frame) : null;
+                    if (template == null) {
+                        return new FaceMatch(null, false, null, frame != null ? frame.getQuality() : null, null);
+                    }
+                    boolean live = streamedLiveness
+                        ? sameFaceAsProof(livenessToken, template)
+                        : !livenessRequested || biometricService.verifyLiveness(frame);
+                    // Com credencial informada a verificação é 1:1 (feita pelo provider); sem ela, identificação 1:N na galeria
+                    BiometricService.Identification identified =
+                        live && !claimedIdentity ? biometricService.identify(template) : null;
+                    return new FaceMatch(template, live, identified, frame.getQuality(), frame.getFaceRegion());
+                }
+            });
+            byte[] faceTemplate = faceMatch.template();
+            boolean isLive = faceMatch.live();
             
             if (faceTemplate == null) {
                 logger.warn("Falha na extração do template facial - Session: {}", biometricRequest.getSessionId());
+                // Rejeição na triagem: o código do motivo vai no campo error para a interface orientar o usuário
+                FrameQuality quality = faceMatch.quality();
+                if (quality != null && !quality.accepted()) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(ApiResponse.error(quality.reason().getMessage(), quality.reason().name()));
+                }
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error("Falha no processamento da imagem facial"));
             }
 
             // Verificar liveness se habilitado
-            if (Boolean.TRUE.equals(biometricRequest.getEnableLivenessCheck())) {
-                boolean isLive = biometricService.verifyLiveness(biometricRequest.getFaceImageBase64());
-                if (!isLive) {
-                    logger.warn("Falha na verificação de liveness - Session: {}", biometricRequest.getSessionId());
-                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(ApiResponse.error("Falha na verificação de vitalidade"));
-                }
+            if (!isLive) {
+                logger.warn("Falha na verificação de liveness - Session: {}", biometricRequest.getSessionId());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(withFaceRegion(ApiResponse.error("Falha na verificação de vitalidade"), faceMatch));
             }
 
-            // Identificar usuário pelo template biométrico
-            User user = biometricService.identifyUser(faceTemplate);
+            User user = claimedIdentity
+                ? userService.findByEmailOrMatricula(claimedCredential)
+                : faceMatch.identifiedUser();
             
             if (user == null) {
                 logger.warn("Usuário não identificado biometricamente - Session: {}", biometricRequest.getSessionId());
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(ApiResponse.error("Usuário não identificado"));
-            }
-
-            // Se credenciais foram fornecidas, validar que correspondem ao usuário identificado
-            if (biometricRequest.getEmailOrMatricula() != null && !biometricRequest.getEmailOrMatricula().isEmpty()) {
-                String providedCredential = biometricRequest.getEmailOrMatricula().trim();
-                boolean credentialsMatch = providedCredential.equalsIgnoreCase(user.getEmail()) || 
-                                          providedCredential.equalsIgnoreCase(user.getMatricula());
-                
-                if (!credentialsMatch) {
-                    logger.warn("Credenciais fornecidas ({}) não correspondem ao usuário identificado biometricamente ({}/{}) - Session: {}", 
-                        providedCredential, user.getEmail(), user.getMatricula(), biometricRequest.getSessionId());
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(ApiResponse.error("As credenciais fornecidas não correspondem à identidade facial detectada"));
-                }
-
-                // Validar senha se fornecida
-                if (biometricRequest.getPassword() != null && !biometricRequest.getPassword().isEmpty()) {
-                    if (!passwordEncoder.matches(biometricRequest.getPassword(), user.getPasswordHash())) {
-                        logger.warn("Senha incorreta para usuário {} identificado biometricamente - Session: {}", 
-                            user.getEmail(), biometricRequest.getSessionId());
-                        user.incrementFailedAttempts();
-                        userService.save(user);
-                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                            .body(ApiResponse.error("Senha incorreta"));
-                    }
-                }
-                
-                logger.info("Validação de credenciais bem-sucedida para login biométrico: {} - Session: {}", 
-                    user.getEmail(), biometricRequest.getSessionId());
+                    .body(withFaceRegion(ApiResponse.error("Usuário não identificado"), faceMatch));
             }
 
             // Verificar se a conta está bloqueada
@@ -369,9 +605,36 @@ public class AuthController {
 
             // Criar token de autenticação biométrica
             BiometricAuthenticationToken biometricToken = 
-                new BiometricAuthenticationToken(user.getEmail(), faceTemplate);
+                new BiometricAuthenticationToken(user.getEmail(), faceTemplate, faceMatch.galleryMatch());
+
+            Authentication authentication;
+            try {
+                authentication = authenticationManager.authenticate(biometricToken);
+            } catch (BadCredentialsException e) {
+                if (!claimedIdentity) {
+                    throw e;
+                }
+                logger.warn("Credenciais fornecidas ({}) não correspondem à identidade facial - Session: {}", 
+                    claimedCredential, biometricRequest.getSessionId());
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error("As credenciais fornecidas não correspondem à identidade facial detectada"));
+            }
+
+            // Validar senha se fornecida junto com a credencial
+            if (claimedIdentity && biometricRequest.getPassword() != null && !biometricRequest.getPassword().isEmpty()) {
+                if (!passwordEncoder.matches(biometricRequest.getPassword(), user.getPasswordHash())) {
+                    logger.warn("Senha incorreta para usuário {} verificado biometricamente - Session: {}", 
+                        user.getEmail(), biometricRequest.getSessionId());
+                    user.incrementFailedAttempts();
+                    userService.save(user);
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(ApiResponse.error("Senha incorreta"));
+                }
+                
+                logger.info("Validação de credenciais bem-sucedida para login biométrico: {} - Session: {}", 
+                    user.getEmail(), biometricRequest.getSessionId());
+            }
 
-            Authentication authentication = authenticationManager.authenticate(biometricToken);
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
             String jwt = jwtUtils.generateJwtToken(authentication);
@@ -407,6 +670,10 @@ public class AuthController {
                 user.getEmail(), biometricRequest.getSessionId());
             return ResponseEntity.ok(response);
 
+        } catch (BiometricOverloadException e) {
+            logger.warn("Login biométrico recusado por sobrecarga - Session: {} - {}",
+                biometricRequest.getSessionId(), e.getMessage());
+            return biometricOverloaded(e);
         } catch (AuthenticationException e) {
             logger.warn("Falha na autenticação biométrica - Session: {} - {}", 
                 biometricRequest.getSessionId(), e.getMessage());
@@ -425,23 +692,67 @@ public class AuthController {
      */
     @PostMapping("/enroll-face")
     public ResponseEntity<?> enrollFace(@Valid @RequestBody FaceEnrollmentRequest enrollmentRequest) {
-        logger.info("Tentativa de cadastro biométrico para usuário: {}", enrollmentRequest.getUserId());
+        // Processar múltiplas imagens para criar template robusto
+        return enrollFace(enrollmentRequest.getUserId(), user -> biometricService.enrollUserFace(
+            user, 
+            enrollmentRequest.getFaceImagesBase64(),
+            Boolean.TRUE.equals(enrollmentRequest.getReplaceExisting())
+        ));
+    }
+
+    /**
+     * Cadastro de biometria facial com as imagens enviadas como multipart/form-data (partes "faceImages")
+     */
+    @PostMapping(value = "/enroll-face", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> enrollFaceImages(@RequestParam("userId") String userId,
+                                              @RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting,
+                                              @RequestPart("faceImages") List<MultipartFile> faceImages) {
+        if (faceImages.size() < 3 || faceImages.size() > 10) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Entre 3 e 10 imagens são necessárias para cadastro"));
+        }
+        List<byte[]> images;
+        try {
+            images = readImages(faceImages);
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        return enrollFace(userId, user -> biometricService.enrollUserFaceImages(user, images, replaceExisting));
+    }
+
+    /**
+     * Acrescenta um template ao cadastro a partir de uma única imagem como corpo da requisição (image/jpeg)
+     */
+    @PostMapping(value = "/enroll-face", consumes = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<?> enrollFaceJpeg(@RequestParam("userId") String userId,
+                                            @RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting,
+                                            InputStream faceImage) {
+        if (replaceExisting) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Substituir o cadastro exige entre 3 e 10 imagens"));
+        }
+        byte[] image;
+        try {
+            image = readImage(faceImage);
+        } catch (IOException e) {
+            return unreadableImage(e);
+        }
+        return enrollFace(userId, user -> biometricService.enrollUserFaceImages(user, List.of(image), false));
+    }
+
+    private ResponseEntity<?> enrollFace(String userId, Predicate<User> enrollment) {
+        logger.info("Tentativa de cadastro biométrico para usuário: {}", userId);
 
         try {
             // Verificar se o usuário existe
-            User user = userService.findById(Long.valueOf(enrollmentRequest.getUserId()));
+            User user = userService.findById(Long.valueOf(userId));
             
             if (user == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error("Usuário não encontrado"));
             }
 
-            // Processar múltiplas imagens para criar template robusto
-            boolean enrollmentSuccess = biometricService.enrollUserFace(
-                user, 
-                enrollmentRequest.getFaceImagesBase64(),
-                Boolean.TRUE.equals(enrollmentRequest.getReplaceExisting())
-            );
+            boolean enrollmentSuccess = enrollment.test(user);
 
             if (enrollmentSuccess) {
                 logger.info("Cadastro biométrico realizado com sucesso para usuário: {}", user.getEmail());
@@ -455,9 +766,12 @@ public class AuthController {
         } catch (NumberFormatException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(ApiResponse.error("ID de usuário inválido"));
+        } catch (BiometricOverloadException e) {
+            logger.warn("Cadastro biométrico recusado por sobrecarga para usuário: {}", userId);
+            return biometricOverloaded(e);
         } catch (Exception e) {
             logger.error("Erro interno no cadastro biométrico para usuário: {}", 
-                enrollmentRequest.getUserId(), e);
+                userId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Erro interno no servidor"));
         }
@@ -564,9 +878,14 @@ public class AuthController {
             } else {
                 // Fluxo legado: verificação biométrica completa
                 // Processar imagem facial e extrair template
-                byte[] faceTemplate = biometricService.extractFaceTemplate(resetRequest.getFaceImageBase64());
+                FaceMatch faceMatch = biometricExecutor.execute(Priority.LOGIN, () -> {
+                    byte[] template = biometricService.extractFaceTemplate(resetRequest.getFaceImageBase64());
+                    return template != null
+                        ? new FaceMatch(template, true, biometricService.identify(template), null, null)
+                        : new FaceMatch(null, false, null, null, null);
+                });
                 
-                if (faceTemplate == null) {
+                if (faceMatch.template() == null) {
                     logger.warn("Falha na extração do template facial para reset - Email/Matrícula: {}", 
                         resetRequest.getEmailOrMatricula());
                     return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -574,7 +893,7 @@ public class AuthController {
                 }
 
                 // Identificar usuário pelo template biométrico
-                User identifiedUser = biometricService.identifyUser(faceTemplate);
+                User identifiedUser = faceMatch.identifiedUser();
                 
                 if (identifiedUser == null) {
                     logger.warn("Usuário não identificado biometricamente para reset - Email/Matrícula fornecido: {}", 
@@ -617,6 +936,9 @@ public class AuthController {
 
             return ResponseEntity.ok(ApiResponse.success("Senha alterada com sucesso", responseData));
 
+        } catch (BiometricOverloadException e) {
+            logger.warn("Reset de senha biométrico recusado por sobrecarga - Session: {}", resetRequest.getSessionId());
+            return biometricOverloaded(e);
         } catch (Exception e) {
             logger.error("Erro ao resetar senha biometricamente", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -624,6 +946,62 @@ public class AuthController {
         }
     }
 
+    /**
+     * Anexa à resposta de falha a posição da face encontrada, para o cliente reenviá-la como
+     * dica de detecção na próxima tentativa
+     */
+    private static ApiResponse<Map<String, Object>> withFaceRegion(ApiResponse<Map<String, Object>> response,
+                                                                   FaceMatch faceMatch) {
+        if (faceMatch.faceRegion() != null) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("faceRegionHint", faceMatch.faceRegion().format());
+            response.setData(data);
+        }
+        return response;
+    }
+
+    /**
+     * Resposta 503 para processamento biométrico recusado por saturação do executor
+     */
+    /**
+     * Consome o token de liveness (uso único) e compara a captura com o melhor quadro da sessão;
+     * um token expirado ou já usado por outra requisição nesse meio-tempo reprova a vitalidade
+     */
+    private boolean sameFaceAsProof(String livenessToken, byte[] template) {
+        byte[] provenTemplate = livenessStreamService.consumeProof(livenessToken);
+        return provenTemplate != null && biometricService.sameFace(provenTemplate, template);
+    }
+
+    /**
+     * Lê o corpo da imagem na thread da requisição, limitado a max-image-bytes: o executor
+     * biométrico recebe só os bytes e nunca espera pela rede
+     */
+    private byte[] readImage(InputStream input) throws IOException {
+        try (input) {
+            return FrameDecoder.readImage(input, biometricProperties.getDecode().getMaxImageBytes());
+        }
+    }
+
+    private List<byte[]> readImages(List<MultipartFile> images) throws IOException {
+        List<byte[]> imageBytes = new ArrayList<>(images.size());
+        for (MultipartFile image : images) {
+            imageBytes.add(readImage(image.getInputStream()));
+        }
+        return imageBytes;
+    }
+
+    private ResponseEntity<?> unreadableImage(IOException e) {
+        logger.warn("Imagem recebida não pôde ser lida: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+            .body(ApiResponse.error("Imagem inválida ou acima do tamanho máximo"));
+    }
+
+    private ResponseEntity<?> biometricOverloaded(BiometricOverloadException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(ApiResponse.error("Serviço biométrico sobrecarregado. Tente novamente em instantes."));
+    }
+
     /**
      * Endpoint de status para verificar saúde da API
      */
@@ -0,0 +1,107 @@
+package br.gov.mma.facial.controller;
+
+import br.gov.mma.facial.dto.ApiResponse;
+import br.gov.mma.facial.dto.IdentificationCandidate;
+import br.gov.mma.facial.dto.TopKIdentificationRequest;
+import br.gov.mma.facial.entity.User;
+import br.gov.mma.facial.repository.UserRepository;
+import br.gov.mma.facial.service.BiometricExecutor;
+import br.gov.mma.facial.service.BiometricExecutor.Priority;
+import br.gov.mma.facial.service.BiometricOverloadException;
+import br.gov.mma.facial.service.BiometricService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Controller para operações biométricas administrativas (ROLE_PERFIL_2+)
+ * Revisão de correspondências ambíguas e verificação de duplicidade
+ */
+@RestController
+@RequestMapping("/api/biometric")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class BiometricController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BiometricController.class);
+
+    private final BiometricService biometricService;
+    private final BiometricExecutor biometricExecutor;
+    private final UserRepository userRepository;
+
+    public BiometricController(BiometricService biometricService, BiometricExecutor biometricExecutor,
+                               UserRepository userRepository) {
+        this.biometricService = biometricService;
+        this.biometricExecutor = biometricExecutor;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Retorna os K candidatos mais próximos de uma face e a margem entre o 1º e o 2º colocados
+     */
+    @PostMapping("/identify/top-k")
+    @PreAuthorize("hasAnyRole('ROLE_PERFIL_2', 'ROLE_MINISTRO')")
+    public ResponseEntity<?> identifyTopK(@Valid @RequestBody TopKIdentificationRequest request) {
+        try {
+            // Extração e busca 1:N no executor biométrico; null indica falha na extração
+            List<IdentificationCandidate> candidates = biometricExecutor.execute(Priority.ENROLLMENT, () -> {
+                byte[] probeTemplate = biometricService.extractFaceTemplate(request.getFaceImageBase64());
+                return probeTemplate != null ? biometricService.identifyTopK(probeTemplate, request.getK()) : null;
+            });
+            if (candidates == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("Falha no processamento da imagem facial"));
+            }
+
+            // Resolver apenas os usuários candidatos, em uma única consulta
+            Map<Long, User> users = userRepository.findAllById(
+                    candidates.stream().map(IdentificationCandidate::getUserId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+            List<Map<String, Object>> candidateDTOs = candidates.stream().map(candidate -> {
+                Map<String, Object> dto = new HashMap<>();
+                dto.put("rank", candidate.getRank());
+                dto.put("userId", candidate.getUserId());
+                dto.put("score", candidate.getScore());
+                dto.put("withinThreshold", candidate.isWithinThreshold());
+                User user = users.get(candidate.getUserId());
+                if (user != null) {
+                    dto.put("nome", user.getNome());
+                    dto.put("email", user.getEmail());
+                    dto.put("matricula", user.getMatricula());
+                }
+                return dto;
+            }).collect(Collectors.toList());
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("k", request.getK());
+            result.put("threshold", biometricService.getActiveThreshold());
+            result.put("candidates", candidateDTOs);
+            // Margem entre melhor e segundo melhor: valores pequenos indicam correspondência ambígua
+            result.put("margin", candidates.size() >= 2
+                ? candidates.get(1).getScore() - candidates.get(0).getScore()
+                : null);
+
+            logger.info("Consulta top-{} retornou {} candidatos", request.getK(), candidates.size());
+            return ResponseEntity.ok(result);
+
+        } catch (BiometricOverloadException e) {
+            logger.warn("Consulta top-k recusada por sobrecarga: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error("Serviço biométrico sobrecarregado. Tente novamente em instantes."));
+        } catch (Exception e) {
+            logger.error("Error in top-k identification", e);
+            return ResponseEntity.status(500).body(ApiResponse.error("Erro na identificação biométrica"));
+        }
+    }
+}
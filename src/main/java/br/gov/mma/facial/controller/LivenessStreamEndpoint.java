@@ -0,0 +1,169 @@
+package br.gov.mma.facial.controller;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.service.BiometricOverloadException;
+import br.gov.mma.facial.service.FrameQuality;
+import br.gov.mma.facial.service.LivenessStreamService;
+import br.gov.mma.facial.service.LivenessVerdict;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint WebSocket das sessões de liveness por streaming ({@value #PATH}).
+ *
+ * Protocolo: ao abrir a conexão o servidor envia {@code type=ready} com a largura em que os
+ * quadros devem ser enviados (a largura de trabalho da detecção, na qual o tamanho mínimo de
+ * face é aplicado). Cada quadro é enviado como mensagem binária (JPEG) e respondido com o
+ * progresso em JSON ({@code type=progress}); quando a sessão é decidida o servidor envia
+ * o veredito ({@code type=verdict}) e encerra a conexão. A mensagem de texto {@code finish}
+ * pede o veredito com os quadros já recebidos. Com o executor biométrico saturado o quadro é
+ * descartado e o cliente recebe {@code type=error} com o Retry-After, sem perder a sessão.
+ */
+@Component
+public class LivenessStreamEndpoint extends Endpoint {
+
+    public static final String PATH = "/api/auth/liveness-stream";
+
+    private static final Logger logger = LoggerFactory.getLogger(LivenessStreamEndpoint.class);
+
+    private static final String SESSION_ATTRIBUTE = "livenessSessionId";
+    private static final String FINISH = "finish";
+
+    private final LivenessStreamService livenessStreamService;
+    private final ObjectMapper objectMapper;
+    private final int maxFrameBytes;
+    private final long idleTimeoutMs;
+    private final int frameWidth;
+
+    public LivenessStreamEndpoint(LivenessStreamService livenessStreamService, ObjectMapper objectMapper,
+                                  BiometricProperties biometricProperties) {
+        this.livenessStreamService = livenessStreamService;
+        this.objectMapper = objectMapper;
+        this.maxFrameBytes = biometricProperties.getLivenessStream().getMaxFrameBytes();
+        this.idleTimeoutMs = biometricProperties.getLivenessStream().getSessionTimeoutSeconds() * 1000L;
+        this.frameWidth = biometricProperties.getDetection().getWorkingWidth();
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig endpointConfig) {
+        String livenessSessionId = livenessStreamService.open();
+        if (livenessSessionId == null) {
+            close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Limite de sessões de liveness atingido");
+            return;
+        }
+        session.getUserProperties().put(SESSION_ATTRIBUTE, livenessSessionId);
+        session.setMaxBinaryMessageBufferSize(maxFrameBytes);
+        session.setMaxIdleTimeout(idleTimeoutMs);
+        session.addMessageHandler(byte[].class, frame -> onFrame(session, livenessSessionId, frame));
+        session.addMessageHandler(String.class, command -> onCommand(session, livenessSessionId, command));
+
+        Map<String, Object> ready = new LinkedHashMap<>();
+        ready.put("type", "ready");
+        ready.put("frameWidth", frameWidth);
+        send(session, ready);
+    }
+
+    private void onFrame(Session session, String livenessSessionId, byte[] frame) {
+        try {
+            LivenessStreamService.Update update = livenessStreamService.processFrame(livenessSessionId, frame);
+
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("type", "progress");
+            progress.put("frames", update.frames());
+            progress.put("faceDetected", update.faceDetected());
+            progress.put("faceRegionHint", update.faceRegion() != null ? update.faceRegion().format() : null);
+            progress.put("quality", update.quality() != null ? update.quality().name() : null);
+            progress.put("message", update.quality() != null && update.quality() != FrameQuality.Reason.OK
+                ? update.quality().getMessage()
+                : null);
+            progress.put("motion", update.motion());
+            progress.put("blinkDetected", update.blinkDetected());
+            send(session, progress);
+
+            if (update.verdict() != null) {
+                sendVerdict(session, update.verdict());
+            }
+        } catch (BiometricOverloadException e) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("type", "error");
+            error.put("reason", "OVERLOADED");
+            error.put("message", "Serviço biométrico sobrecarregado. Tente novamente em instantes.");
+            error.put("retryAfterSeconds", e.getRetryAfterSeconds());
+            send(session, error);
+        } catch (IllegalStateException e) {
+            logger.warn("Quadro recebido fora de uma sessão de liveness ativa: {}", e.getMessage());
+            close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "Sessão de liveness encerrada");
+        } catch (Exception e) {
+            logger.error("Erro no processamento do quadro de liveness - Sessão: {}", livenessSessionId, e);
+            close(session, CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Erro no processamento do quadro");
+        }
+    }
+
+    private void onCommand(Session session, String livenessSessionId, String command) {
+        if (!FINISH.equalsIgnoreCase(command.trim())) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Comando desconhecido");
+            return;
+        }
+        try {
+            sendVerdict(session, livenessStreamService.finish(livenessSessionId));
+        } catch (IllegalStateException e) {
+            close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "Sessão de liveness encerrada");
+        }
+    }
+
+    private void sendVerdict(Session session, LivenessVerdict verdict) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "verdict");
+        message.put("live", verdict.live());
+        message.put("reason", verdict.reason().name());
+        message.put("message", verdict.reason().getMessage());
+        message.put("frames", verdict.frames());
+        message.put("motion", verdict.motion());
+        message.put("blinkDetected", verdict.blinkDetected());
+        message.put("livenessToken", verdict.livenessToken());
+        send(session, message);
+        close(session, CloseReason.CloseCodes.NORMAL_CLOSURE, verdict.reason().name());
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        Object livenessSessionId = session.getUserProperties().get(SESSION_ATTRIBUTE);
+        if (livenessSessionId != null) {
+            livenessStreamService.close((String) livenessSessionId);
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable failure) {
+        logger.warn("Erro na conexão de liveness por streaming: {}", failure.getMessage());
+    }
+
+    private void send(Session session, Map<String, Object> message) {
+        try {
+            session.getBasicRemote().sendText(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar a mensagem de liveness", e);
+        } catch (IOException e) {
+            logger.debug("Falha ao enviar mensagem de liveness: {}", e.getMessage());
+        }
+    }
+
+    private static void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            logger.debug("Falha ao encerrar a conexão de liveness: {}", e.getMessage());
+        }
+    }
+}
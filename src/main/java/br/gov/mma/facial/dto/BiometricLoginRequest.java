@@ -24,6 +24,18 @@ public class BiometricLoginRequest {
      */
     private String faceImageBase64;
 
+    /**
+     * Token emitido por uma sessão de liveness por streaming aprovada; acompanha a imagem facial,
+     * que deve ser da mesma face verificada na sessão, e substitui o liveness de imagem única
+     */
+    private String livenessToken;
+
+    /**
+     * Posição da face no quadro anterior da mesma câmera ({@code x,y,largura,altura} em frações
+     * do quadro), como devolvida pelo servidor; restringe a detecção a uma janela ao redor dela
+     */
+    private String faceRegionHint;
+
     @Size(max = 50, message = "Session ID deve ter no máximo 50 caracteres")
     private String sessionId;
 
@@ -54,6 +66,12 @@ public class BiometricLoginRequest {
     public String getFaceImageBase64() { return faceImageBase64; }
     public void setFaceImageBase64(String faceImageBase64) { this.faceImageBase64 = faceImageBase64; }
 
+    public String getLivenessToken() { return livenessToken; }
+    public void setLivenessToken(String livenessToken) { this.livenessToken = livenessToken; }
+
+    public String getFaceRegionHint() { return faceRegionHint; }
+    public void setFaceRegionHint(String faceRegionHint) { this.faceRegionHint = faceRegionHint; }
+
     public String getSessionId() { return sessionId; }
     public void setSessionId(String sessionId) { this.sessionId = sessionId; }
 
@@ -0,0 +1,56 @@
+package br.gov.mma.facial.dto;
+
+/**
+ * DTO para um candidato da identificação biométrica 1:N (top-K)
+ */
+public class IdentificationCandidate {
+
+    /**
+     * Posição no ranking (1 = melhor correspondência)
+     */
+    private int rank;
+
+    private Long userId;
+
+    /**
+     * Score de distância (menor é melhor, mesma escala do threshold)
+     */
+    private double score;
+
+    /**
+     * Indica se o score está dentro do threshold configurado
+     */
+    private boolean withinThreshold;
+
+    // Constructors
+    public IdentificationCandidate() {}
+
+    public IdentificationCandidate(int rank, Long userId, double score, boolean withinThreshold) {
+        this.rank = rank;
+        this.userId = userId;
+        this.score = score;
+        this.withinThreshold = withinThreshold;
+    }
+
+    // Getters e Setters
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public boolean isWithinThreshold() { return withinThreshold; }
+    public void setWithinThreshold(boolean withinThreshold) { this.withinThreshold = withinThreshold; }
+
+    @Override
+    public String toString() {
+        return "IdentificationCandidate{" +
+                "rank=" + rank +
+                ", userId=" + userId +
+                ", score=" + score +
+                '}';
+    }
+}
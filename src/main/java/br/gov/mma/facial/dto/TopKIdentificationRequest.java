@@ -0,0 +1,35 @@
+package br.gov.mma.facial.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO para consulta administrativa dos K candidatos mais próximos de uma face
+ */
+public class TopKIdentificationRequest {
+
+    @NotBlank(message = "Imagem facial é obrigatória")
+    private String faceImageBase64;
+
+    @NotNull(message = "k é obrigatório")
+    @Min(value = 1, message = "k deve ser pelo menos 1")
+    @Max(value = 50, message = "k deve ser no máximo 50")
+    private Integer k = 5;
+
+    // Constructors
+    public TopKIdentificationRequest() {}
+
+    public TopKIdentificationRequest(String faceImageBase64, Integer k) {
+        this.faceImageBase64 = faceImageBase64;
+        this.k = k;
+    }
+
+    // Getters e Setters
+    public String getFaceImageBase64() { return faceImageBase64; }
+    public void setFaceImageBase64(String faceImageBase64) { this.faceImageBase64 = faceImageBase64; }
+
+    public Integer getK() { return k; }
+    public void setK(Integer k) { this.k = k; }
+}
@@ -34,6 +34,13 @@ public class FaceTemplate {
     @Column(name = "template_bytes", nullable = false)
     private byte[] templateBytes;
 
+    /**
+     * Representação compacta do template (projeção quantizada em 8 bits)
+     * Usada como pré-filtro da identificação 1:N antes do re-ranqueamento no template completo
+     */
+    @Column(name = "compact_template", length = 4096)
+    private byte[] compactTemplate;
+
     /**
      * Versão do algoritmo usado para gerar o template
      * Permite migração para algoritmos mais avançados no futuro
@@ -101,6 +108,9 @@ public class FaceTemplate {
     public byte[] getTemplateBytes() { return templateBytes; }
     public void setTemplateBytes(byte[] templateBytes) { this.templateBytes = templateBytes; }
 
+    public byte[] getCompactTemplate() { return compactTemplate; }
+    public void setCompactTemplate(byte[] compactTemplate) { this.compactTemplate = compactTemplate; }
+
     public String getAlgorithmVersion() { return algorithmVersion; }
     public void setAlgorithmVersion(String algorithmVersion) { this.algorithmVersion = algorithmVersion; }
 
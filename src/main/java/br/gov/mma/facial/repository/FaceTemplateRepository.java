@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -96,8 +97,40 @@ public interface FaceTemplateRepository extends JpaRepository<FaceTemplate, Long
     @Query("SELECT ft FROM FaceTemplate ft WHERE ft.isPrimary = true")
     List<FaceTemplate> findAllPrimaryTemplates();
 
+    /**
+     * Busca todos os templates não expirados (galeria de identificação), em ordem de id
+     */
+    @Query("SELECT ft FROM FaceTemplate ft WHERE ft.expiresAt IS NULL OR ft.expiresAt > :now ORDER BY ft.id")
+    List<FaceTemplate> findAllActiveTemplates(@Param("now") LocalDateTime now);
+
+    /**
+     * Busca os templates não expirados dos usuários informados, em ordem de id
+     */
+    @Query("SELECT ft FROM FaceTemplate ft WHERE ft.user.id IN :userIds "
+        + "AND (ft.expiresAt IS NULL OR ft.expiresAt > :now) ORDER BY ft.id")
+    List<FaceTemplate> findActiveTemplatesByUserIds(@Param("userIds") Collection<Long> userIds,
+                                                    @Param("now") LocalDateTime now);
+
+    /**
+     * Chaves dos templates não expirados, sem os bytes (reconciliação do snapshot da galeria)
+     */
+    @Query("SELECT ft.id AS id, ft.user.id AS userId, ft.algorithmVersion AS algorithmVersion "
+        + "FROM FaceTemplate ft WHERE ft.expiresAt IS NULL OR ft.expiresAt > :now ORDER BY ft.id")
+    List<TemplateKeyView> findActiveTemplateKeys(@Param("now") LocalDateTime now);
+
     /**
      * Conta templates por flag primary
      */
     Long countByIsPrimary(Boolean isPrimary);
+
+    /**
+     * Projeção com o id, o usuário e a versão de algoritmo de um template
+     */
+    interface TemplateKeyView {
+        Long getId();
+
+        Long getUserId();
+
+        String getAlgorithmVersion();
+    }
 }
\ No newline at end of file
@@ -5,6 +5,9 @@ import br.gov.mma.facial.entity.FaceTemplate;
 import br.gov.mma.facial.entity.User;
 import br.gov.mma.facial.repository.FaceTemplateRepository;
 import br.gov.mma.facial.repository.UserRepository;
+import br.gov.mma.facial.service.FaceGallery;
+import br.gov.mma.facial.service.ScoreFusion;
+import br.gov.mma.facial.service.TemplateAlgorithm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -16,6 +19,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Provider responsável por validar credenciais biométricas faciais.
  */
@@ -53,23 +62,12 @@ public class BiometricAuthenticationProvider implements AuthenticationProvider {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new UsernameNotFoundException("Usuário não encontrado: " + username));
 
-        FaceTemplate referenceTemplate = faceTemplateRepository.findPrimaryTemplateByUser(user)
-            .orElseThrow(() -> new BadCredentialsException("Template biométrico não encontrado para o usuário"));
-
-        // Compare templates using the same algorithm as BiometricService
-        double score = compareTemplates(probeTemplate, referenceTemplate.getTemplateBytes());
-        double threshold = biometricProperties.getThreshold();
-        
-        logger.debug("Comparação biométrica - Score: {}, Threshold: {}", score, threshold);
-        
-        if (score > threshold) {
-            logger.warn("Falha na validação biométrica para usuário: {} - Score: {} > Threshold: {}", 
-                username, score, threshold);
-            throw new BadCredentialsException("Falha na validação biométrica");
+        if (biometricToken.getGalleryMatch() != null) {
+            verifyGalleryMatch(user, username, probeTemplate, biometricToken.getGalleryMatch());
+        } else {
+            verifyClaimedIdentity(user, username, probeTemplate);
         }
 
-        logger.info("Validação biométrica bem-sucedida para usuário: {} - Score: {}", username, score);
-
         UserDetailsImpl userDetails = UserDetailsImpl.build(user);
         BiometricAuthenticationToken authenticatedToken =
             new BiometricAuthenticationToken(userDetails, userDetails.getAuthorities(), probeTemplate);
@@ -77,35 +75,132 @@ public class BiometricAuthenticationProvider implements AuthenticationProvider {
         return authenticatedToken;
     }
 
-    @Override
-    public boolean supports(Class<?> authentication) {
-        return BiometricAuthenticationToken.class.isAssignableFrom(authentication);
+    /**
+     * Confere a identificação 1:N: o template indicado pela galeria precisa ser um template
+     * válido do usuário, e o score do probe é recalculado aqui sobre o mesmo conjunto da galeria
+     * (os templatesPerUser templates válidos mais recentes do algoritmo), com a mesma regra de
+     * fusão, e comparado com o threshold; o score recebido no token serve apenas para o log
+     */
+    private void verifyGalleryMatch(User user, String username, byte[] probeTemplate, FaceGallery.Match match) {
+        FaceTemplate matchedTemplate = faceTemplateRepository.findById(match.templateId())
+            .filter(faceTemplate -> !faceTemplate.isExpired())
+            .orElseThrow(() -> new BadCredentialsException("Template biométrico da identificação não encontrado"));
+        if (match.userId() != user.getId() || matchedTemplate.getUser() == null
+                || !user.getId().equals(matchedTemplate.getUser().getId())) {
+            logger.warn("Identificação da galeria não corresponde ao usuário {}: template {} do usuário {}",
+                username, match.templateId(), match.userId());
+            throw new BadCredentialsException("Falha na validação biométrica");
+        }
+
+        TemplateAlgorithm algorithm;
+        try {
+            algorithm = TemplateAlgorithm.fromVersion(matchedTemplate.getAlgorithmVersion());
+        } catch (IllegalArgumentException e) {
+            throw new BadCredentialsException("Nenhum template biométrico compatível com o probe");
+        }
+
+        int templatesPerUser = biometricProperties.getSearch().getTemplatesPerUser();
+        List<FaceTemplate> activeTemplates = faceTemplateRepository.findByUser(user).stream()
+            .filter(faceTemplate -> !faceTemplate.isExpired() && algorithm.matches(faceTemplate.getAlgorithmVersion()))
+            .sorted(Comparator.comparing(FaceTemplate::getId))
+            .toList();
+        List<byte[]> referenceTemplates = activeTemplates
+            .subList(Math.max(0, activeTemplates.size() - templatesPerUser), activeTemplates.size()).stream()
+            .map(FaceTemplate::getTemplateBytes)
+            .filter(referenceBytes -> referenceBytes != null && referenceBytes.length == probeTemplate.length)
+            .toList();
+        if (referenceTemplates.isEmpty()) {
+            throw new BadCredentialsException("Nenhum template biométrico compatível com o probe");
+        }
+
+        ScoreFusion fusion = ScoreFusion.fromName(biometricProperties.getSearch().getFusion());
+        double score = fusedScore(algorithm, fusion, probeTemplate, referenceTemplates);
+        double threshold = algorithm.threshold(biometricProperties);
+        if (score > threshold) {
+            logger.warn("Falha na validação biométrica para usuário: {} - Score: {} > Threshold: {} (galeria: {})",
+                username, score, threshold, match.score());
+            throw new BadCredentialsException("Falha na validação biométrica");
+        }
+
+        logger.info("Validação biométrica bem-sucedida para usuário: {} - Score: {} (identificado pela galeria)",
+            username, score);
     }
 
     /**
-     * Compara dois templates biométricos usando a mesma lógica do BiometricService
+     * Verificação 1:1: compara o probe apenas com os templates válidos do usuário informado,
+     * fundindo as distâncias com a mesma regra da galeria
      */
-    private double compareTemplates(byte[] template1, byte[] template2) {
-        try {
-            if (template1 == null || template2 == null) {
-                return Double.MAX_VALUE;
+    private void verifyClaimedIdentity(User user, String username, byte[] probeTemplate) {
+        List<FaceTemplate> referenceTemplates = faceTemplateRepository.findByUser(user).stream()
+            .filter(faceTemplate -> !faceTemplate.isExpired())
+            .toList();
+        if (referenceTemplates.isEmpty()) {
+            throw new BadCredentialsException("Template biométrico não encontrado para o usuário");
+        }
+
+        // Funde as distâncias dos templates do usuário por algoritmo, com a mesma regra da galeria
+        ScoreFusion fusion = ScoreFusion.fromName(biometricProperties.getSearch().getFusion());
+        Map<TemplateAlgorithm, List<byte[]>> templatesByAlgorithm = new EnumMap<>(TemplateAlgorithm.class);
+        for (FaceTemplate referenceTemplate : referenceTemplates) {
+            byte[] referenceBytes = referenceTemplate.getTemplateBytes();
+            if (referenceBytes == null || referenceBytes.length != probeTemplate.length) {
+                continue;
             }
-            
-            if (template1.length != template2.length) {
-                return Double.MAX_VALUE;
+            try {
+                TemplateAlgorithm algorithm = TemplateAlgorithm.fromVersion(referenceTemplate.getAlgorithmVersion());
+                templatesByAlgorithm.computeIfAbsent(algorithm, key -> new ArrayList<>()).add(referenceBytes);
+            } catch (IllegalArgumentException e) {
+                logger.debug("Template {} com versão não suportada: {}", referenceTemplate.getId(),
+                    referenceTemplate.getAlgorithmVersion());
             }
+        }
 
-            double distance = 0.0;
-            for (int i = 0; i < template1.length; i++) {
-                double diff = (template1[i] & 0xFF) - (template2[i] & 0xFF);
-                distance += diff * diff;
+        double bestMargin = Double.MAX_VALUE;
+        double bestScore = Double.MAX_VALUE;
+        double bestThreshold = 0;
+        for (Map.Entry<TemplateAlgorithm, List<byte[]>> group : templatesByAlgorithm.entrySet()) {
+            TemplateAlgorithm algorithm = group.getKey();
+            double score = fusedScore(algorithm, fusion, probeTemplate, group.getValue());
+            double threshold = algorithm.threshold(biometricProperties);
+            if (score - threshold < bestMargin) {
+                bestMargin = score - threshold;
+                bestScore = score;
+                bestThreshold = threshold;
             }
+        }
 
-            return Math.sqrt(distance / template1.length);
+        if (bestMargin == Double.MAX_VALUE) {
+            throw new BadCredentialsException("Nenhum template biométrico compatível com o probe");
+        }
+
+        logger.debug("Comparação biométrica 1:1 - {} templates, fusão {}, melhor Score: {}, Threshold: {}",
+            referenceTemplates.size(), fusion.getName(), bestScore, bestThreshold);
 
-        } catch (Exception e) {
-            logger.error("Erro na comparação de templates", e);
-            return Double.MAX_VALUE;
+        if (bestMargin > 0) {
+            logger.warn("Falha na validação biométrica para usuário: {} - Score: {} > Threshold: {}",
+                username, bestScore, bestThreshold);
+            throw new BadCredentialsException("Falha na validação biométrica");
         }
+
+        logger.info("Validação biométrica bem-sucedida para usuário: {} - Score: {}", username, bestScore);
     }
+
+    /**
+     * Score do probe contra os templates de um usuário, com as distâncias fundidas como na galeria
+     */
+    private static double fusedScore(TemplateAlgorithm algorithm, ScoreFusion fusion, byte[] probeTemplate,
+                                     List<byte[]> templates) {
+        long[] distances = new long[templates.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = algorithm.distance(probeTemplate, 0, templates.get(i), 0, probeTemplate.length,
+                Long.MAX_VALUE);
+        }
+        return algorithm.score(fusion.fuse(distances, distances.length), probeTemplate.length);
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return BiometricAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
 }
@@ -1,5 +1,6 @@
 package br.gov.mma.facial.security;
 
+import br.gov.mma.facial.service.FaceGallery;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.util.Assert;
@@ -14,12 +15,23 @@ public class BiometricAuthenticationToken extends AbstractAuthenticationToken {
 
     private final Object principal;
     private final byte[] probeTemplate;
+    private final FaceGallery.Match galleryMatch;
 
     public BiometricAuthenticationToken(String username, byte[] probeTemplate) {
+        this(username, probeTemplate, null);
+    }
+
+    /**
+     * @param galleryMatch correspondência da identificação 1:N que selecionou o usuário, ou null
+     *                     na verificação 1:1; o provider recalcula o score do template indicado
+     *                     e o confere com o threshold, sem confiar no valor recebido
+     */
+    public BiometricAuthenticationToken(String username, byte[] probeTemplate, FaceGallery.Match galleryMatch) {
         super(null);
         Assert.hasText(username, "Username must not be empty");
         this.principal = username;
         this.probeTemplate = probeTemplate != null ? probeTemplate.clone() : null;
+        this.galleryMatch = galleryMatch;
         setAuthenticated(false);
     }
 
@@ -29,6 +41,7 @@ public class BiometricAuthenticationToken extends AbstractAuthenticationToken {
         super(authorities);
         this.principal = principal;
         this.probeTemplate = probeTemplate != null ? probeTemplate.clone() : null;
+        this.galleryMatch = null;
         super.setAuthenticated(true);
     }
 
@@ -46,6 +59,10 @@ public class BiometricAuthenticationToken extends AbstractAuthenticationToken {
         return probeTemplate != null ? probeTemplate.clone() : null;
     }
 
+    public FaceGallery.Match getGalleryMatch() {
+        return galleryMatch;
+    }
+
     @Override
     public void eraseCredentials() {
         super.eraseCredentials();
@@ -0,0 +1,501 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executor dedicado ao processamento biométrico (decodificação, extração, liveness e busca 1:N).
+ *
+ * O trabalho de CPU sai das threads do Tomcat para um pool do tamanho do número de processadores
+ * com filas limitadas, de modo que rajadas de login facial não esgotem as threads que atendem
+ * endpoints baratos. Como a thread chamadora aguarda o resultado, o total de tarefas na fila é
+ * limitado bem abaixo do pool do Tomcat: com a fila da classe ou a fila total cheia a chamada
+ * falha imediatamente com {@link BiometricOverloadException} (503 + Retry-After), e a tarefa
+ * que não começar dentro do tempo configurado é descartada da mesma forma.
+ *
+ * Cada tarefa pertence a uma {@link Priority}: as threads livres atendem primeiro o login, depois
+ * o cadastro e por último os lotes. Para que as classes inferiores não fiquem paradas em dias de
+ * pico, a tarefa que esperou além do limite de inanição passa à frente das demais.
+ *
+ * Cada thread do pool é dona de uma {@link FaceWorkspace}, criada na primeira tarefa que a usa
+ * e aparada ao fim de cada tarefa; as threads do Tomcat e do WebSocket nunca alocam uma.
+ */
+@Component
+public class BiometricExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BiometricExecutor.class);
+
+    /**
+     * Classes de prioridade, da mais urgente para a menos urgente
+     */
+    public enum Priority {
+        /** Verificação interativa (login facial, reset de senha) */
+        LOGIN,
+        /** Cadastro e consultas administrativas */
+        ENROLLMENT,
+        /** Reprocessamentos em segundo plano */
+        BATCH;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final int threads;
+    private final int queueCapacity;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+    private final long starvationNanos;
+    private final int retryAfterSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<Priority, ArrayDeque<QueuedTask<?>>> queues = new EnumMap<>(Priority.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    private final Map<Priority, ClassMeters> meters = new EnumMap<>(Priority.class);
+
+    public BiometricExecutor(BiometricProperties biometricProperties, MeterRegistry meterRegistry) {
+        BiometricProperties.ExecutorConfig config = biometricProperties.getExecutor();
+        this.threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = config.getQueueCapacity();
+        this.maxQueued = config.getMaxQueued();
+        this.queueTimeoutMs = config.getQueueTimeoutMs();
+        this.starvationNanos = TimeUnit.MILLISECONDS.toNanos(config.getStarvationThresholdMs());
+        this.retryAfterSeconds = config.getRetryAfterSeconds();
+
+        for (Priority priority : Priority.values()) {
+            ArrayDeque<QueuedTask<?>> queue = new ArrayDeque<>();
+            queues.put(priority, queue);
+            meters.put(priority, new ClassMeters(priority, meterRegistry));
+            Gauge.builder("biometric.executor.queue.depth", this, executor -> executor.queueDepth(priority))
+                .description("Tarefas biométricas aguardando na fila")
+                .tag("priority", priority.tag())
+                .register(meterRegistry);
+        }
+        Gauge.builder("biometric.executor.queue.capacity", () -> queueCapacity)
+            .description("Capacidade da fila de cada classe do executor biométrico")
+            .register(meterRegistry);
+        Gauge.builder("biometric.executor.queue.max", () -> maxQueued)
+            .description("Total de tarefas biométricas aguardando, somadas todas as classes")
+            .register(meterRegistry);
+        Gauge.builder("biometric.executor.threads", () -> threads)
+            .description("Threads do executor biométrico")
+            .register(meterRegistry);
+        Gauge.builder("biometric.executor.active", active, AtomicInteger::get)
+            .description("Threads do executor biométrico em execução")
+            .register(meterRegistry);
+
+        for (int i = 1; i <= threads; i++) {
+            Thread worker = new Worker(this::work, "biometric-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        logger.info("Executor biométrico: {} threads, fila de {} tarefas por classe e {} no total",
+            threads, queueCapacity, maxQueued);
+    }
+
+    /**
+     * Executa a tarefa no executor biométrico e aguarda o resultado na thread chamadora.
+     * As exceções da tarefa são repassadas sem encapsulamento.
+     *
+     * @throws BiometricOverloadException se a fila da classe ou a fila total estiver cheia, ou se a
+     *         tarefa não começar a tempo
+     */
+    public <T> T execute(Priority priority, Callable<T> task) throws Exception {
+        ClassMeters classMeters = meters.get(priority);
+        QueuedTask<T> queued = new QueuedTask<>(priority, task, classMeters);
+
+        if (!offer(queued)) {
+            classMeters.rejectedFull.increment();
+            throw new BiometricOverloadException("Fila de processamento biométrico cheia", retryAfterSeconds);
+        }
+
+        try {
+            try {
+                return queued.get(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Ainda na fila: descarta; já em execução: aguarda a conclusão
+                if (remove(queued)) {
+                    classMeters.rejectedTimeout.increment();
+                    throw new BiometricOverloadException("Tempo de espera na fila biométrica excedido", retryAfterSeconds);
+                }
+                return queued.get();
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            remove(queued);
+            queued.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o processamento biométrico", e);
+        }
+    }
+
+    /**
+     * Executa as tarefas em paralelo no executor biométrico e aguarda todas, devolvendo os
+     * resultados na ordem de entrada. O lote é aceito ou recusado por inteiro: se alguma tarefa
+     * não couber na fila ou não começar dentro do tempo configurado, as demais são canceladas.
+     * A primeira exceção de tarefa é repassada sem encapsulamento.
+     *
+     * Não deve ser chamado de dentro de uma tarefa do próprio executor: a thread ocupada
+     * aguardando o lote pode impedir que ele seja atendido.
+     *
+     * @throws BiometricOverloadException se o lote não couber na fila da classe ou não começar a tempo
+     */
+    public <T> List<T> executeAll(Priority priority, List<? extends Callable<T>> tasks) throws Exception {
+        ClassMeters classMeters = meters.get(priority);
+        List<QueuedTask<T>> batch = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            batch.add(new QueuedTask<>(priority, task, classMeters));
+        }
+
+        if (!offerAll(batch)) {
+            classMeters.rejectedFull.increment();
+            throw new BiometricOverloadException("Fila de processamento biométrico cheia", retryAfterSeconds);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        List<T> results = new ArrayList<>(batch.size());
+        try {
+            for (QueuedTask<T> queued : batch) {
+                try {
+                    results.add(queued.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    // Ainda na fila após o prazo: o lote inteiro é descartado
+                    if (remove(queued)) {
+                        classMeters.rejectedTimeout.increment();
+                        cancelAll(batch);
+                        throw new BiometricOverloadException("Tempo de espera na fila biométrica excedido",
+                            retryAfterSeconds);
+                    }
+                    results.add(queued.get());
+                }
+            }
+            return results;
+        } catch (ExecutionException e) {
+            cancelAll(batch);
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            cancelAll(batch);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o processamento biométrico", e);
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return e;
+    }
+
+    private boolean offer(QueuedTask<?> task) {
+        lock.lock();
+        try {
+            ArrayDeque<QueuedTask<?>> queue = queues.get(task.priority);
+            if (shutdown || queue.size() >= queueCapacity || queued() >= maxQueued) {
+                return false;
+            }
+            queue.addLast(task);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> boolean offerAll(List<QueuedTask<T>> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        lock.lock();
+        try {
+            ArrayDeque<QueuedTask<?>> queue = queues.get(batch.get(0).priority);
+            if (shutdown || queue.size() + batch.size() > queueCapacity || queued() + batch.size() > maxQueued) {
+                return false;
+            }
+            queue.addAll(batch);
+            notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> void cancelAll(List<QueuedTask<T>> batch) {
+        lock.lock();
+        try {
+            batch.forEach(task -> queues.get(task.priority).remove(task));
+        } finally {
+            lock.unlock();
+        }
+        batch.forEach(task -> task.cancel(true));
+    }
+
+    private boolean remove(QueuedTask<?> task) {
+        lock.lock();
+        try {
+            return queues.get(task.priority).remove(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        Worker worker = (Worker) Thread.currentThread();
+        try {
+            while (!shutdown) {
+                QueuedTask<?> task;
+                try {
+                    task = take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    worker.trimWorkspace();
+                }
+                // Interrupção de uma tarefa cancelada não deve encerrar a thread
+                Thread.interrupted();
+            }
+        } finally {
+            worker.releaseWorkspace();
+        }
+    }
+
+    /**
+     * Área de trabalho de extração da thread atual do executor
+     *
+     * @throws IllegalStateException se chamado fora de uma tarefa do executor biométrico
+     */
+    static FaceWorkspace workspace() {
+        if (Thread.currentThread() instanceof Worker worker) {
+            return worker.workspace();
+        }
+        throw new IllegalStateException("Processamento biométrico fora do executor dedicado: "
+            + Thread.currentThread().getName());
+    }
+
+    private QueuedTask<?> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            QueuedTask<?> next;
+            while ((next = selectNext(System.nanoTime())) == null) {
+                notEmpty.await();
+            }
+            queues.get(next.priority).pollFirst();
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Escolhe a próxima tarefa: a mais antiga entre as que passaram do limite de inanição ou,
+     * se nenhuma passou, a primeira da classe mais prioritária. Chamado com o lock adquirido.
+     */
+    private QueuedTask<?> selectNext(long now) {
+        QueuedTask<?> highest = null;
+        QueuedTask<?> starving = null;
+        for (ArrayDeque<QueuedTask<?>> queue : queues.values()) {
+            QueuedTask<?> head = queue.peekFirst();
+            if (head == null) {
+                continue;
+            }
+            if (highest == null) {
+                highest = head;
+            }
+            if (now - head.enqueuedNanos >= starvationNanos
+                    && (starving == null || head.enqueuedNanos < starving.enqueuedNanos)) {
+                starving = head;
+            }
+        }
+        if (starving != null && starving != highest) {
+            meters.get(starving.priority).promotions.increment();
+            return starving;
+        }
+        return highest;
+    }
+
+    int queueDepth() {
+        lock.lock();
+        try {
+            return queued();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tarefas aguardando em todas as classes. Chamado com o lock adquirido.
+     */
+    private int queued() {
+        int depth = 0;
+        for (ArrayDeque<QueuedTask<?>> queue : queues.values()) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    int queueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        lock.lock();
+        try {
+            for (ArrayDeque<QueuedTask<?>> queue : queues.values()) {
+                queue.forEach(task -> task.cancel(false));
+                queue.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Thread do pool, dona da área de trabalho usada pelas tarefas que executa
+     */
+    private static final class Worker extends Thread {
+        private FaceWorkspace workspace;
+
+        Worker(Runnable body, String name) {
+            super(body, name);
+        }
+
+        FaceWorkspace workspace() {
+            if (workspace == null) {
+                workspace = new FaceWorkspace(BiometricService.NORMALIZED_FACE_SIZE);
+            }
+            return workspace;
+        }
+
+        void trimWorkspace() {
+            if (workspace != null) {
+                workspace.trim();
+            }
+        }
+
+        void releaseWorkspace() {
+            if (workspace != null) {
+                workspace.release();
+                workspace = null;
+            }
+        }
+    }
+
+    /**
+     * Tarefa enfileirada; registra a espera na fila e a latência total da sua classe
+     */
+    private static final class QueuedTask<T> extends FutureTask<T> {
+        private final Priority priority;
+        private final ClassMeters meters;
+        private final long enqueuedNanos = System.nanoTime();
+
+        QueuedTask(Priority priority, Callable<T> callable, ClassMeters meters) {
+            super(callable);
+            this.priority = priority;
+            this.meters = meters;
+        }
+
+        @Override
+        public void run() {
+            meters.queueWait.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+            super.run();
+        }
+
+        // Latência registrada antes de liberar quem aguarda o resultado
+        @Override
+        protected void set(T result) {
+            recordLatency();
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(Throwable failure) {
+            recordLatency();
+            super.setException(failure);
+        }
+
+        private void recordLatency() {
+            meters.latency.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Métricas de uma classe de prioridade
+     */
+    private static final class ClassMeters {
+        private final Timer queueWait;
+        private final Timer latency;
+        private final Counter rejectedFull;
+        private final Counter rejectedTimeout;
+        private final Counter promotions;
+
+        ClassMeters(Priority priority, MeterRegistry meterRegistry) {
+            this.queueWait = Timer.builder("biometric.executor.queue.wait")
+                .description("Espera das tarefas biométricas na fila do executor")
+                .tag("priority", priority.tag())
+                .register(meterRegistry);
+            this.latency = Timer.builder("biometric.executor.latency")
+                .description("Latência das tarefas biométricas, da entrada na fila ao fim da execução")
+                .tag("priority", priority.tag())
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+            this.rejectedFull = Counter.builder("biometric.executor.rejections")
+                .description("Tarefas biométricas recusadas por saturação")
+                .tags("priority", priority.tag(), "reason", "queue-full")
+                .register(meterRegistry);
+            this.rejectedTimeout = Counter.builder("biometric.executor.rejections")
+                .description("Tarefas biométricas recusadas por saturação")
+                .tags("priority", priority.tag(), "reason", "queue-timeout")
+                .register(meterRegistry);
+            this.promotions = Counter.builder("biometric.executor.promotions")
+                .description("Tarefas atendidas antes de classes mais prioritárias por excederem o limite de inanição")
+                .tag("priority", priority.tag())
+                .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package br.gov.mma.facial.service;
+
+/**
+ * Processamento biométrico recusado por saturação do executor (fila cheia ou espera excedida).
+ * Os controllers respondem 503 com o cabeçalho Retry-After.
+ */
+public class BiometricOverloadException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public BiometricOverloadException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,30 +1,32 @@
 package br.gov.mma.facial.service;
 
 import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.dto.IdentificationCandidate;
 import br.gov.mma.facial.entity.FaceTemplate;
 import br.gov.mma.facial.entity.User;
 import br.gov.mma.facial.repository.FaceTemplateRepository;
+import br.gov.mma.facial.repository.UserRepository;
+import br.gov.mma.facial.service.BiometricExecutor.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.opencv.core.*;
 import org.opencv.face.LBPHFaceRecognizer;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
-import org.opencv.objdetect.CascadeClassifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.concurrent.Callable;
 
 /**
  * Serviço para processamento biométrico facial
@@ -36,15 +38,64 @@ public class BiometricService {
 
     private static final Logger logger = LoggerFactory.getLogger(BiometricService.class);
 
+    /**
+     * Lado, em pixels, da face normalizada que origina o template
+     */
+    static final int NORMALIZED_FACE_SIZE = 128;
+
+    /**
+     * Nitidez da face normalizada (variância do Laplaciano) em que a qualidade de um quadro do
+     * cadastro vale 0,5; a escala só comprime o valor para 0-1, sem alterar a ordem dos quadros
+     */
+    private static final double REFERENCE_FACE_SHARPNESS = 200.0;
+
     private final BiometricProperties biometricProperties;
     private final FaceTemplateRepository faceTemplateRepository;
-    private CascadeClassifier faceCascade;
+    private final UserRepository userRepository;
+    private final FaceGallery faceGallery;
+    private final CompactTemplateEncoder compactTemplateEncoder;
+    private final TemplateAlgorithm templateAlgorithm;
+    private final LbpHistogramExtractor lbpHistogramExtractor;
+    private final FrameDecoder frameDecoder;
+    private final FrameQualityGate qualityGate;
+    private final BiometricExecutor biometricExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Counter roiHits;
+    private final Counter roiMisses;
+    private FaceDetector faceDetector;
     private LBPHFaceRecognizer faceRecognizer;
 
     public BiometricService(BiometricProperties biometricProperties, 
-                           FaceTemplateRepository faceTemplateRepository) {
+                           FaceTemplateRepository faceTemplateRepository,
+                           UserRepository userRepository,
+                           FaceGallery faceGallery,
+                           CompactTemplateEncoder compactTemplateEncoder,
+                           BiometricExecutor biometricExecutor,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
         this.biometricProperties = biometricProperties;
         this.faceTemplateRepository = faceTemplateRepository;
+        this.userRepository = userRepository;
+        this.faceGallery = faceGallery;
+        this.compactTemplateEncoder = compactTemplateEncoder;
+        this.biometricExecutor = biometricExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.templateAlgorithm = faceGallery.getAlgorithm();
+        this.lbpHistogramExtractor = templateAlgorithm == TemplateAlgorithm.LBP_HISTOGRAM
+            ? new LbpHistogramExtractor(biometricProperties.getLbph())
+            : null;
+        this.frameDecoder = new FrameDecoder(biometricProperties.getDecode());
+        this.qualityGate = new FrameQualityGate(biometricProperties.getQuality(), meterRegistry);
+        this.roiHits = Counter.builder("biometric.detection.roi")
+            .description("Detecções resolvidas na janela ao redor da face do quadro anterior")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.roiMisses = Counter.builder("biometric.detection.roi")
+            .description("Detecções resolvidas na janela ao redor da face do quadro anterior")
+            .tag("result", "miss")
+            .register(meterRegistry);
         initializeOpenCV();
     }
 
@@ -53,37 +104,9 @@ public class BiometricService {
      */
     private void initializeOpenCV() {
         try {
-            // Carregar classificador Haar Cascade para detecção facial
-            // Tentar primeiro o arquivo do Docker container
-            String dockerCascadePath = "/app/resources/haarcascade_frontalface_default.xml";
-            this.faceCascade = new CascadeClassifier(dockerCascadePath);
-            
-            // Se não encontrar, tentar carregar do classpath
-            if (faceCascade.empty()) {
-                try {
-                    var cascadeStream = getClass().getClassLoader()
-                        .getResourceAsStream("haarcascade_frontalface_default.xml");
-                    
-                    if (cascadeStream != null) {
-                        // Criar arquivo temporário
-                        java.io.File tempFile = java.io.File.createTempFile("haarcascade_frontalface_default", ".xml");
-                        tempFile.deleteOnExit();
-                        
-                        try (var fos = new java.io.FileOutputStream(tempFile)) {
-                            cascadeStream.transferTo(fos);
-                        }
-                        
-                        this.faceCascade = new CascadeClassifier(tempFile.getAbsolutePath());
-                    }
-                } catch (Exception e) {
-                    logger.warn("Erro ao carregar cascata do classpath: " + e.getMessage());
-                }
-            }
-            
-            if (faceCascade.empty()) {
-                logger.error("Erro ao carregar classificador Haar Cascade de qualquer localização");
-                throw new RuntimeException("Falha na inicialização do classificador facial");
-            }
+            // Carregar o detector facial configurado (haar, lbp ou dnn)
+            this.faceDetector = FaceDetector.create(biometricProperties, meterRegistry);
+            logger.info("Detector facial: {}", faceDetector.name());
 
             // Tentar inicializar reconhecedor LBPH (com fallback)
             try {
@@ -104,78 +127,117 @@ public class BiometricService {
     }
 
     /**
-     * Extrai template biométrico de uma imagem facial em base64
+     * Decodifica o quadro uma única vez para todas as etapas do processamento biométrico
+     *
+     * @param withColor decodifica em BGR (exigido pelo liveness) e deriva o plano cinza;
+     *                  caso contrário decodifica direto em escala de cinza
+     * @return o quadro analisado (fechar após o uso) ou null se a imagem for inválida
+     * @throws IllegalStateException se chamado fora de uma thread do {@link BiometricExecutor}
      */
-    public byte[] extractFaceTemplate(String imageBase64) {
+    public FrameAnalysis analyzeFrame(String imageBase64, boolean withColor) {
+        return analyzeFrame(workspace -> decode(Base64.getDecoder().decode(imageBase64), withColor, workspace),
+            withColor);
+    }
+
+    /**
+     * Como {@link #analyzeFrame(String, boolean)}, para imagens recebidas como corpo binário
+     * (multipart ou image/jpeg) e já lidas na thread da requisição
+     */
+    public FrameAnalysis analyzeFrame(byte[] imageBytes, boolean withColor) {
+        return analyzeFrame(workspace -> decode(imageBytes, withColor, workspace), withColor);
+    }
+
+    private Mat decode(byte[] imageBytes, boolean withColor, FaceWorkspace workspace) {
+        return withColor
+            ? frameDecoder.decodeColor(imageBytes, workspace)
+            : frameDecoder.decodeGray(imageBytes, workspace);
+    }
+
+    private FrameAnalysis analyzeFrame(FrameSource source, boolean withColor) {
+        MatArena arena = MatArena.open();
         try {
-            logger.debug(" Iniciando...tração de template facial");
+            Mat image = arena.track(source.decode(BiometricExecutor.workspace()));
 
-            // Decodificar imagem base64
-            byte[] imageBytes = Base64.getDecoder().decode(imageBase64);
-            
-            // Usar Java ImageIO para decodificar a imagem (não depende de bibliotecas nativas)
-            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-            
-            if (bufferedImage == null) {
+            if (image == null) {
                 logger.warn("Imagem vazia ou corrompida");
+                arena.close();
                 return null;
             }
-            
-            // Converter BufferedImage para Mat
-            Mat image = bufferedImageToMat(bufferedImage);
-            
-            if (image.empty()) {
-                logger.warn("Falha ao converter imagem para Mat");
-                return null;
-            }
-
-            // Converter para escala de cinza
-            Mat grayImage = new Mat();
-            Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
+            return withColor
+                ? new FrameAnalysis(arena, image, null, frameDecoder.getReducedScale())
+                : new FrameAnalysis(arena, null, image, frameDecoder.getReducedScale());
+
+        } catch (IllegalArgumentException | CvException e) {
+            // Base64 malformado ou imagem que o OpenCV rejeita; erros de uso (fora do executor) propagam
+            logger.warn("Imagem facial inválida: {}", e.getMessage());
+            arena.close();
+            return null;
+        } catch (RuntimeException | Error e) {
+            arena.close();
+            throw e;
+        }
+    }
 
-            // Detectar faces
-            MatOfRect faceDetections = new MatOfRect();
-            faceCascade.detectMultiScale(grayImage, faceDetections);
+    /**
+     * Origem dos bytes de um quadro, decodificados com a área de trabalho da thread
+     */
+    @FunctionalInterface
+    private interface FrameSource {
+        Mat decode(FaceWorkspace workspace);
+    }
 
-            Rect[] faces = faceDetections.toArray();
-            
-            if (faces.length == 0) {
-                logger.warn("Nenhuma face detectada na imagem");
-                return null;
-            }
+    /**
+     * Extrai template biométrico de uma imagem facial em base64
+     */
+    public byte[] extractFaceTemplate(String imageBase64) {
+        try (FrameAnalysis frame = analyzeFrame(imageBase64, false)) {
+            return frame != null ? extractFaceTemplate(frame) : null;
+        }
+    }
 
-            if (faces.length > 1) {
-                logger.info("Múltiplas faces detectadas. Usando a maior (mais proeminente).");
-            }
+    /**
+     * Extrai template biométrico de um quadro já decodificado
+     */
+    public byte[] extractFaceTemplate(FrameAnalysis frame) {
+        try {
+            logger.debug(" Iniciando...tração de template facial");
 
-            // Usar a maior face detectada (mais proeminente)
-            Rect faceRect = faces[0];
-            for (Rect face : faces) {
-                if (face.area() > faceRect.area()) {
-                    faceRect = face;
+            FaceWorkspace workspace = BiometricExecutor.workspace();
+            Mat grayImage = frame.gray();
+
+            // Quadros sem chance de extração são descartados antes da varredura do detector
+            if (Boolean.TRUE.equals(biometricProperties.getQuality().getEnabled()) && !frame.isFaceDetected()) {
+                FrameQuality quality = assessQuality(frame);
+                if (!quality.accepted()) {
+                    logger.warn("Quadro rejeitado na triagem de qualidade: {} (brilho={}, contraste={}, nitidez={})",
+                        quality.reason(), Math.round(quality.brightness()), Math.round(quality.contrast()),
+                        Math.round(quality.sharpness()));
+                    return null;
                 }
             }
-            
-            // Validar tamanho mínimo da face
-            if (faceRect.width < biometricProperties.getMinFaceSize() || 
-                faceRect.height < biometricProperties.getMinFaceSize()) {
-                logger.warn("Face muito pequena: {}x{}", faceRect.width, faceRect.height);
+
+            Rect faceRect = detectFace(frame, workspace);
+
+            if (faceRect == null) {
                 return null;
             }
 
-            // Extrair região da face
-            Mat faceROI = new Mat(grayImage, faceRect);
-
-            // Normalizar tamanho
-            Mat normalizedFace = new Mat();
-            Imgproc.resize(faceROI, normalizedFace, new Size(128, 128));
+            // Validar tamanho mínimo da face (na resolução original da imagem)
+            int scale = frame.getReducedScale();
+            if (faceRect.width * scale < biometricProperties.getMinFaceSize() || 
+                faceRect.height * scale < biometricProperties.getMinFaceSize()) {
+                logger.warn("Face muito pequena: {}x{}", faceRect.width * scale, faceRect.height * scale);
+                return null;
+            }
 
-            // Aplicar equalização de histograma
-            Mat equalizedFace = new Mat();
-            Imgproc.equalizeHist(normalizedFace, equalizedFace);
+            // Recortar, normalizar tamanho e equalizar histograma (buffers da área de trabalho)
+            byte[] faceBytes = workspace.normalize(grayImage, faceRect);
 
-            // Converter para template (array de bytes)
-            byte[] template = matToByteArray(equalizedFace);
+            // Converter para template (array de bytes) conforme o algoritmo configurado
+            byte[] template = templateAlgorithm == TemplateAlgorithm.LBP_HISTOGRAM
+                ? lbpHistogramExtractor.extract(faceBytes, NORMALIZED_FACE_SIZE, NORMALIZED_FACE_SIZE,
+                    workspace.histogramCounts(lbpHistogramExtractor.templateLength()))
+                : faceBytes.clone();
 
             logger.debug("Template facial extraído com sucesso. Tamanho: {} bytes", template.length);
             return template;
@@ -187,70 +249,190 @@ public class BiometricService {
     }
 
     /**
-     * Converte BufferedImage para OpenCV Mat
+     * Observa um quadro de uma sessão de liveness por streaming: triagem, detecção e extração
+     * como no login, mais uma cópia da face normalizada pela extração para as medidas de
+     * movimento e piscada
+     *
+     * @param regionHint posição da face no quadro anterior da sessão, ou null
+     * @return a observação (sem face se a extração falhar) ou null se a imagem for inválida
      */
-    private Mat bufferedImageToMat(BufferedImage image) {
-        // Converter para BGR (formato esperado pelo OpenCV)
-        BufferedImage convertedImage = new BufferedImage(
-            image.getWidth(), 
-            image.getHeight(), 
-            BufferedImage.TYPE_3BYTE_BGR
-        );
-        convertedImage.getGraphics().drawImage(image, 0, 0, null);
-        
-        // Extrair bytes da imagem
-        byte[] pixels = ((DataBufferByte) convertedImage.getRaster().getDataBuffer()).getData();
-        
-        // Criar Mat
-        Mat mat = new Mat(convertedImage.getHeight(), convertedImage.getWidth(), CvType.CV_8UC3);
-        mat.put(0, 0, pixels);
-        
-        return mat;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    LivenessSession.Observation observeLivenessFrame(byte[] imageBytes, FaceRegion regionHint) {
+        try (FrameAnalysis frame = analyzeFrame(workspace -> frameDecoder.decodeGray(imageBytes, workspace), false)) {
+            if (frame == null) {
+                return null;
+            }
+            frame.setRegionHint(regionHint);
+            byte[] template = extractFaceTemplate(frame);
+            if (template == null) {
+                return new LivenessSession.Observation(null, null, null, null, 0.0, frame.getQuality());
+            }
+            // A face recém-normalizada ainda está na área de trabalho desta thread
+            FaceWorkspace workspace = BiometricExecutor.workspace();
+            byte[] normalizedFace = workspace.normalizedFace().clone();
+            return new LivenessSession.Observation(frame.getFaceRect(), frame.getFaceRegion(), normalizedFace,
+                template, workspace.normalizedSharpness(), frame.getQuality());
+        }
+    }
+
+    /**
+     * Triagem de qualidade do quadro (brilho, contraste e nitidez em miniatura), feita uma única
+     * vez por quadro; não executa a detecção de faces
+     */
+    public FrameQuality assessQuality(FrameAnalysis frame) {
+        if (frame.getQuality() == null) {
+            frame.setQuality(qualityGate.assess(frame.gray(), BiometricExecutor.workspace()));
+        }
+        return frame.getQuality();
+    }
+
+    /**
+     * Detecta a face mais proeminente do quadro, reaproveitando a detecção já feita.
+     *
+     * O classificador roda sobre uma cópia reduzida à largura de trabalho configurada, com
+     * tamanho mínimo derivado de {@code minFaceSize}, de modo que o custo da detecção não
+     * cresce com a resolução enviada; o retângulo é mapeado de volta para o plano cinza.
+     * Com a dica de posição do quadro anterior, a busca começa numa janela ao redor dela e só
+     * varre a imagem inteira se a face não estiver ali.
+     *
+     * @return retângulo da face no plano cinza ou null se nenhuma face foi encontrada
+     */
+    private Rect detectFace(FrameAnalysis frame, FaceWorkspace workspace) {
+        if (frame.isFaceDetected()) {
+            return frame.getFaceRect();
+        }
+
+        Mat grayImage = frame.gray();
+        Mat detectionImage = grayImage;
+        double scale = 1.0;
+        BiometricProperties.DetectionConfig detection = biometricProperties.getDetection();
+        int workingWidth = detection.getWorkingWidth();
+        if (workingWidth > 0 && grayImage.cols() > workingWidth) {
+            scale = (double) grayImage.cols() / workingWidth;
+            int workingHeight = Math.max(1, (int) Math.round(grayImage.rows() / scale));
+            detectionImage = workspace.downscale(grayImage, new Size(workingWidth, workingHeight));
+        }
+
+        // Faces menores que minFaceSize (na imagem original) seriam rejeitadas; nem são procuradas
+        int minSize = Math.max(1, (int) (biometricProperties.getMinFaceSize() / (frame.getReducedScale() * scale)));
+        int maxSize = Math.min(detectionImage.cols(), detectionImage.rows());
+        if (minSize > maxSize) {
+            logger.warn("Imagem menor que o tamanho mínimo de face: {}x{}", grayImage.cols(), grayImage.rows());
+            frame.setFaceRect(null);
+            return null;
+        }
+
+        Rect faceRect = null;
+        Rect window = frame.getRegionHint() != null && Boolean.TRUE.equals(detection.getRoiHints())
+            ? frame.getRegionHint().searchWindow(detection.getRoiExpansion(), detectionImage.cols(), detectionImage.rows())
+            : null;
+        if (window != null && minSize <= Math.min(window.width, window.height)) {
+            int windowMax = Math.min(window.width, window.height);
+            Rect[] faces = faceDetector.detect(frame.arena().submat(detectionImage, window),
+                new Size(minSize, minSize), new Size(windowMax, windowMax), workspace);
+            faceRect = largestFace(faces);
+            if (faceRect != null) {
+                roiHits.increment();
+                faceRect = new Rect(faceRect.x + window.x, faceRect.y + window.y, faceRect.width, faceRect.height);
+            } else {
+                roiMisses.increment();
+                logger.debug("Face fora da janela da dica de posição; varrendo a imagem inteira");
+            }
+        }
+
+        if (faceRect == null) {
+            Rect[] faces = faceDetector.detect(detectionImage, new Size(minSize, minSize), new Size(maxSize, maxSize),
+                workspace);
+            if (faces.length > 1) {
+                logger.info("Múltiplas faces detectadas. Usando a maior (mais proeminente).");
+            }
+            faceRect = largestFace(faces);
+        }
+
+        if (faceRect == null) {
+            logger.warn("Nenhuma face detectada na imagem");
+            frame.setFaceRect(null);
+            return null;
+        }
+
+        faceRect = scaleRect(faceRect, scale, grayImage.cols(), grayImage.rows());
+        frame.setFaceRect(faceRect);
+        return faceRect;
+    }
+
+    /**
+     * Maior face detectada (mais proeminente), ou null se não houver nenhuma
+     */
+    private static Rect largestFace(Rect[] faces) {
+        Rect largest = null;
+        for (Rect face : faces) {
+            if (largest == null || face.area() > largest.area()) {
+                largest = face;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Mapeia um retângulo da imagem de detecção para o plano cinza, limitado às suas bordas
+     */
+    static Rect scaleRect(Rect rect, double scale, int width, int height) {
+        if (scale == 1.0) {
+            return rect;
+        }
+        int x = Math.min(width - 1, (int) Math.round(rect.x * scale));
+        int y = Math.min(height - 1, (int) Math.round(rect.y * scale));
+        int w = Math.min(width - x, (int) Math.round(rect.width * scale));
+        int h = Math.min(height - y, (int) Math.round(rect.height * scale));
+        return new Rect(x, y, w, h);
     }
 
     /**
      * Verifica liveness (detecção anti-spoofing básica)
      */
     public boolean verifyLiveness(String imageBase64) {
+        try (FrameAnalysis frame = analyzeFrame(imageBase64, true)) {
+            return frame != null && verifyLiveness(frame);
+        }
+    }
+
+    /**
+     * Verifica liveness em um quadro já decodificado com cor.
+     *
+     * As medidas são feitas apenas na região da face detectada na extração: a saturação na
+     * região correspondente da imagem colorida e a textura no plano cinza compartilhado, com
+     * Laplaciano de 16 bits nos buffers da área de trabalho. Um quadro sem face não é vivo.
+     */
+    public boolean verifyLiveness(FrameAnalysis frame) {
         try {
             logger.debug("Verificando liveness da imagem");
 
             // Implementação básica de liveness
             // Em produção, seria necessário algoritmos mais sofisticados
-            
-            byte[] imageBytes = Base64.getDecoder().decode(imageBase64);
-            
-            // Usar Java ImageIO para decodificar
-            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-            
-            if (bufferedImage == null) {
+
+            if (!frame.hasColor()) {
+                logger.warn("Liveness exige o quadro decodificado com cor");
                 return false;
             }
-            
-            // Converter para Mat
-            Mat image = bufferedImageToMat(bufferedImage);
-            
-            if (image.empty()) {
+
+            FaceWorkspace workspace = BiometricExecutor.workspace();
+            Rect faceRect = detectFace(frame, workspace);
+            if (faceRect == null) {
+                logger.warn("Liveness sem face detectada no quadro");
                 return false;
             }
 
-            // Converter para HSV para análise de cor
-            Mat hsvImage = new Mat();
-            Imgproc.cvtColor(image, hsvImage, Imgproc.COLOR_BGR2HSV);
+            // Região da face no plano cinza e, na resolução original, na imagem colorida
+            Mat color = frame.color();
+            Rect colorRect = scaleRect(faceRect, frame.getReducedScale(), color.cols(), color.rows());
+            Mat colorFace = frame.arena().submat(color, colorRect);
+            Mat grayFace = frame.arena().submat(frame.gray(), faceRect);
 
             // Calcular variação de cor (indicativo de face real)
-            Scalar mean = Core.mean(hsvImage);
-            double colorVariation = mean.val[1]; // Saturation
+            double colorVariation = workspace.meanSaturation(colorFace);
 
-            // Análise de textura básica
-            Mat grayImage = new Mat();
-            Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
-
-            Mat laplacian = new Mat();
-            Imgproc.Laplacian(grayImage, laplacian, CvType.CV_64F);
-            
-            Scalar laplacianMean = Core.mean(laplacian);
-            double textureVariation = laplacianMean.val[0];
+            // Análise de textura básica sobre o plano cinza compartilhado com a extração
+            double textureVariation = workspace.meanLaplacian(grayFace);
 
             // Critérios básicos para liveness (muito relaxados para aceitar webcams)
             boolean hasColorVariation = colorVariation > 3;  // Muito relaxado para aceitar mais condições
@@ -271,161 +453,212 @@ public class BiometricService {
 
     /**
      * Identifica usuário pelo template biométrico
+     * A busca é feita na galeria residente; o banco só é consultado para carregar o usuário vencedor
      */
     public User identifyUser(byte[] probeTemplate) {
+        Identification identification = identify(probeTemplate);
+        return identification != null ? identification.user() : null;
+    }
+
+    /**
+     * Como {@link #identifyUser(byte[])}, devolvendo também a correspondência da galeria
+     * (template mais próximo e score), que o provider de autenticação confere contra o banco
+     *
+     * @return a identificação ou null se nenhum usuário estiver dentro do threshold
+     */
+    public Identification identify(byte[] probeTemplate) {
         try {
             logger.debug(" Iniciando...entificação biométrica");
 
-            // Buscar todos os templates ativos
-            List<FaceTemplate> templates = faceTemplateRepository.findAllPrimaryTemplates();
-            
-            if (templates.isEmpty()) {
+            if (faceGallery.size() == 0) {
                 logger.warn("Nenhum template cadastrado para comparação");
                 return null;
             }
 
-            double bestScore = Double.MAX_VALUE;
-            User bestMatch = null;
+            // Busca limitada ao threshold: comparações acima dele são abandonadas cedo
+            FaceGallery.Match match = faceGallery.findBest(probeTemplate, getActiveThreshold());
 
-            // Comparar com cada template
-            for (FaceTemplate template : templates) {
-                double score = compareTemplates(probeTemplate, template.getTemplateBytes());
-                
-                if (score < bestScore) {
-                    bestScore = score;
-                    bestMatch = template.getUser();
-                }
+            if (match == null) {
+                logger.warn("Nenhuma correspondência encontrada dentro do threshold {}", 
+                    getActiveThreshold());
+                return null;
             }
 
-            // Verificar se a melhor pontuação está dentro do threshold
-            if (bestScore <= biometricProperties.getThreshold()) {
-                logger.info("Usuário identificado: {} com score: {}", 
-                    bestMatch.getEmail(), bestScore);
-                return bestMatch;
-            } else {
-                logger.warn("Nenhuma correspondência encontrada. Melhor score: {}", bestScore);
+            User bestMatch = userRepository.findById(match.userId()).orElse(null);
+            if (bestMatch == null) {
+                logger.warn("Usuário {} da galeria não encontrado no banco", match.userId());
+                faceGallery.removeUser(match.userId());
                 return null;
             }
 
+            logger.info("Usuário identificado: {} com score: {}", 
+                bestMatch.getEmail(), match.score());
+            return new Identification(bestMatch, match);
+
         } catch (Exception e) {
             logger.error("Erro na identificação biométrica", e);
             return null;
         }
     }
 
+    /**
+     * Retorna os {@code k} candidatos mais próximos do probe, ordenados por score
+     * Usado na revisão de correspondências ambíguas e na verificação de duplicidade
+     */
+    public List<IdentificationCandidate> identifyTopK(byte[] probeTemplate, int k) {
+        double threshold = getActiveThreshold();
+        List<FaceGallery.Match> matches = faceGallery.findTopK(probeTemplate, k, Double.MAX_VALUE);
+
+        List<IdentificationCandidate> candidates = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            FaceGallery.Match match = matches.get(i);
+            candidates.add(new IdentificationCandidate(i + 1, match.userId(), match.score(),
+                match.score() <= threshold));
+        }
+
+        logger.info("Identificação top-{} retornou {} candidatos", k, candidates.size());
+        return candidates;
+    }
+
+    /**
+     * Threshold aplicável ao algoritmo de template ativo
+     */
+    public double getActiveThreshold() {
+        return templateAlgorithm.threshold(biometricProperties);
+    }
+
+    /**
+     * Indica se dois templates do algoritmo ativo são da mesma face, pelo threshold de verificação
+     */
+    public boolean sameFace(byte[] first, byte[] second) {
+        return first.length == second.length && templateAlgorithm.score(first, second) <= getActiveThreshold();
+    }
+
     /**
      * Cadastra biometria facial para um usuário
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean enrollUserFace(User user, List<String> faceImagesBase64, boolean replaceExisting) {
+        return enrollUserFrames(user, faceImagesBase64, image -> analyzeFrame(image, false), replaceExisting);
+    }
+
+    /**
+     * Cadastra a biometria facial a partir de imagens recebidas como corpo binário
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean enrollUserFaceImages(User user, List<byte[]> faceImages, boolean replaceExisting) {
+        return enrollUserFrames(user, faceImages, image -> analyzeFrame(image, false), replaceExisting);
+    }
+
+    /**
+     * Abre um quadro do cadastro a partir da imagem recebida
+     */
+    @FunctionalInterface
+    private interface EnrollmentFrame<T> {
+        FrameAnalysis open(T image) throws IOException;
+    }
+
+    /**
+     * Template extraído de um quadro do cadastro, com a qualidade da face (0-1) usada para
+     * escolher os melhores quadros
+     */
+    private record EnrollmentTemplate(byte[] template, double quality) {
+    }
+
+    /**
+     * Cadastro em duas fases: os quadros são extraídos em paralelo no executor biométrico, sem
+     * transação aberta, e os melhores por qualidade são gravados depois em uma única transação
+     * curta, com um único lote de inserção e uma única notificação à galeria.
+     *
+     * @throws BiometricOverloadException se o executor biométrico não aceitar os quadros
+     */
+    private <T> boolean enrollUserFrames(User user, List<T> faceImages, EnrollmentFrame<T> frames,
+                                         boolean replaceExisting) {
         try {
             logger.info(" Iniciando...dastro biométrico para usuário: {}", user.getEmail());
 
-            // Se substituir existente, remover templates antigos
-            if (replaceExisting) {
-                List<FaceTemplate> existingTemplates = faceTemplateRepository.findByUser(user);
-                faceTemplateRepository.deleteAll(existingTemplates);
-                logger.info("Templates existentes removidos para usuário: {}", user.getEmail());
+            // Uma tarefa por quadro; cada thread do executor usa a sua área de trabalho
+            List<Callable<EnrollmentTemplate>> extractions = new ArrayList<>(faceImages.size());
+            for (int i = 0; i < faceImages.size(); i++) {
+                int index = i;
+                T image = faceImages.get(i);
+                extractions.add(() -> extractEnrollmentTemplate(frames, image, index));
             }
+            List<EnrollmentTemplate> extracted = biometricExecutor.executeAll(Priority.ENROLLMENT, extractions);
 
-            // Processar cada imagem
-            boolean hasValidTemplate = false;
-            
-            for (int i = 0; i < faceImagesBase64.size(); i++) {
-                String imageBase64 = faceImagesBase64.get(i);
-                byte[] template = extractFaceTemplate(imageBase64);
-                
-                if (template != null) {
-                    // Criar novo template
-                    FaceTemplate faceTemplate = new FaceTemplate();
-                    faceTemplate.setUser(user);
-                    faceTemplate.setTemplateBytes(template);
-                    faceTemplate.setAlgorithmVersion("LBPH-1.0");
-                    faceTemplate.setIsPrimary(i == 0); // Primeira imagem válida é primária
-                    faceTemplate.setQualityScore(calculateQualityScore(template));
-                    faceTemplate.setCreatedAt(LocalDateTime.now());
-                    
-                    faceTemplateRepository.save(faceTemplate);
-                    hasValidTemplate = true;
-                    
-                    logger.debug("Template {} salvo para usuário: {}", i + 1, user.getEmail());
-                }
-            }
+            // Melhores quadros primeiro; o de maior qualidade é o primário
+            List<EnrollmentTemplate> selected = extracted.stream()
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(EnrollmentTemplate::quality).reversed())
+                .limit(biometricProperties.getEnrollmentFramesRequired())
+                .toList();
 
-            if (hasValidTemplate) {
-                logger.info("Cadastro biométrico concluído para usuário: {}", user.getEmail());
-                return true;
-            } else {
+            if (selected.isEmpty()) {
                 logger.warn("Nenhum template válido gerado para usuário: {}", user.getEmail());
                 return false;
             }
 
+            List<FaceTemplate> savedTemplates = transactionTemplate.execute(status ->
+                persistEnrollment(user, selected, replaceExisting));
+
+            logger.info("Cadastro biométrico concluído para usuário: {} ({} de {} quadros aproveitados)",
+                user.getEmail(), savedTemplates.size(), faceImages.size());
+            return true;
+
+        } catch (BiometricOverloadException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Erro no cadastro biométrico para usuário: {}", user.getEmail(), e);
             return false;
         }
     }
 
-    /**
-     * Compara dois templates biométricos
-     */
-    private double compareTemplates(byte[] template1, byte[] template2) {
-        try {
-            // Implementação básica de comparação
-            // Em produção, usaria algoritmos mais sofisticados
-            
-            if (template1.length != template2.length) {
-                return Double.MAX_VALUE;
-            }
-
-            double distance = 0.0;
-            for (int i = 0; i < template1.length; i++) {
-                double diff = (template1[i] & 0xFF) - (template2[i] & 0xFF);
-                distance += diff * diff;
+    private <T> EnrollmentTemplate extractEnrollmentTemplate(EnrollmentFrame<T> frames, T image, int index) {
+        try (FrameAnalysis frame = frames.open(image)) {
+            byte[] template = frame != null ? extractFaceTemplate(frame) : null;
+            if (template == null) {
+                return null;
             }
-
-            return Math.sqrt(distance / template1.length);
-
-        } catch (Exception e) {
-            logger.error("Erro na comparação de templates", e);
-            return Double.MAX_VALUE;
+            // A face recém-normalizada ainda está na área de trabalho desta thread
+            double sharpness = BiometricExecutor.workspace().normalizedSharpness();
+            return new EnrollmentTemplate(template, sharpness / (sharpness + REFERENCE_FACE_SHARPNESS));
+        } catch (IOException e) {
+            logger.warn("Falha na leitura da imagem {} do cadastro: {}", index + 1, e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Calcula score de qualidade do template
+     * Substitui (se pedido) e grava os templates selecionados; executado dentro da transação
      */
-    private Double calculateQualityScore(byte[] template) {
-        try {
-            // Análise básica de qualidade baseada na variância dos dados
-            double sum = 0.0;
-            double sumSquares = 0.0;
-            
-            for (byte b : template) {
-                int value = b & 0xFF;
-                sum += value;
-                sumSquares += value * value;
-            }
-            
-            double mean = sum / template.length;
-            double variance = (sumSquares / template.length) - (mean * mean);
-            
-            // Normalizar para escala 0-1
-            return Math.min(1.0, variance / 255.0);
-            
-        } catch (Exception e) {
-            logger.error("Erro no cálculo de qualidade", e);
-            return 0.5; // Score médio em caso de erro
+    private List<FaceTemplate> persistEnrollment(User user, List<EnrollmentTemplate> selected,
+                                                 boolean replaceExisting) {
+        // Se substituir existente, remover templates antigos
+        if (replaceExisting) {
+            List<FaceTemplate> existingTemplates = faceTemplateRepository.findByUser(user);
+            faceTemplateRepository.deleteAll(existingTemplates);
+            faceGallery.removeUserAfterCommit(user.getId());
+            logger.info("Templates existentes removidos para usuário: {}", user.getEmail());
         }
-    }
 
-    /**
-     * Converte Mat do OpenCV para array de bytes
-     */
-    private byte[] matToByteArray(Mat mat) {
-        int totalBytes = (int) (mat.total() * mat.elemSize());
-        byte[] buffer = new byte[totalBytes];
-        mat.get(0, 0, buffer);
-        return buffer;
+        LocalDateTime now = LocalDateTime.now();
+        List<FaceTemplate> templates = new ArrayList<>(selected.size());
+        for (int i = 0; i < selected.size(); i++) {
+            EnrollmentTemplate enrollment = selected.get(i);
+            FaceTemplate faceTemplate = new FaceTemplate();
+            faceTemplate.setUser(user);
+            faceTemplate.setTemplateBytes(enrollment.template());
+            faceTemplate.setCompactTemplate(compactTemplateEncoder.encode(enrollment.template()));
+            faceTemplate.setAlgorithmVersion(templateAlgorithm.getVersion());
+            faceTemplate.setIsPrimary(i == 0);
+            faceTemplate.setQualityScore(enrollment.quality());
+            faceTemplate.setCreatedAt(now);
+            templates.add(faceTemplate);
+        }
+
+        List<FaceTemplate> savedTemplates = faceTemplateRepository.saveAll(templates);
+        faceGallery.addAfterCommit(savedTemplates);
+        return savedTemplates;
     }
 
     /**
@@ -438,6 +671,11 @@ public class BiometricService {
         return new BiometricStats(totalTemplates, activeTemplates);
     }
 
+    /**
+     * Usuário identificado pela busca 1:N e a correspondência da galeria que o selecionou
+     */
+    public record Identification(User user, FaceGallery.Match match) {}
+
     /**
      * Classe para estatísticas biométricas
      */
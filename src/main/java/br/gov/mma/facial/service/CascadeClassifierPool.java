@@ -0,0 +1,164 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.opencv.objdetect.CascadeClassifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool limitado de {@link CascadeClassifier}s para a detecção de faces.
+ *
+ * Uma instância do classificador não pode ser usada por várias threads ao mesmo tempo; com
+ * um único classificador compartilhado as requisições concorrentes disputavam o mesmo objeto
+ * nativo. Cada thread empresta uma instância exclusiva ({@link #borrow()}) e a devolve ao
+ * fechar o {@link Lease}; se todas estiverem ocupadas, aguarda até o tempo configurado.
+ *
+ * O arquivo da cascata é resolvido uma única vez: caminho configurado, diretório do container
+ * ou cópia em cache do recurso do classpath, reaproveitada entre reinicializações.
+ */
+final class CascadeClassifierPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(CascadeClassifierPool.class);
+
+    private static final String DOCKER_RESOURCES = "/app/resources";
+    private static final String CACHE_DIRECTORY = "facial-biometric";
+
+    private final BlockingQueue<CascadeClassifier> available;
+    private final int size;
+    private final long borrowTimeoutMs;
+    private final Timer waitTimer;
+    private final Counter timeouts;
+
+    CascadeClassifierPool(String cascadePath, BiometricProperties.DetectionConfig config, MeterRegistry meterRegistry) {
+        this.size = config.getPoolSize() > 0 ? config.getPoolSize() : Runtime.getRuntime().availableProcessors();
+        this.borrowTimeoutMs = config.getBorrowTimeoutMs();
+        this.available = new ArrayBlockingQueue<>(size);
+
+        Path cascadeFile = resolveCascadeFile(cascadePath);
+        for (int i = 0; i < size; i++) {
+            CascadeClassifier classifier = new CascadeClassifier(cascadeFile.toString());
+            if (classifier.empty()) {
+                throw new IllegalStateException("Falha ao carregar o classificador facial de " + cascadeFile);
+            }
+            available.add(classifier);
+        }
+
+        this.waitTimer = Timer.builder("biometric.detection.pool.wait")
+            .description("Espera por um classificador livre no pool de detecção")
+            .register(meterRegistry);
+        this.timeouts = Counter.builder("biometric.detection.pool.timeouts")
+            .description("Empréstimos de classificador que excederam o tempo de espera")
+            .register(meterRegistry);
+        Gauge.builder("biometric.detection.pool.available", available, BlockingQueue::size)
+            .description("Classificadores livres no pool de detecção")
+            .register(meterRegistry);
+        Gauge.builder("biometric.detection.pool.size", () -> size)
+            .description("Classificadores no pool de detecção")
+            .register(meterRegistry);
+
+        logger.info("Pool de detecção facial: {} classificadores carregados de {}", size, cascadeFile);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int available() {
+        return available.size();
+    }
+
+    /**
+     * Empresta um classificador exclusivo; devolvê-lo fechando o {@link Lease}
+     *
+     * @throws IllegalStateException se nenhum classificador ficar livre dentro do tempo configurado
+     */
+    Lease borrow() {
+        long start = System.nanoTime();
+        CascadeClassifier classifier;
+        try {
+            classifier = available.poll(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando classificador facial", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (classifier == null) {
+            timeouts.increment();
+            throw new IllegalStateException("Nenhum classificador facial livre após " + borrowTimeoutMs + " ms");
+        }
+        return new Lease(classifier);
+    }
+
+    /**
+     * Empréstimo de um classificador, devolvido ao pool em {@link #close()}
+     */
+    final class Lease implements AutoCloseable {
+        private CascadeClassifier classifier;
+
+        private Lease(CascadeClassifier classifier) {
+            this.classifier = classifier;
+        }
+
+        CascadeClassifier classifier() {
+            if (classifier == null) {
+                throw new IllegalStateException("Classificador já devolvido ao pool");
+            }
+            return classifier;
+        }
+
+        @Override
+        public void close() {
+            if (classifier != null) {
+                available.add(classifier);
+                classifier = null;
+            }
+        }
+    }
+
+    /**
+     * Localiza o arquivo da cascata, copiando o recurso do classpath para o cache apenas quando necessário
+     */
+    static Path resolveCascadeFile(String configured) {
+        Path configuredPath = Path.of(configured);
+        if (Files.isRegularFile(configuredPath)) {
+            return configuredPath;
+        }
+        String fileName = configuredPath.getFileName().toString();
+        Path dockerPath = Path.of(DOCKER_RESOURCES, fileName);
+        if (Files.isRegularFile(dockerPath)) {
+            return dockerPath;
+        }
+
+        try (InputStream resource = CascadeClassifierPool.class.getClassLoader().getResourceAsStream(fileName)) {
+            if (resource == null) {
+                throw new IllegalStateException("Classificador facial não encontrado: " + configured);
+            }
+            byte[] content = resource.readAllBytes();
+            Path cached = Path.of(System.getProperty("java.io.tmpdir"), CACHE_DIRECTORY, fileName);
+            if (!Files.isRegularFile(cached) || Files.size(cached) != content.length) {
+                Files.createDirectories(cached.getParent());
+                Path temporary = Files.createTempFile(cached.getParent(), fileName, ".tmp");
+                Files.write(temporary, content);
+                Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.info("Classificador facial copiado para o cache: {}", cached);
+            }
+            return cached;
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao preparar o arquivo do classificador facial", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codificador da representação compacta dos templates faciais.
+ *
+ * Centraliza o template na sua própria média e o projeta em {@code dimensions} eixos de uma
+ * matriz aleatória densa de sinais ±1 (Johnson-Lindenstrauss), gerada a partir de uma semente
+ * fixa para que códigos gravados no banco continuem comparáveis entre reinicializações.
+ * Cada coordenada é quantizada em um byte sem sinal, de modo que a distância entre códigos
+ * usa o mesmo kernel quadrático dos templates completos.
+ *
+ * Faces equalizadas e histogramas LBP normalizados têm média praticamente constante, por isso
+ * a centralização quase não altera a distância e evita desperdiçar a faixa de quantização.
+ */
+@Component
+public class CompactTemplateEncoder {
+
+    private static final long PROJECTION_SEED = 0x4D4D_4641_4345L;
+
+    /**
+     * Passo de quantização, na escala de um byte do template original
+     */
+    private static final double QUANTIZATION_STEP = 2.0;
+
+    private final int dimensions;
+    private final Map<Integer, Projection> projections = new ConcurrentHashMap<>();
+
+    public CompactTemplateEncoder(BiometricProperties biometricProperties) {
+        this.dimensions = biometricProperties.getCompact().getDimensions();
+    }
+
+    /**
+     * Tamanho em bytes dos códigos gerados
+     */
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Gera o código compacto de um template completo
+     */
+    public byte[] encode(byte[] template) {
+        if (template == null || template.length == 0) {
+            throw new IllegalArgumentException("Template vazio não pode ser codificado");
+        }
+        Projection projection = projections.computeIfAbsent(template.length, Projection::new);
+
+        long total = 0;
+        for (byte value : template) {
+            total += value & 0xFF;
+        }
+        double mean = (double) total / template.length;
+        double scale = 1.0 / (Math.sqrt(template.length) * QUANTIZATION_STEP);
+
+        byte[] code = new byte[dimensions];
+        for (int j = 0; j < dimensions; j++) {
+            // Σ s·(v - m) = (2·Σ_{s=+1} v - Σ v) - m·(2·#{s=+1} - D)
+            long positive = projection.positiveSum(j, template);
+            double projected = (2 * positive - total) - mean * (2 * projection.positiveCounts[j] - template.length);
+            long quantized = Math.round(projected * scale) + 128;
+            code[j] = (byte) Math.max(0, Math.min(255, quantized));
+        }
+        return code;
+    }
+
+    /**
+     * Matriz de sinais para um tamanho de template, um bit por elemento (1 = +1)
+     */
+    private final class Projection {
+        private final int words;
+        private final long[] signs;
+        private final int[] positiveCounts;
+
+        Projection(int inputLength) {
+            this.words = (inputLength + 63) >>> 6;
+            this.signs = new long[dimensions * words];
+            this.positiveCounts = new int[dimensions];
+
+            SplittableRandom random = new SplittableRandom(PROJECTION_SEED ^ inputLength);
+            long tailMask = (inputLength & 63) == 0 ? -1L : (1L << (inputLength & 63)) - 1;
+            for (int j = 0; j < dimensions; j++) {
+                for (int w = 0; w < words; w++) {
+                    long bits = random.nextLong();
+                    if (w == words - 1) {
+                        bits &= tailMask;
+                    }
+                    signs[j * words + w] = bits;
+                    positiveCounts[j] += Long.bitCount(bits);
+                }
+            }
+        }
+
+        long positiveSum(int row, byte[] template) {
+            long sum = 0;
+            int base = row * words;
+            for (int w = 0; w < words; w++) {
+                long bits = signs[base + w];
+                int offset = w << 6;
+                while (bits != 0) {
+                    sum += template[offset + Long.numberOfTrailingZeros(bits)] & 0xFF;
+                    bits &= bits - 1;
+                }
+            }
+            return sum;
+        }
+    }
+}
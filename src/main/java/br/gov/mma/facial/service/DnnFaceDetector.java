@@ -0,0 +1,125 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detecção por rede neural (módulo DNN do OpenCV) com saída no formato SSD {@code [1, 1, N, 7]},
+ * como o detector ResNet-10 300x300 distribuído com o OpenCV.
+ *
+ * Os modelos são lidos de arquivos locais (caminho configurado ou diretório do container) e não
+ * acompanham o jar. Uma {@link Net} não pode ser usada por várias threads ao mesmo tempo, então
+ * cada thread do executor biométrico carrega a sua na primeira detecção.
+ */
+final class DnnFaceDetector implements FaceDetector {
+
+    static final String NAME = "dnn";
+
+    private static final Logger logger = LoggerFactory.getLogger(DnnFaceDetector.class);
+
+    private static final String DOCKER_RESOURCES = "/app/resources";
+    private static final Scalar MEAN_BGR = new Scalar(104.0, 177.0, 123.0);
+    private static final int DETECTION_FIELDS = 7;
+
+    private final Path modelFile;
+    private final Path configFile;
+    private final Size inputSize;
+    private final double confidence;
+    private final ThreadLocal<Net> nets;
+
+    DnnFaceDetector(BiometricProperties.DetectionConfig config) {
+        this.modelFile = resolveModelFile(config.getDnnModelPath());
+        this.configFile = config.getDnnConfigPath() == null || config.getDnnConfigPath().isBlank()
+            ? null
+            : resolveModelFile(config.getDnnConfigPath());
+        this.inputSize = new Size(config.getDnnInputSize(), config.getDnnInputSize());
+        this.confidence = config.getDnnConfidence();
+        this.nets = ThreadLocal.withInitial(this::loadNet);
+
+        // Falha na inicialização, e não na primeira requisição, se o modelo for inválido
+        loadNet();
+        logger.info("Detector facial DNN carregado de {}", modelFile);
+    }
+
+    @Override
+    public Rect[] detect(Mat grayImage, Size minSize, Size maxSize, FaceWorkspace workspace) {
+        int width = grayImage.cols();
+        int height = grayImage.rows();
+        float[] detections;
+        try (MatArena arena = MatArena.open()) {
+            Mat bgr = arena.mat();
+            Imgproc.cvtColor(grayImage, bgr, Imgproc.COLOR_GRAY2BGR);
+            Mat blob = arena.track(Dnn.blobFromImage(bgr, 1.0, inputSize, MEAN_BGR, false, false));
+            Net net = nets.get();
+            net.setInput(blob);
+            Mat output = arena.track(net.forward());
+            detections = new float[(int) output.total()];
+            output.get(new int[output.dims()], detections);
+        }
+
+        // Cada detecção: [imagem, classe, confiança, x1, y1, x2, y2], coordenadas normalizadas
+        List<Rect> faces = new ArrayList<>();
+        for (int offset = 0; offset + DETECTION_FIELDS <= detections.length; offset += DETECTION_FIELDS) {
+            if (detections[offset + 2] < confidence) {
+                continue;
+            }
+            int x1 = clamp(Math.round(detections[offset + 3] * width), width);
+            int y1 = clamp(Math.round(detections[offset + 4] * height), height);
+            int x2 = clamp(Math.round(detections[offset + 5] * width), width);
+            int y2 = clamp(Math.round(detections[offset + 6] * height), height);
+            int side = Math.min(x2 - x1, y2 - y1);
+            if (side < minSize.width || side > maxSize.width) {
+                continue;
+            }
+            faces.add(new Rect(x1, y1, x2 - x1, y2 - y1));
+        }
+        return faces.toArray(new Rect[0]);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    private Net loadNet() {
+        Net net = configFile != null
+            ? Dnn.readNet(modelFile.toString(), configFile.toString())
+            : Dnn.readNet(modelFile.toString());
+        if (net.empty()) {
+            throw new IllegalStateException("Falha ao carregar o modelo DNN de detecção facial de " + modelFile);
+        }
+        return net;
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(value, limit));
+    }
+
+    /**
+     * Localiza o arquivo do modelo: caminho configurado ou diretório de recursos do container
+     */
+    private static Path resolveModelFile(String configured) {
+        Path configuredPath = Path.of(configured);
+        if (Files.isRegularFile(configuredPath)) {
+            return configuredPath;
+        }
+        Path dockerPath = Path.of(DOCKER_RESOURCES, configuredPath.getFileName().toString());
+        if (Files.isRegularFile(dockerPath)) {
+            return dockerPath;
+        }
+        throw new IllegalStateException("Modelo DNN de detecção facial não encontrado: " + configured);
+    }
+}
@@ -0,0 +1,49 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+
+/**
+ * Estratégia de detecção de faces usada na extração de templates.
+ *
+ * As implementações recebem a imagem em escala de cinza já reduzida à largura de trabalho e
+ * devolvem os retângulos nas coordenadas dessa imagem; o mapeamento para o plano cinza e a
+ * escolha da face mais proeminente ficam com o {@link BiometricService}. Devem aceitar chamadas
+ * concorrentes de várias threads.
+ */
+interface FaceDetector {
+
+    /**
+     * Detecta as faces com lado entre {@code minSize} e {@code maxSize}
+     *
+     * @return retângulos encontrados (vazio se nenhuma face)
+     */
+    Rect[] detect(Mat grayImage, Size minSize, Size maxSize, FaceWorkspace workspace);
+
+    /**
+     * Nome da implementação, como configurado em {@code detection.detector}
+     */
+    String name();
+
+    /**
+     * Cria o detector configurado: haar (cascata Haar de {@code cascadeClassifierPath}),
+     * lbp (cascata LBP) ou dnn (rede de detecção do módulo DNN do OpenCV)
+     *
+     * @throws IllegalArgumentException se o nome não for reconhecido
+     */
+    static FaceDetector create(BiometricProperties properties, MeterRegistry meterRegistry) {
+        BiometricProperties.DetectionConfig config = properties.getDetection();
+        String detector = config.getDetector().trim().toLowerCase();
+        return switch (detector) {
+            case CascadeFaceDetector.HAAR -> new CascadeFaceDetector(CascadeFaceDetector.HAAR,
+                new CascadeClassifierPool(properties.getCascadeClassifierPath(), config, meterRegistry), config);
+            case CascadeFaceDetector.LBP -> new CascadeFaceDetector(CascadeFaceDetector.LBP,
+                new CascadeClassifierPool(config.getLbpCascadePath(), config, meterRegistry), config);
+            case DnnFaceDetector.NAME -> new DnnFaceDetector(config);
+            default -> throw new IllegalArgumentException("Detector facial desconhecido: " + config.getDetector());
+        };
+    }
+}
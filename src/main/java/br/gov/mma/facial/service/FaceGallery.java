@@ -0,0 +1,1012 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.entity.FaceTemplate;
+import br.gov.mma.facial.repository.FaceTemplateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Galeria residente de templates faciais usada na identificação 1:N.
+ *
+ * Cada usuário ocupa uma entrada com até templatesPerUser templates ativos empacotados em
+ * um bloco contíguo de um único array, com os ids de usuário e de template em arrays
+ * primitivos paralelos. A distância de um usuário é a fusão (min ou mean) das distâncias
+ * do seu bloco, calculada em uma única passada. A galeria é carregada uma vez na
+ * inicialização e atualizada incrementalmente após o commit de cadastros e remoções,
+ * de modo que a identificação não precisa recarregar entidades e LOBs do banco.
+ * Apenas templates do algoritmo configurado (templateAlgorithm) são mantidos.
+ *
+ * Galerias grandes são varridas em fatias num ForkJoinPool próprio; todas as fatias
+ * compartilham o melhor resultado até o momento, usado como limite para abandonar
+ * cada comparação assim que a soma parcial o ultrapassa.
+ *
+ * Com a representação compacta habilitada (compact.enabled) a varredura percorre os códigos
+ * projetados e quantizados de {@link CompactTemplateEncoder} e seleciona os rerankCandidates
+ * usuários mais próximos; os templates completos ficam residentes em blocos paralelos e
+ * apenas os desses candidatos são comparados com o algoritmo configurado, sem ida ao banco.
+ *
+ * Com o índice HNSW habilitado (search.hnsw.enabled) os candidatos vêm do grafo em vez da
+ * varredura linear: efSearch nós são visitados na camada 0 e as distâncias devolvidas são as
+ * exatas da métrica residente, então o threshold continua aplicado à distância real. Remoções
+ * passam a ser soft deletes e o grafo é reconstruído quando a fração removida excede
+ * maxDeletedRatio. O grafo liga os usuários pelo primeiro template de cada bloco, mas as
+ * buscas usam a distância fundida; quando esse template é descartado o nó antigo é removido
+ * logicamente e o bloco reinserido como um nó novo, para o grafo não navegar por um vetor obsoleto.
+ *
+ * Com o snapshot habilitado (snapshot.enabled) a galeria é restaurada na inicialização a
+ * partir de um arquivo binário ({@link GallerySnapshotFile}) e reconciliada com o
+ * banco: apenas as chaves dos templates ativos são consultadas, e somente os usuários cujos
+ * templates mudaram desde o snapshot (novos ids acima do watermark, removidos ou expirados)
+ * têm os bytes lidos do banco. O arquivo é regravado em segundo plano após alterações, a
+ * partir de uma cópia dos arrays feita sob o lock; a escrita em disco não bloqueia a galeria.
+ */
+@Component
+public class FaceGallery {
+
+    private static final Logger logger = LoggerFactory.getLogger(FaceGallery.class);
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+
+    private final FaceTemplateRepository faceTemplateRepository;
+    private final CompactTemplateEncoder compactEncoder;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TemplateAlgorithm algorithm;
+    private final TemplateAlgorithm residentMetric;
+    private final ScoreFusion fusion;
+    private final int templatesPerUser;
+    private final boolean compact;
+    private final int rerankCandidates;
+    private final BiometricProperties.HnswConfig hnswConfig;
+    private final HnswIndex.Metric nodeMetric;
+    private final int parallelism;
+    private final int minShardSize;
+    private final ForkJoinPool searchPool;
+    private final BiometricProperties.SnapshotConfig snapshotConfig;
+    private final Path snapshotPath;
+    private final ScheduledExecutorService snapshotWriter;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+
+    /**
+     * Blocos residentes (templates completos ou, no modo compacto, seus códigos), um por entrada
+     */
+    private byte[] vectors = new byte[0];
+    private long[] userIds = new long[0];
+    private int[] templateCounts = new int[0];
+    private long[] templateIds = new long[0];
+    /**
+     * Templates completos de cada entrada, mantidos apenas no modo compacto para o re-ranqueamento
+     */
+    private byte[] templates = new byte[0];
+    private final Map<Long, Integer> entryByUser = new HashMap<>();
+    private int size;
+    private int residentTemplates;
+    private int dimension = -1;
+    private int stride;
+    private int templateLength = -1;
+    private int templateStride;
+    private HnswIndex index;
+    private long watermark = -1L;
+
+    public FaceGallery(FaceTemplateRepository faceTemplateRepository, BiometricProperties biometricProperties,
+                       CompactTemplateEncoder compactEncoder) {
+        this.faceTemplateRepository = faceTemplateRepository;
+        this.compactEncoder = compactEncoder;
+        this.algorithm = TemplateAlgorithm.fromVersion(biometricProperties.getTemplateAlgorithm());
+        this.fusion = ScoreFusion.fromName(biometricProperties.getSearch().getFusion());
+        this.templatesPerUser = biometricProperties.getSearch().getTemplatesPerUser();
+        this.compact = Boolean.TRUE.equals(biometricProperties.getCompact().getEnabled());
+        this.rerankCandidates = biometricProperties.getCompact().getRerankCandidates();
+        this.residentMetric = compact ? TemplateAlgorithm.PIXEL_RMS : algorithm;
+        this.hnswConfig = biometricProperties.getSearch().getHnsw();
+        this.nodeMetric = (nodeA, nodeB) -> residentMetric.distance(vectors, nodeA * stride,
+            vectors, nodeB * stride, dimension, Long.MAX_VALUE);
+        this.index = newIndex();
+        this.parallelism = biometricProperties.getSearch().resolveParallelism();
+        this.minShardSize = biometricProperties.getSearch().getMinShardSize();
+        this.searchPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.snapshotConfig = biometricProperties.getSnapshot();
+        this.snapshotPath = Paths.get(snapshotConfig.getPath());
+        this.snapshotWriter = Boolean.TRUE.equals(snapshotConfig.getEnabled())
+            ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "face-gallery-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            })
+            : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (searchPool != null) {
+            searchPool.shutdown();
+        }
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdownNow();
+            // Alterações ainda não gravadas vão para o disco antes de encerrar
+            if (snapshotPending.getAndSet(false)) {
+                writeSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Carrega a galeria a partir do banco quando a aplicação termina de subir
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.nanoTime();
+        boolean restored = snapshotWriter != null && restoreSnapshot();
+        if (!restored) {
+            List<FaceTemplate> activeTemplates = faceTemplateRepository.findAllActiveTemplates(LocalDateTime.now());
+            rebuild(activeTemplates);
+        }
+        logger.info("Galeria facial carregada{}: {} templates {} de {} usuários (fusão {}){} em {} ms",
+            restored ? " do snapshot" : "", size(), algorithm.getVersion(), userCount(), fusion.getName(),
+            compact ? " (compacta, " + compactEncoder.getDimensions() + " bytes)" : "",
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Restaura a galeria do snapshot em disco e a reconcilia com o banco
+     *
+     * @return false se o snapshot não existir ou for incompatível com a configuração atual
+     */
+    boolean restoreSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return false;
+        }
+        GallerySnapshotFile.Contents contents;
+        try {
+            contents = GallerySnapshotFile.read(snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Snapshot da galeria ignorado ({}): {}", snapshotPath, e.getMessage());
+            return false;
+        }
+        GallerySnapshotFile.Header header = contents.header();
+        if (!algorithm.matches(header.algorithmVersion()) || header.compact() != compact
+                || header.templatesPerUser() != templatesPerUser
+                || (compact && header.dimension() != compactEncoder.getDimensions())) {
+            logger.info("Snapshot da galeria incompatível com a configuração atual, fazendo carga completa");
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            vectors = contents.vectors();
+            userIds = contents.userIds();
+            templateCounts = contents.templateCounts();
+            templateIds = contents.templateIds();
+            templates = contents.templates();
+            size = header.entries();
+            dimension = header.dimension();
+            stride = header.stride();
+            templateLength = header.templateLength();
+            templateStride = compact ? templateLength * templatesPerUser : 0;
+            watermark = header.watermark();
+            entryByUser.clear();
+            residentTemplates = 0;
+            index = newIndex();
+            for (int entry = 0; entry < size; entry++) {
+                entryByUser.put(userIds[entry], entry);
+                residentTemplates += templateCounts[entry];
+                if (index != null) {
+                    index.insert(nodeMetric);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reconcile(header.watermark());
+        return true;
+    }
+
+    /**
+     * Compara os templates restaurados com as chaves dos templates ativos no banco e recarrega
+     * apenas os usuários divergentes
+     */
+    private void reconcile(long snapshotWatermark) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<Long>> expectedByUser = new HashMap<>();
+        int newTemplates = 0;
+        for (FaceTemplateRepository.TemplateKeyView key : faceTemplateRepository.findActiveTemplateKeys(now)) {
+            if (!algorithm.matches(key.getAlgorithmVersion())) {
+                continue;
+            }
+            expectedByUser.computeIfAbsent(key.getUserId(), userId -> new ArrayList<>()).add(key.getId());
+            if (key.getId() > snapshotWatermark) {
+                newTemplates++;
+            }
+        }
+
+        List<Long> staleUsers = new ArrayList<>();
+        List<Long> removedUsers = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Long, List<Long>> expected : expectedByUser.entrySet()) {
+                // Os blocos guardam os templatesPerUser ids mais recentes de cada usuário
+                List<Long> ids = expected.getValue();
+                long[] expectedIds = ids.subList(Math.max(0, ids.size() - templatesPerUser), ids.size()).stream()
+                    .mapToLong(Long::longValue).sorted().toArray();
+                Integer entry = entryByUser.get(expected.getKey());
+                if (entry == null || !Arrays.equals(expectedIds, residentTemplateIds(entry))) {
+                    staleUsers.add(expected.getKey());
+                }
+            }
+            for (Long userId : entryByUser.keySet()) {
+                if (!expectedByUser.containsKey(userId)) {
+                    removedUsers.add(userId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        removedUsers.forEach(this::removeUser);
+        if (!staleUsers.isEmpty()) {
+            List<FaceTemplate> reloaded = new ArrayList<>();
+            for (int from = 0; from < staleUsers.size(); from += RECONCILE_BATCH_SIZE) {
+                List<Long> batch = staleUsers.subList(from, Math.min(staleUsers.size(), from + RECONCILE_BATCH_SIZE));
+                reloaded.addAll(faceTemplateRepository.findActiveTemplatesByUserIds(batch, now));
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long userId : staleUsers) {
+                    removeUser(userId);
+                }
+                for (FaceTemplate faceTemplate : reloaded) {
+                    addInternal(faceTemplate);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (!staleUsers.isEmpty() || !removedUsers.isEmpty()) {
+            scheduleSnapshot();
+        }
+        logger.info("Snapshot da galeria reconciliado: {} usuários recarregados, {} removidos, {} templates após o watermark {}",
+            staleUsers.size(), removedUsers.size(), newTemplates, snapshotWatermark);
+    }
+
+    private long[] residentTemplateIds(int entry) {
+        long[] ids = Arrays.copyOfRange(templateIds, entry * templatesPerUser,
+            entry * templatesPerUser + templateCounts[entry]);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Agenda a regravação do snapshot; alterações dentro do atraso configurado são agrupadas
+     */
+    private void scheduleSnapshot() {
+        if (snapshotWriter == null || !snapshotPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            snapshotWriter.schedule(() -> {
+                if (snapshotPending.getAndSet(false)) {
+                    writeSnapshot();
+                }
+            }, snapshotConfig.getWriteDelaySeconds(), TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Gravação do snapshot da galeria não agendada: executor encerrado");
+        }
+    }
+
+    /**
+     * Grava o estado atual da galeria no arquivo de snapshot. Os arrays são copiados sob o lock
+     * de leitura e gravados fora dele, de modo que cadastros e remoções não esperam pelo disco.
+     */
+    synchronized void writeSnapshot() {
+        long start = System.nanoTime();
+        GallerySnapshotFile.Header header;
+        long[] userIdsCopy;
+        int[] templateCountsCopy;
+        long[] templateIdsCopy;
+        byte[] vectorsCopy;
+        byte[] templatesCopy;
+        boolean[] live;
+        int entries;
+        lock.readLock().lock();
+        try {
+            if (dimension >= 0) {
+                entries = size;
+                header = new GallerySnapshotFile.Header(algorithm.getVersion(), compact, dimension, templatesPerUser,
+                    templateLength, watermark, System.currentTimeMillis(), entryByUser.size());
+                userIdsCopy = Arrays.copyOf(userIds, entries);
+                templateCountsCopy = Arrays.copyOf(templateCounts, entries);
+                templateIdsCopy = Arrays.copyOf(templateIds, entries * templatesPerUser);
+                vectorsCopy = Arrays.copyOf(vectors, entries * stride);
+                templatesCopy = Arrays.copyOf(templates, entries * templateStride);
+                live = new boolean[entries];
+                for (int entry = 0; entry < entries; entry++) {
+                    live[entry] = index == null || !index.isDeleted(entry);
+                }
+            } else {
+                header = null;
+                entries = 0;
+                userIdsCopy = null;
+                templateCountsCopy = null;
+                templateIdsCopy = null;
+                vectorsCopy = null;
+                templatesCopy = null;
+                live = null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            if (header == null) {
+                Files.deleteIfExists(snapshotPath);
+                return;
+            }
+            GallerySnapshotFile.write(snapshotPath, header, userIdsCopy, templateCountsCopy, templateIdsCopy,
+                vectorsCopy, templatesCopy, entries, entry -> live[entry]);
+            logger.info("Snapshot da galeria gravado: {} usuários em {} ms ({})",
+                header.entries(), (System.nanoTime() - start) / 1_000_000, snapshotPath);
+        } catch (IOException e) {
+            logger.error("Erro ao gravar snapshot da galeria em {}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * Substitui todo o conteúdo da galeria pelos templates informados
+     */
+    public void rebuild(Collection<FaceTemplate> faceTemplates) {
+        lock.writeLock().lock();
+        try {
+            vectors = new byte[0];
+            userIds = new long[0];
+            templateCounts = new int[0];
+            templateIds = new long[0];
+            templates = new byte[0];
+            entryByUser.clear();
+            size = 0;
+            residentTemplates = 0;
+            dimension = -1;
+            templateLength = -1;
+            templateStride = 0;
+            index = newIndex();
+            watermark = -1L;
+            for (FaceTemplate faceTemplate : faceTemplates) {
+                addInternal(faceTemplate);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSnapshot();
+    }
+
+    /**
+     * Adiciona os templates informados assim que a transação corrente for confirmada
+     */
+    public void addAfterCommit(Collection<FaceTemplate> faceTemplates) {
+        if (faceTemplates.isEmpty()) {
+            return;
+        }
+        List<FaceTemplate> pending = List.copyOf(faceTemplates);
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (FaceTemplate faceTemplate : pending) {
+                    addInternal(faceTemplate);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            scheduleSnapshot();
+        });
+    }
+
+    /**
+     * Remove todos os templates do usuário assim que a transação corrente for confirmada
+     */
+    public void removeUserAfterCommit(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        runAfterCommit(() -> removeUser(userId));
+    }
+
+    /**
+     * Remove imediatamente todos os templates do usuário da galeria
+     */
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            Integer entry = entryByUser.remove(userId);
+            if (entry == null) {
+                return;
+            }
+            residentTemplates -= templateCounts[entry];
+            if (index != null) {
+                index.markDeleted(entry);
+                if (index.deletedCount() >= hnswConfig.getMaxDeletedRatio() * size) {
+                    purgeDeleted();
+                }
+            } else {
+                removeAt(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSnapshot();
+    }
+
+    /**
+     * Busca o usuário mais próximo do probe em toda a galeria
+     *
+     * @return melhor correspondência ou null se a galeria estiver vazia ou incompatível
+     */
+    public Match findBest(byte[] probe) {
+        return findBest(probe, Double.MAX_VALUE);
+    }
+
+    /**
+     * Busca o usuário mais próximo do probe cujo score fundido não exceda {@code maxScore}
+     *
+     * @return melhor correspondência ou null se nenhuma estiver dentro do limite
+     */
+    public Match findBest(byte[] probe, double maxScore) {
+        List<Match> matches = findTopK(probe, 1, maxScore);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Busca os {@code k} usuários mais próximos do probe, em ordem crescente de score fundido
+     *
+     * Cada fatia mantém um heap limitado a {@code k} candidatos. O pior candidato de um heap
+     * cheio é publicado como limite compartilhado (nenhum usuário acima dele pode entrar no
+     * top-k global), e comparações cuja soma parcial o ultrapassa são abandonadas cedo.
+     * No modo compacto o top-k é escolhido entre os candidatos do pré-filtro re-ranqueados.
+     *
+     * @return lista com até {@code k} correspondências com score menor ou igual a {@code maxScore}
+     */
+    public List<Match> findTopK(byte[] probe, int k, double maxScore) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k deve ser pelo menos 1");
+        }
+        if (compact) {
+            return findTopKCompact(probe, k, maxScore);
+        }
+        lock.readLock().lock();
+        try {
+            if (size == 0 || probe == null || probe.length != dimension) {
+                return List.of();
+            }
+
+            CandidateHeap heap = search(probe, k, algorithm.boundForScore(maxScore, dimension));
+            long[] distances = heap.sortedDistances();
+            int[] entries = heap.sortedIndices();
+            List<Match> matches = new ArrayList<>(distances.length);
+            for (int i = 0; i < distances.length; i++) {
+                int entry = entries[i];
+                int closest = closestTemplate(algorithm, probe, vectors, entry * stride, templateCounts[entry],
+                    dimension);
+                matches.add(new Match(userIds[entry], templateIds[entry * templatesPerUser + closest],
+                    algorithm.score(distances[i], dimension)));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pré-filtro nos códigos compactos seguido do re-ranqueamento nos templates completos residentes
+     */
+    private List<Match> findTopKCompact(byte[] probe, int k, double maxScore) {
+        lock.readLock().lock();
+        try {
+            if (size == 0 || probe == null || probe.length != templateLength) {
+                return List.of();
+            }
+            // Os códigos não preservam o threshold, então o pré-filtro não tem limite de score
+            CandidateHeap heap = search(compactEncoder.encode(probe), Math.max(k, rerankCandidates), Long.MAX_VALUE);
+            int[] candidates = heap.sortedIndices();
+
+            CandidateHeap reranked = new CandidateHeap(k);
+            long bound = algorithm.boundForScore(maxScore, templateLength);
+            for (int entry : candidates) {
+                long limit = Math.min(bound, reranked.worstDistance());
+                long distance = fusion.blockDistance(algorithm, probe, templates, entry * templateStride,
+                    templateCounts[entry], templateLength, limit);
+                if (distance <= limit) {
+                    reranked.offer(distance, entry);
+                }
+            }
+
+            long[] distances = reranked.sortedDistances();
+            int[] entries = reranked.sortedIndices();
+            List<Match> matches = new ArrayList<>(distances.length);
+            for (int i = 0; i < distances.length; i++) {
+                int entry = entries[i];
+                int closest = closestTemplate(algorithm, probe, templates, entry * templateStride,
+                    templateCounts[entry], templateLength);
+                matches.add(new Match(userIds[entry], templateIds[entry * templatesPerUser + closest],
+                    algorithm.score(distances[i], templateLength)));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca as entradas mais próximas pela distância fundida: pelo grafo HNSW quando habilitado,
+     * senão por varredura, em fatias paralelas quando a galeria é grande (chamar com o lock de leitura)
+     */
+    private CandidateHeap search(byte[] query, int k, long bound) {
+        BlockScan blocks = new BlockScan(residentMetric, fusion, query, vectors, templateCounts, dimension, stride);
+        if (index != null) {
+            CandidateHeap heap = new CandidateHeap(k);
+            long[] results = index.search(entry -> blocks.distance(entry, Long.MAX_VALUE),
+                Math.max(k, hnswConfig.getEfSearch()));
+            for (long result : results) {
+                if (HnswIndex.distanceOf(result) <= bound) {
+                    heap.offer(HnswIndex.distanceOf(result), HnswIndex.nodeOf(result));
+                }
+            }
+            return heap;
+        }
+        AtomicLong sharedBound = new AtomicLong(bound);
+        if (searchPool != null && size >= 2 * minShardSize) {
+            int shardSize = Math.max(minShardSize, (size + parallelism * 4 - 1) / (parallelism * 4));
+            return searchPool.invoke(new ShardSearch(blocks, 0, size, shardSize, k, sharedBound));
+        }
+        return scan(blocks, 0, size, k, sharedBound);
+    }
+
+    /**
+     * Posição, dentro do bloco, do template mais próximo do probe
+     */
+    private static int closestTemplate(TemplateAlgorithm metric, byte[] probe, byte[] block, int offset, int count,
+                                       int length) {
+        int closest = 0;
+        long best = Long.MAX_VALUE;
+        for (int t = 0; t < count; t++) {
+            long distance = metric.distance(probe, 0, block, offset + t * length, length, best);
+            if (distance < best) {
+                best = distance;
+                closest = t;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Algoritmo dos templates mantidos na galeria
+     */
+    public TemplateAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Regra de fusão dos scores de um usuário
+     */
+    public ScoreFusion getFusion() {
+        return fusion;
+    }
+
+    /**
+     * Número de templates residentes
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return residentTemplates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de usuários com templates residentes
+     */
+    public int userCount() {
+        lock.readLock().lock();
+        try {
+            return entryByUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addInternal(FaceTemplate faceTemplate) {
+        byte[] bytes = faceTemplate.getTemplateBytes();
+        if (bytes == null || bytes.length == 0 || faceTemplate.getUser() == null
+                || faceTemplate.getUser().getId() == null || faceTemplate.isExpired()
+                || !algorithm.matches(faceTemplate.getAlgorithmVersion())) {
+            return;
+        }
+        if (templateLength < 0) {
+            templateLength = bytes.length;
+        } else if (bytes.length != templateLength) {
+            logger.warn("Template {} ignorado pela galeria: tamanho {} difere de {}",
+                faceTemplate.getId(), bytes.length, templateLength);
+            return;
+        }
+
+        byte[] vector = bytes;
+        if (compact) {
+            vector = faceTemplate.getCompactTemplate();
+            if (vector == null || vector.length != compactEncoder.getDimensions()) {
+                // Templates anteriores à representação compacta (ou de outra dimensão) são codificados na carga
+                vector = compactEncoder.encode(bytes);
+            }
+        }
+        if (dimension < 0) {
+            dimension = vector.length;
+            stride = dimension * templatesPerUser;
+            templateStride = compact ? templateLength * templatesPerUser : 0;
+        }
+
+        long userId = faceTemplate.getUser().getId();
+        long templateId = faceTemplate.getId() != null ? faceTemplate.getId() : -1L;
+        watermark = Math.max(watermark, templateId);
+        Integer existing = entryByUser.get(userId);
+        int entry;
+        if (existing == null) {
+            ensureCapacity(size + 1);
+            entry = size++;
+            userIds[entry] = userId;
+            templateCounts[entry] = 0;
+            entryByUser.put(userId, entry);
+        } else {
+            entry = existing;
+            for (int t = 0; t < templateCounts[entry]; t++) {
+                if (templateId >= 0 && templateIds[entry * templatesPerUser + t] == templateId) {
+                    return;
+                }
+            }
+        }
+
+        int count = templateCounts[entry];
+        boolean evicted = count == templatesPerUser;
+        if (evicted) {
+            // Bloco cheio: descarta o template mais antigo deslocando os demais
+            System.arraycopy(vectors, entry * stride + dimension, vectors, entry * stride, (count - 1) * dimension);
+            if (compact) {
+                System.arraycopy(templates, entry * templateStride + templateLength, templates,
+                    entry * templateStride, (count - 1) * templateLength);
+            }
+            System.arraycopy(templateIds, entry * templatesPerUser + 1, templateIds, entry * templatesPerUser,
+                count - 1);
+            count--;
+            residentTemplates--;
+        }
+        System.arraycopy(vector, 0, vectors, entry * stride + count * dimension, dimension);
+        if (compact) {
+            System.arraycopy(bytes, 0, templates, entry * templateStride + count * templateLength, templateLength);
+        }
+        templateIds[entry * templatesPerUser + count] = templateId;
+        templateCounts[entry] = count + 1;
+        residentTemplates++;
+
+        if (index != null) {
+            if (existing == null) {
+                index.insert(nodeMetric);
+            } else if (evicted) {
+                relink(entry);
+            }
+        }
+    }
+
+    /**
+     * Reinsere no grafo a entrada cujo primeiro template mudou: o nó antigo é removido
+     * logicamente e o bloco passa para uma entrada nova (chamar com o lock de escrita)
+     */
+    private void relink(int entry) {
+        ensureCapacity(size + 1);
+        int relinked = size++;
+        moveEntry(entry, relinked);
+        entryByUser.put(userIds[relinked], relinked);
+        index.markDeleted(entry);
+        index.insert(nodeMetric);
+        if (index.deletedCount() >= hnswConfig.getMaxDeletedRatio() * size) {
+            purgeDeleted();
+        }
+    }
+
+    private HnswIndex newIndex() {
+        return Boolean.TRUE.equals(hnswConfig.getEnabled()) ? new HnswIndex(hnswConfig) : null;
+    }
+
+    /**
+     * Remove a entrada informada movendo a última para o seu lugar
+     */
+    private void removeAt(int entry) {
+        int last = size - 1;
+        if (entry != last) {
+            moveEntry(last, entry);
+            entryByUser.put(userIds[entry], entry);
+        }
+        size--;
+    }
+
+    private void moveEntry(int from, int to) {
+        System.arraycopy(vectors, from * stride, vectors, to * stride, stride);
+        System.arraycopy(templates, from * templateStride, templates, to * templateStride, templateStride);
+        System.arraycopy(templateIds, from * templatesPerUser, templateIds, to * templatesPerUser, templatesPerUser);
+        userIds[to] = userIds[from];
+        templateCounts[to] = templateCounts[from];
+    }
+
+    /**
+     * Compacta os arrays descartando as entradas removidas e reconstrói o grafo (chamar com o lock de escrita)
+     */
+    private void purgeDeleted() {
+        long start = System.nanoTime();
+        HnswIndex previous = index;
+        int removed = previous.deletedCount();
+        int live = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (!previous.isDeleted(entry)) {
+                if (entry != live) {
+                    moveEntry(entry, live);
+                }
+                entryByUser.put(userIds[live], live);
+                live++;
+            }
+        }
+        size = 0;
+        index = newIndex();
+        while (size < live) {
+            size++;
+            index.insert(nodeMetric);
+        }
+        logger.info("Índice HNSW reconstruído: {} removidos descartados, {} nós em {} ms",
+            removed, size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void ensureCapacity(int required) {
+        if (userIds.length >= required) {
+            return;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, Math.max(required, userIds.length * 2));
+        vectors = Arrays.copyOf(vectors, capacity * stride);
+        templates = Arrays.copyOf(templates, capacity * templateStride);
+        userIds = Arrays.copyOf(userIds, capacity);
+        templateCounts = Arrays.copyOf(templateCounts, capacity);
+        templateIds = Arrays.copyOf(templateIds, capacity * templatesPerUser);
+    }
+
+    /**
+     * Varre um intervalo de entradas, publicando o pior candidato do heap cheio no limite compartilhado
+     */
+    private static CandidateHeap scan(BlockScan blocks, int from, int to, int k, AtomicLong sharedBound) {
+        CandidateHeap heap = new CandidateHeap(k);
+        for (int entry = from; entry < to; entry++) {
+            long bound = Math.min(sharedBound.get(), heap.worstDistance());
+            long distance = blocks.distance(entry, bound);
+            if (distance <= bound && heap.offer(distance, entry) && heap.isFull()) {
+                lowerBound(sharedBound, heap.worstDistance());
+            }
+        }
+        return heap;
+    }
+
+    private static void lowerBound(AtomicLong sharedBound, long distance) {
+        long current = sharedBound.get();
+        while (distance < current && !sharedBound.compareAndSet(current, distance)) {
+            current = sharedBound.get();
+        }
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Resultado de uma busca na galeria: usuário, seu template mais próximo e o score fundido
+     */
+    public record Match(long userId, long templateId, double score) {}
+
+    /**
+     * Distância fundida entre a consulta e o bloco de uma entrada da galeria
+     */
+    private record BlockScan(TemplateAlgorithm metric, ScoreFusion fusion, byte[] query, byte[] vectors,
+                             int[] templateCounts, int dimension, int stride) {
+        long distance(int entry, long bound) {
+            return fusion.blockDistance(metric, query, vectors, entry * stride, templateCounts[entry], dimension, bound);
+        }
+    }
+
+    /**
+     * Max-heap limitado de candidatos (distância, índice) em arrays primitivos.
+     * Em caso de empate na distância, o menor índice é considerado melhor.
+     */
+    private static final class CandidateHeap {
+        private final long[] distances;
+        private final int[] indices;
+        private int count;
+
+        CandidateHeap(int capacity) {
+            this.distances = new long[capacity];
+            this.indices = new int[capacity];
+        }
+
+        boolean isFull() {
+            return count == distances.length;
+        }
+
+        /**
+         * Distância do pior candidato retido, ou Long.MAX_VALUE enquanto o heap não estiver cheio
+         */
+        long worstDistance() {
+            return isFull() ? distances[0] : Long.MAX_VALUE;
+        }
+
+        /**
+         * @return true se o candidato entrou no heap
+         */
+        boolean offer(long distance, int index) {
+            if (count < distances.length) {
+                distances[count] = distance;
+                indices[count] = index;
+                siftUp(count++);
+                return true;
+            }
+            if (!worse(distances[0], indices[0], distance, index)) {
+                return false;
+            }
+            distances[0] = distance;
+            indices[0] = index;
+            siftDown(0);
+            return true;
+        }
+
+        void addAll(CandidateHeap other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.distances[i], other.indices[i]);
+            }
+        }
+
+        long[] sortedDistances() {
+            sort();
+            return Arrays.copyOf(distances, count);
+        }
+
+        int[] sortedIndices() {
+            sort();
+            return Arrays.copyOf(indices, count);
+        }
+
+        /**
+         * Ordena os candidatos em ordem crescente (o heap deixa de ser válido para novas inserções)
+         */
+        private void sort() {
+            for (int i = 1; i < count; i++) {
+                long distance = distances[i];
+                int index = indices[i];
+                int j = i - 1;
+                while (j >= 0 && worse(distances[j], indices[j], distance, index)) {
+                    distances[j + 1] = distances[j];
+                    indices[j + 1] = indices[j];
+                    j--;
+                }
+                distances[j + 1] = distance;
+                indices[j + 1] = index;
+            }
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (!worse(distances[position], indices[position], distances[parent], indices[parent])) {
+                    return;
+                }
+                swap(position, parent);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int left = 2 * position + 1;
+                if (left >= count) {
+                    return;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < count && worse(distances[right], indices[right], distances[left], indices[left])) {
+                    worst = right;
+                }
+                if (!worse(distances[worst], indices[worst], distances[position], indices[position])) {
+                    return;
+                }
+                swap(position, worst);
+                position = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+            int index = indices[a];
+            indices[a] = indices[b];
+            indices[b] = index;
+        }
+
+        private static boolean worse(long distanceA, int indexA, long distanceB, int indexB) {
+            return distanceA != distanceB ? distanceA > distanceB : indexA > indexB;
+        }
+    }
+
+    /**
+     * Divide a galeria em fatias até {@code shardSize} entradas e combina os heaps de cada fatia
+     */
+    private static final class ShardSearch extends RecursiveTask<CandidateHeap> {
+        private final BlockScan blocks;
+        private final int from;
+        private final int to;
+        private final int shardSize;
+        private final int k;
+        private final AtomicLong sharedBound;
+
+        ShardSearch(BlockScan blocks, int from, int to, int shardSize, int k, AtomicLong sharedBound) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.shardSize = shardSize;
+            this.k = k;
+            this.sharedBound = sharedBound;
+        }
+
+        @Override
+        protected CandidateHeap compute() {
+            if (to - from <= shardSize) {
+                return scan(blocks, from, to, k, sharedBound);
+            }
+            int middle = (from + to) >>> 1;
+            ShardSearch left = new ShardSearch(blocks, from, middle, shardSize, k, sharedBound);
+            ShardSearch right = new ShardSearch(blocks, middle, to, shardSize, k, sharedBound);
+            left.fork();
+            CandidateHeap merged = right.compute();
+            merged.addAll(left.join());
+            return merged;
+        }
+    }
+}
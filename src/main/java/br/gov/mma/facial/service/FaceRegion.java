@@ -0,0 +1,84 @@
+package br.gov.mma.facial.service;
+
+import org.opencv.core.Rect;
+
+import java.util.Locale;
+
+/**
+ * Região da face em frações da largura e da altura do quadro, independente da resolução.
+ *
+ * Devolvida ao cliente junto com cada resposta e reenviada no quadro seguinte como dica de
+ * posição: quadros consecutivos da mesma câmera têm a face quase no mesmo lugar, e a detecção
+ * pode começar por uma janela ao redor dela em vez da imagem inteira. O formato textual
+ * ({@code x,y,largura,altura}) é o mesmo no JSON, na query string e no multipart.
+ */
+public record FaceRegion(double x, double y, double width, double height) {
+
+    /**
+     * Converte um retângulo em pixels para frações do quadro
+     */
+    static FaceRegion of(Rect rect, int imageWidth, int imageHeight) {
+        return new FaceRegion((double) rect.x / imageWidth, (double) rect.y / imageHeight,
+            (double) rect.width / imageWidth, (double) rect.height / imageHeight);
+    }
+
+    /**
+     * Interpreta a dica enviada pelo cliente
+     *
+     * @return a região, ou null se a dica estiver ausente ou malformada (a dica é opcional e
+     *         nunca impede a detecção)
+     */
+    public static FaceRegion parse(String hint) {
+        if (hint == null || hint.isBlank()) {
+            return null;
+        }
+        String[] parts = hint.split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(parts[0].trim());
+            double y = Double.parseDouble(parts[1].trim());
+            double width = Double.parseDouble(parts[2].trim());
+            double height = Double.parseDouble(parts[3].trim());
+            if (!(x >= 0 && y >= 0 && width > 0 && height > 0 && x + width <= 1.0 + 1e-6 && y + height <= 1.0 + 1e-6)) {
+                return null;
+            }
+            return new FaceRegion(x, y, width, height);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Forma textual da dica, devolvida ao cliente
+     */
+    public String format() {
+        return String.format(Locale.ROOT, "%.4f,%.4f,%.4f,%.4f", x, y, width, height);
+    }
+
+    /**
+     * Janela de busca em pixels: a região ampliada {@code expansion} vezes em torno do seu
+     * centro, limitada às bordas da imagem
+     *
+     * @return a janela, ou null se ela cobrir a imagem inteira (não há o que economizar)
+     */
+    Rect searchWindow(double expansion, int imageWidth, int imageHeight) {
+        double centerX = (x + width / 2.0) * imageWidth;
+        double centerY = (y + height / 2.0) * imageHeight;
+        double halfWidth = width * imageWidth * expansion / 2.0;
+        double halfHeight = height * imageHeight * expansion / 2.0;
+
+        int left = Math.max(0, (int) Math.floor(centerX - halfWidth));
+        int top = Math.max(0, (int) Math.floor(centerY - halfHeight));
+        int right = Math.min(imageWidth, (int) Math.ceil(centerX + halfWidth));
+        int bottom = Math.min(imageHeight, (int) Math.ceil(centerY + halfHeight));
+        if (right <= left || bottom <= top) {
+            return null;
+        }
+        if (left == 0 && top == 0 && right == imageWidth && bottom == imageHeight) {
+            return null;
+        }
+        return new Rect(left, top, right - left, bottom - top);
+    }
+}
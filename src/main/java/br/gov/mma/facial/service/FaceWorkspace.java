@@ -0,0 +1,248 @@
+package br.gov.mma.facial.service;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Área de trabalho da extração de templates, uma por thread do {@link BiometricExecutor}.
+ *
+ * Mantém pré-alocados os buffers nativos e Java que toda extração usava: bytes comprimidos
+ * da imagem, cópia reduzida para a detecção, detecções, face redimensionada e equalizada
+ * (no tamanho normalizado) e os buffers de saída. Como o OpenCV só realoca o destino quando
+ * tamanho ou tipo mudam, em regime a extração não aloca memória nativa além do próprio quadro
+ * decodificado.
+ *
+ * Os buffers devolvidos são reaproveitados na chamada seguinte da mesma thread: quem os
+ * recebe deve consumi-los (ou copiá-los) antes de extrair outra face. Ao fim de cada tarefa
+ * os buffers que cresceram além do regime (uma imagem de vários megabytes, o recorte de uma
+ * face em alta resolução) são devolvidos ao tamanho inicial com {@link #trim()}.
+ */
+final class FaceWorkspace {
+
+    private static final LongAdder RESIDENT_BYTES = new LongAdder();
+
+    private static final int INITIAL_ENCODED_CAPACITY = 64 * 1024;
+    private static final int RETAINED_ENCODED_CAPACITY = 1024 * 1024;
+    private static final long RETAINED_REGION_BYTES = 1024 * 1024;
+
+    private final int faceSize;
+    private final Size normalizedSize;
+    private final MatOfRect detections = new MatOfRect();
+    private final Mat detectionImage = new Mat();
+    private final Mat thumbnail = new Mat();
+    private final Mat thumbnailLaplacian = new Mat();
+    private final MatOfDouble statsMean = new MatOfDouble();
+    private final Mat roiHsv = new Mat();
+    private final Mat roiLaplacian = new Mat();
+    private final MatOfDouble statsStdDev = new MatOfDouble();
+    private final Mat normalized;
+    private final Mat equalized;
+    private final byte[] faceBytes;
+    private Mat encoded;
+    private int[] histogramCounts = new int[0];
+
+    FaceWorkspace(int faceSize) {
+        this.faceSize = faceSize;
+        this.normalizedSize = new Size(faceSize, faceSize);
+        this.normalized = new Mat(faceSize, faceSize, CvType.CV_8UC1);
+        this.equalized = new Mat(faceSize, faceSize, CvType.CV_8UC1);
+        this.faceBytes = new byte[faceSize * faceSize];
+        this.encoded = new Mat(1, INITIAL_ENCODED_CAPACITY, CvType.CV_8UC1);
+        RESIDENT_BYTES.add(2L * faceSize * faceSize + INITIAL_ENCODED_CAPACITY);
+    }
+
+    int faceSize() {
+        return faceSize;
+    }
+
+    /**
+     * Copia a imagem comprimida para o buffer nativo residente (que cresce por duplicação)
+     *
+     * @return visão de {@code imageBytes.length} bytes sobre o buffer; liberar após o uso
+     */
+    Mat encoded(byte[] imageBytes) {
+        ensureEncodedCapacity(imageBytes.length);
+        encoded.put(0, 0, imageBytes);
+        return encoded.submat(0, 1, 0, imageBytes.length);
+    }
+
+    /**
+     * Garante capacidade para {@code required} bytes
+     */
+    private void ensureEncodedCapacity(int required) {
+        int capacity = encoded.cols();
+        if (capacity >= required) {
+            return;
+        }
+        int grown = Math.max(required, capacity * 2);
+        Mat larger = new Mat(1, grown, CvType.CV_8UC1);
+        encoded.release();
+        encoded = larger;
+        RESIDENT_BYTES.add(grown - capacity);
+    }
+
+    /**
+     * Destino reaproveitado das detecções de face
+     */
+    MatOfRect detections() {
+        return detections;
+    }
+
+    /**
+     * Reduz a imagem para a detecção no buffer residente (realocado só quando o tamanho muda)
+     */
+    Mat downscale(Mat grayImage, Size size) {
+        long before = detectionImage.total();
+        Imgproc.resize(grayImage, detectionImage, size, 0, 0, Imgproc.INTER_AREA);
+        RESIDENT_BYTES.add(detectionImage.total() - before);
+        return detectionImage;
+    }
+
+    /**
+     * Reduz a imagem para a triagem de qualidade no buffer residente
+     */
+    Mat thumbnail(Mat grayImage, Size size) {
+        long before = thumbnail.total();
+        Imgproc.resize(grayImage, thumbnail, size, 0, 0, Imgproc.INTER_AREA);
+        RESIDENT_BYTES.add(thumbnail.total() - before);
+        return thumbnail;
+    }
+
+    /**
+     * Laplaciano da miniatura em 16 bits (suficiente para imagens de 8 bits com abertura 1)
+     */
+    Mat laplacian(Mat thumbnailImage) {
+        long before = thumbnailLaplacian.total() * 2;
+        Imgproc.Laplacian(thumbnailImage, thumbnailLaplacian, CvType.CV_16S);
+        RESIDENT_BYTES.add(thumbnailLaplacian.total() * 2 - before);
+        return thumbnailLaplacian;
+    }
+
+    /**
+     * Média e desvio padrão do primeiro canal
+     *
+     * @return {@code [média, desvio padrão]}
+     */
+    double[] meanStdDev(Mat image) {
+        Core.meanStdDev(image, statsMean, statsStdDev);
+        return new double[] {statsMean.toArray()[0], statsStdDev.toArray()[0]};
+    }
+
+    /**
+     * Saturação média de uma região BGR, convertida para HSV no buffer residente
+     */
+    double meanSaturation(Mat colorRegion) {
+        long before = roiHsv.total() * 3;
+        Imgproc.cvtColor(colorRegion, roiHsv, Imgproc.COLOR_BGR2HSV);
+        RESIDENT_BYTES.add(roiHsv.total() * 3 - before);
+        return Core.mean(roiHsv).val[1];
+    }
+
+    /**
+     * Média do Laplaciano de uma região cinza, calculado em 16 bits: com abertura 1 a resposta
+     * de uma imagem de 8 bits fica em [-1020, 1020], e a soma da média é acumulada em inteiros
+     */
+    double meanLaplacian(Mat grayRegion) {
+        long before = roiLaplacian.total() * 2;
+        Imgproc.Laplacian(grayRegion, roiLaplacian, CvType.CV_16S);
+        RESIDENT_BYTES.add(roiLaplacian.total() * 2 - before);
+        return Core.mean(roiLaplacian).val[0];
+    }
+
+    /**
+     * Recorta, redimensiona para o tamanho normalizado e equaliza a face
+     *
+     * @return pixels da face normalizada (buffer reaproveitado)
+     */
+    byte[] normalize(Mat grayImage, Rect faceRect) {
+        Mat faceROI = grayImage.submat(faceRect);
+        try {
+            Imgproc.resize(faceROI, normalized, normalizedSize);
+        } finally {
+            faceROI.release();
+        }
+        Imgproc.equalizeHist(normalized, equalized);
+        equalized.get(0, 0, faceBytes);
+        return faceBytes;
+    }
+
+    /**
+     * Pixels da última face normalizada nesta área de trabalho (buffer reaproveitado)
+     */
+    byte[] normalizedFace() {
+        return faceBytes;
+    }
+
+    /**
+     * Nitidez da última face normalizada, antes da equalização: variância do Laplaciano no
+     * tamanho normalizado. Uma face pequena ampliada até esse tamanho sai borrada, de modo que
+     * a medida também penaliza faces distantes da câmera.
+     */
+    double normalizedSharpness() {
+        long before = roiLaplacian.total() * 2;
+        Imgproc.Laplacian(normalized, roiLaplacian, CvType.CV_16S);
+        RESIDENT_BYTES.add(roiLaplacian.total() * 2 - before);
+        double stdDev = meanStdDev(roiLaplacian)[1];
+        return stdDev * stdDev;
+    }
+
+    /**
+     * Buffer de contagens do histograma LBP com ao menos {@code length} posições
+     */
+    int[] histogramCounts(int length) {
+        if (histogramCounts.length < length) {
+            histogramCounts = new int[length];
+        }
+        return histogramCounts;
+    }
+
+    /**
+     * Libera os buffers que passaram do tamanho mantido entre tarefas: o buffer da imagem
+     * comprimida volta à capacidade inicial e as regiões de liveness são descartadas
+     */
+    void trim() {
+        int capacity = encoded.cols();
+        if (capacity > RETAINED_ENCODED_CAPACITY) {
+            encoded.release();
+            encoded = new Mat(1, INITIAL_ENCODED_CAPACITY, CvType.CV_8UC1);
+            RESIDENT_BYTES.add(INITIAL_ENCODED_CAPACITY - capacity);
+        }
+        releaseIfLarger(roiHsv, 3);
+        releaseIfLarger(roiLaplacian, 2);
+    }
+
+    private static void releaseIfLarger(Mat buffer, int bytesPerPixel) {
+        long bytes = buffer.total() * bytesPerPixel;
+        if (bytes > RETAINED_REGION_BYTES) {
+            buffer.release();
+            RESIDENT_BYTES.add(-bytes);
+        }
+    }
+
+    /**
+     * Libera toda a memória nativa da área de trabalho; chamado quando a thread dona termina
+     */
+    void release() {
+        RESIDENT_BYTES.add(-(2L * faceSize * faceSize + encoded.cols() + detectionImage.total() + thumbnail.total()
+            + thumbnailLaplacian.total() * 2 + roiHsv.total() * 3 + roiLaplacian.total() * 2));
+        for (Mat buffer : new Mat[] {detections, detectionImage, thumbnail, thumbnailLaplacian, statsMean, roiHsv,
+                roiLaplacian, statsStdDev, normalized, equalized, encoded}) {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Bytes nativos mantidos pelas áreas de trabalho de todas as threads
+     */
+    static long residentBytes() {
+        return RESIDENT_BYTES.sum();
+    }
+}
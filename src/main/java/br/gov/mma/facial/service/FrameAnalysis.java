@@ -0,0 +1,140 @@
+package br.gov.mma.facial.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Quadro decodificado uma única vez e compartilhado pelas etapas de um login biométrico.
+ *
+ * Guarda o plano cinza (derivado sob demanda e mantido em cache) e o resultado da detecção
+ * de face, de modo que extração de template e liveness não repitam base64, decodificação,
+ * conversão para cinza nem a detecção.
+ *
+ * Todos os Mats pertencem à {@link MatArena} do quadro e são liberados em {@link #close()};
+ * use com try-with-resources. Não é thread-safe: o quadro pertence à requisição que o criou.
+ */
+public final class FrameAnalysis implements AutoCloseable {
+
+    private final MatArena arena;
+    private final Mat color;
+    private final int reducedScale;
+    private Mat gray;
+    private boolean faceDetected;
+    private Rect faceRect;
+    private FaceRegion regionHint;
+    private FrameQuality quality;
+
+    /**
+     * @param color imagem BGR, ou null quando o quadro foi decodificado apenas em cinza
+     * @param gray plano cinza já na escala de extração, ou null para derivá-lo de {@code color}
+     */
+    FrameAnalysis(MatArena arena, Mat color, Mat gray, int reducedScale) {
+        this.arena = arena;
+        this.color = color;
+        this.gray = gray;
+        this.reducedScale = reducedScale;
+    }
+
+    /**
+     * Indica se o quadro tem os canais de cor (necessários para o liveness)
+     */
+    public boolean hasColor() {
+        return color != null;
+    }
+
+    /**
+     * Fator de redução do plano cinza em relação à imagem original
+     */
+    public int getReducedScale() {
+        return reducedScale;
+    }
+
+    Mat color() {
+        if (color == null) {
+            throw new IllegalStateException("Quadro decodificado sem canais de cor");
+        }
+        return color;
+    }
+
+    /**
+     * Plano cinza na escala de extração
+     */
+    Mat gray() {
+        if (gray == null) {
+            Mat converted = arena.mat();
+            Imgproc.cvtColor(color(), converted, Imgproc.COLOR_BGR2GRAY);
+            if (reducedScale > 1) {
+                Mat reduced = arena.mat();
+                Imgproc.resize(converted, reduced, new Size((converted.cols() + reducedScale - 1) / reducedScale,
+                    (converted.rows() + reducedScale - 1) / reducedScale), 0, 0, Imgproc.INTER_AREA);
+                converted = reduced;
+            }
+            gray = converted;
+        }
+        return gray;
+    }
+
+    MatArena arena() {
+        return arena;
+    }
+
+    /**
+     * Indica se a detecção de face já foi feita neste quadro
+     */
+    boolean isFaceDetected() {
+        return faceDetected;
+    }
+
+    /**
+     * Face mais proeminente, nas coordenadas do plano cinza; null se nenhuma face foi encontrada
+     */
+    Rect getFaceRect() {
+        return faceRect;
+    }
+
+    void setFaceRect(Rect faceRect) {
+        this.faceRect = faceRect;
+        this.faceDetected = true;
+    }
+
+    /**
+     * Face mais proeminente em frações do quadro, para devolver ao cliente como dica do próximo
+     * quadro; null se a detecção não foi feita ou não encontrou face
+     */
+    public FaceRegion getFaceRegion() {
+        return faceRect != null ? FaceRegion.of(faceRect, gray().cols(), gray().rows()) : null;
+    }
+
+    /**
+     * Posição da face no quadro anterior da mesma câmera; null sem dica
+     */
+    FaceRegion getRegionHint() {
+        return regionHint;
+    }
+
+    /**
+     * Informa onde estava a face no quadro anterior: a detecção procura primeiro numa janela
+     * ao redor dessa região e só varre a imagem inteira se não a encontrar ali
+     */
+    public void setRegionHint(FaceRegion regionHint) {
+        this.regionHint = regionHint;
+    }
+
+    /**
+     * Resultado da triagem de qualidade; null se o quadro ainda não foi triado
+     */
+    public FrameQuality getQuality() {
+        return quality;
+    }
+
+    void setQuality(FrameQuality quality) {
+        this.quality = quality;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
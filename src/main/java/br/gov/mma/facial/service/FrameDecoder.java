@@ -0,0 +1,192 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodificação dos quadros recebidos (JPEG/PNG já convertidos de base64) em {@link Mat}.
+ *
+ * O caminho principal entrega os bytes comprimidos direto ao {@code Imgcodecs.imdecode}, que
+ * decodifica em memória nativa já no formato pedido (BGR, cinza ou cinza reduzido), sem o
+ * {@link BufferedImage} intermediário, o redesenho via Graphics e a cópia para o Mat.
+ *
+ * Imagens recebidas como corpo binário (multipart ou image/jpeg) são lidas na thread da
+ * requisição com {@link #readImage(InputStream, int)}, limitadas ao tamanho máximo, e só os
+ * bytes seguem para o executor biométrico: a rede nunca ocupa as threads de CPU.
+ *
+ * O ImageIO continua como fallback: quando o imdecode não reconhece o conteúdo, e de forma
+ * permanente quando os codecs nativos não estão disponíveis no ambiente.
+ */
+public final class FrameDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameDecoder.class);
+
+    private final int reducedScale;
+    private volatile boolean nativeAvailable;
+
+    public FrameDecoder(BiometricProperties.DecodeConfig config) {
+        this(config.getNativeEnabled(), config.getReducedScale());
+    }
+
+    public FrameDecoder(boolean nativeEnabled, int reducedScale) {
+        if (reducedScale != 1 && reducedScale != 2 && reducedScale != 4 && reducedScale != 8) {
+            throw new IllegalArgumentException("Fator de redução da decodificação deve ser 1, 2, 4 ou 8: "
+                + reducedScale);
+        }
+        this.nativeAvailable = nativeEnabled;
+        this.reducedScale = reducedScale;
+    }
+
+    /**
+     * Lê a imagem comprimida de um corpo de requisição, recusando-a ao passar de {@code maxBytes}
+     * sem ler o restante do corpo
+     *
+     * @throws IOException se a leitura falhar ou a imagem exceder o tamanho máximo
+     */
+    public static byte[] readImage(InputStream input, int maxBytes) throws IOException {
+        byte[] imageBytes = input.readNBytes(maxBytes + 1);
+        if (imageBytes.length > maxBytes) {
+            throw new IOException("Imagem excede o limite de " + maxBytes + " bytes");
+        }
+        return imageBytes;
+    }
+
+    /**
+     * Fator de redução configurado para a imagem em cinza da extração
+     */
+    public int getReducedScale() {
+        return reducedScale;
+    }
+
+    public boolean isNativeAvailable() {
+        return nativeAvailable;
+    }
+
+    /**
+     * Decodifica em BGR (3 canais)
+     *
+     * @return o Mat decodificado ou null se os bytes não forem uma imagem reconhecida
+     */
+    public Mat decodeColor(byte[] imageBytes) {
+        return decode(imageBytes, Imgcodecs.IMREAD_COLOR, false, 1, null);
+    }
+
+    /**
+     * Como {@link #decodeColor(byte[])}, copiando os bytes comprimidos para o buffer da área de trabalho
+     */
+    Mat decodeColor(byte[] imageBytes, FaceWorkspace workspace) {
+        return decode(imageBytes, Imgcodecs.IMREAD_COLOR, false, 1, workspace);
+    }
+
+    /**
+     * Decodifica direto em escala de cinza, reduzida pelo fator configurado
+     *
+     * @return o Mat decodificado ou null se os bytes não forem uma imagem reconhecida
+     */
+    public Mat decodeGray(byte[] imageBytes) {
+        return decode(imageBytes, grayFlags(reducedScale), true, reducedScale, null);
+    }
+
+    /**
+     * Como {@link #decodeGray(byte[])}, copiando os bytes comprimidos para o buffer da área de trabalho
+     */
+    Mat decodeGray(byte[] imageBytes, FaceWorkspace workspace) {
+        return decode(imageBytes, grayFlags(reducedScale), true, reducedScale, workspace);
+    }
+
+    private Mat decode(byte[] imageBytes, int flags, boolean gray, int scale, FaceWorkspace workspace) {
+        if (imageBytes == null || imageBytes.length == 0) {
+            return null;
+        }
+        if (nativeAvailable) {
+            Mat image = decodeNative(imageBytes, flags, workspace);
+            if (image != null) {
+                return image;
+            }
+        }
+        return decodeImageIO(imageBytes, gray, scale);
+    }
+
+    private Mat decodeNative(byte[] imageBytes, int flags, FaceWorkspace workspace) {
+        Mat encoded = workspace != null ? workspace.encoded(imageBytes) : new MatOfByte(imageBytes);
+        try {
+            return imdecode(encoded, flags);
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private Mat imdecode(Mat encoded, int flags) {
+        try {
+            Mat image = Imgcodecs.imdecode(encoded, flags);
+            if (image.empty()) {
+                image.release();
+                logger.debug("imdecode não reconheceu a imagem ({} bytes); tentando ImageIO", encoded.total());
+                return null;
+            }
+            return image;
+        } catch (UnsatisfiedLinkError e) {
+            nativeAvailable = false;
+            logger.warn("Codecs nativos do OpenCV indisponíveis, usando ImageIO: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Caminho de fallback: um único redesenho já no layout de destino (BGR ou cinza)
+     */
+    private Mat decodeImageIO(byte[] imageBytes, boolean gray, int scale) {
+        BufferedImage source;
+        try {
+            source = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        } catch (IOException e) {
+            logger.debug("ImageIO não conseguiu decodificar a imagem: {}", e.getMessage());
+            return null;
+        }
+        if (source == null) {
+            return null;
+        }
+
+        int type = gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
+        BufferedImage converted = source;
+        if (source.getType() != type) {
+            converted = new BufferedImage(source.getWidth(), source.getHeight(), type);
+            converted.getGraphics().drawImage(source, 0, 0, null);
+        }
+        byte[] pixels = ((DataBufferByte) converted.getRaster().getDataBuffer()).getData();
+        Mat mat = new Mat(converted.getHeight(), converted.getWidth(), gray ? CvType.CV_8UC1 : CvType.CV_8UC3);
+        mat.put(0, 0, pixels);
+
+        if (scale == 1) {
+            return mat;
+        }
+        Mat reduced = new Mat();
+        Imgproc.resize(mat, reduced, new Size((mat.cols() + scale - 1) / scale, (mat.rows() + scale - 1) / scale),
+            0, 0, Imgproc.INTER_AREA);
+        mat.release();
+        return reduced;
+    }
+
+    private static int grayFlags(int scale) {
+        return switch (scale) {
+            case 2 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+            case 4 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+            case 8 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+            default -> Imgcodecs.IMREAD_GRAYSCALE;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package br.gov.mma.facial.service;
+
+/**
+ * Resultado da triagem de qualidade de um quadro, medida em uma miniatura do plano cinza.
+ *
+ * O motivo é estruturado para que a interface oriente o usuário (mais luz, mais contraste,
+ * segurar a câmera parada) sem que o servidor gaste uma detecção de faces no quadro.
+ *
+ * @param reason     motivo da rejeição, ou {@link Reason#OK}
+ * @param brightness brilho médio (0-255)
+ * @param contrast   desvio padrão dos níveis de cinza
+ * @param sharpness  variância do Laplaciano
+ */
+public record FrameQuality(Reason reason, double brightness, double contrast, double sharpness) {
+
+    /**
+     * Motivos de rejeição, na ordem em que são verificados
+     */
+    public enum Reason {
+        OK("Imagem adequada"),
+        TOO_DARK("Imagem muito escura. Procure um local mais iluminado."),
+        TOO_BRIGHT("Imagem muito clara. Evite luz direta sobre o rosto ou a câmera."),
+        LOW_CONTRAST("Imagem sem contraste. Verifique se a câmera não está obstruída."),
+        BLURRY("Imagem borrada. Mantenha o rosto e a câmera parados.");
+
+        private final String message;
+
+        Reason(String message) {
+            this.message = message;
+        }
+
+        /**
+         * Orientação ao usuário, exibível na interface
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public boolean accepted() {
+        return reason == Reason.OK;
+    }
+}
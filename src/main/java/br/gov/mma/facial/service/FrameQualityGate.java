@@ -0,0 +1,75 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Triagem barata de qualidade executada antes da detecção de faces.
+ *
+ * Brilho, contraste e nitidez são medidos em uma miniatura de poucas dezenas de pixels de
+ * largura, de modo que a triagem custa microssegundos e quadros escuros, estourados, vazios ou
+ * borrados não chegam à varredura do detector. Os buffers vêm da área de trabalho da thread.
+ */
+final class FrameQualityGate {
+
+    private final int thumbnailWidth;
+    private final double minBrightness;
+    private final double maxBrightness;
+    private final double minContrast;
+    private final double minSharpness;
+    private final Map<FrameQuality.Reason, Counter> rejections = new EnumMap<>(FrameQuality.Reason.class);
+
+    FrameQualityGate(BiometricProperties.QualityConfig config, MeterRegistry meterRegistry) {
+        this.thumbnailWidth = config.getThumbnailWidth();
+        this.minBrightness = config.getMinBrightness();
+        this.maxBrightness = config.getMaxBrightness();
+        this.minContrast = config.getMinContrast();
+        this.minSharpness = config.getMinSharpness();
+        for (FrameQuality.Reason reason : FrameQuality.Reason.values()) {
+            if (reason != FrameQuality.Reason.OK) {
+                rejections.put(reason, Counter.builder("biometric.quality.rejections")
+                    .description("Quadros rejeitados pela triagem de qualidade antes da detecção")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+            }
+        }
+    }
+
+    /**
+     * Mede o plano cinza em uma miniatura e classifica o quadro
+     */
+    FrameQuality assess(Mat grayImage, FaceWorkspace workspace) {
+        int width = Math.min(thumbnailWidth, grayImage.cols());
+        int height = Math.max(1, (int) Math.round((double) grayImage.rows() * width / grayImage.cols()));
+        Mat thumbnail = workspace.thumbnail(grayImage, new Size(width, height));
+
+        double[] luminance = workspace.meanStdDev(thumbnail);
+        double brightness = luminance[0];
+        double contrast = luminance[1];
+        double laplacianStdDev = workspace.meanStdDev(workspace.laplacian(thumbnail))[1];
+        double sharpness = laplacianStdDev * laplacianStdDev;
+
+        FrameQuality.Reason reason;
+        if (brightness < minBrightness) {
+            reason = FrameQuality.Reason.TOO_DARK;
+        } else if (brightness > maxBrightness) {
+            reason = FrameQuality.Reason.TOO_BRIGHT;
+        } else if (contrast < minContrast) {
+            reason = FrameQuality.Reason.LOW_CONTRAST;
+        } else if (sharpness < minSharpness) {
+            reason = FrameQuality.Reason.BLURRY;
+        } else {
+            reason = FrameQuality.Reason.OK;
+        }
+        if (reason != FrameQuality.Reason.OK) {
+            rejections.get(reason).increment();
+        }
+        return new FrameQuality(reason, brightness, contrast, sharpness);
+    }
+}
@@ -0,0 +1,260 @@
+package br.gov.mma.facial.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntPredicate;
+
+/**
+ * Formato binário do snapshot da {@link FaceGallery}.
+ *
+ * Layout (big-endian): cabeçalho versionado, ids de usuário, quantidade de templates por
+ * entrada, ids de template, os blocos de bytes empacotados e, na galeria compacta, os blocos
+ * dos templates completos, na mesma disposição dos arrays da galeria. A leitura percorre o
+ * arquivo em blocos de tamanho fixo e preenche cada seção diretamente no array de destino, sem
+ * desserializar template a template nem tocar nos LOBs do banco. O arquivo em si não tem limite
+ * de tamanho; cada seção, como o array correspondente da galeria, fica limitada a 2 GB.
+ *
+ * A escrita vai para um arquivo temporário substituído atomicamente, de modo que uma
+ * queda no meio da gravação nunca deixa um snapshot truncado no lugar do anterior.
+ */
+final class GallerySnapshotFile {
+
+    static final int MAGIC = 0x4D4D_4647;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int READ_CHUNK = 1 << 20;
+
+    private GallerySnapshotFile() {}
+
+    /**
+     * Cabeçalho do snapshot; {@code watermark} é o maior id de template incluído
+     */
+    record Header(String algorithmVersion, boolean compact, int dimension, int templatesPerUser,
+                  int templateLength, long watermark, long writtenAt, int entries) {
+
+        int stride() {
+            return dimension * templatesPerUser;
+        }
+
+        /**
+         * Bytes por entrada dos templates completos, presentes apenas na galeria compacta
+         */
+        int templateStride() {
+            return compact ? templateLength * templatesPerUser : 0;
+        }
+    }
+
+    /**
+     * Conteúdo lido, já no formato dos arrays da galeria
+     */
+    record Contents(Header header, long[] userIds, int[] templateCounts, long[] templateIds, byte[] vectors,
+                    byte[] templates) {}
+
+    /**
+     * Grava as entradas aceitas por {@code include}
+     */
+    static void write(Path path, Header header, long[] userIds, int[] templateCounts, long[] templateIds,
+                      byte[] vectors, byte[] templates, int size, IntPredicate include) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        int perUser = header.templatesPerUser();
+        int stride = header.stride();
+        int templateStride = header.templateStride();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 16))) {
+            byte[] version = header.algorithmVersion().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeShort(version.length);
+            out.write(version);
+            out.writeBoolean(header.compact());
+            out.writeInt(header.dimension());
+            out.writeInt(perUser);
+            out.writeInt(header.templateLength());
+            out.writeLong(header.watermark());
+            out.writeLong(header.writtenAt());
+            out.writeInt(header.entries());
+
+            for (int entry = 0; entry < size; entry++) {
+                if (include.test(entry)) {
+                    out.writeLong(userIds[entry]);
+                }
+            }
+            for (int entry = 0; entry < size; entry++) {
+                if (include.test(entry)) {
+                    out.writeInt(templateCounts[entry]);
+                }
+            }
+            for (int entry = 0; entry < size; entry++) {
+                if (include.test(entry)) {
+                    for (int t = 0; t < perUser; t++) {
+                        out.writeLong(templateIds[entry * perUser + t]);
+                    }
+                }
+            }
+            for (int entry = 0; entry < size; entry++) {
+                if (include.test(entry)) {
+                    out.write(vectors, entry * stride, stride);
+                }
+            }
+            for (int entry = 0; entry < size && templateStride > 0; entry++) {
+                if (include.test(entry)) {
+                    out.write(templates, entry * templateStride, templateStride);
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o snapshot
+     *
+     * @throws IOException se o arquivo estiver corrompido, truncado ou em outra versão do formato
+     */
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ChunkReader in = new ChunkReader(channel);
+
+            if (fileSize < 8 || in.getInt() != MAGIC) {
+                throw new IOException("Arquivo não é um snapshot da galeria facial");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Versão de snapshot não suportada: " + formatVersion);
+            }
+            byte[] version = new byte[in.getShort()];
+            in.read(version);
+            Header header = new Header(new String(version, StandardCharsets.UTF_8), in.get() != 0,
+                in.getInt(), in.getInt(), in.getInt(), in.getLong(), in.getLong(), in.getInt());
+
+            int entries = header.entries();
+            long expected = in.position() + (long) entries * (Long.BYTES + Integer.BYTES)
+                + (long) entries * header.templatesPerUser() * Long.BYTES + (long) entries * header.stride()
+                + (long) entries * header.templateStride();
+            if (entries < 0 || header.dimension() < 1 || header.templatesPerUser() < 1 || expected != fileSize) {
+                throw new IOException("Snapshot truncado ou inconsistente: esperado " + expected
+                    + " bytes, encontrado " + fileSize);
+            }
+
+            long[] userIds = new long[entries];
+            in.read(userIds);
+            int[] templateCounts = new int[entries];
+            in.read(templateCounts);
+            long[] templateIds = new long[sectionLength(entries, header.templatesPerUser())];
+            in.read(templateIds);
+            byte[] vectors = new byte[sectionLength(entries, header.stride())];
+            in.read(vectors);
+            byte[] templates = new byte[sectionLength(entries, header.templateStride())];
+            in.read(templates);
+
+            return new Contents(header, userIds, templateCounts, templateIds, vectors, templates);
+        }
+    }
+
+    private static int sectionLength(int entries, int perEntry) throws IOException {
+        long length = (long) entries * perEntry;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Seção do snapshot maior que 2 GB não suportada: " + length + " elementos");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Leitura sequencial do canal por um buffer de tamanho fixo, reaproveitado entre as seções
+     */
+    private static final class ChunkReader {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+        private long consumed;
+
+        ChunkReader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        long position() {
+            return consumed - buffer.remaining();
+        }
+
+        byte get() throws IOException {
+            require(Byte.BYTES);
+            return buffer.get();
+        }
+
+        short getShort() throws IOException {
+            require(Short.BYTES);
+            return buffer.getShort();
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        void read(byte[] target) throws IOException {
+            for (int offset = 0; offset < target.length; ) {
+                int count = Math.min(READ_CHUNK, target.length - offset);
+                require(count);
+                buffer.get(target, offset, count);
+                offset += count;
+            }
+        }
+
+        void read(int[] target) throws IOException {
+            for (int offset = 0; offset < target.length; ) {
+                int count = Math.min(READ_CHUNK / Integer.BYTES, target.length - offset);
+                require(count * Integer.BYTES);
+                buffer.asIntBuffer().get(target, offset, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                offset += count;
+            }
+        }
+
+        void read(long[] target) throws IOException {
+            for (int offset = 0; offset < target.length; ) {
+                int count = Math.min(READ_CHUNK / Long.BYTES, target.length - offset);
+                require(count * Long.BYTES);
+                buffer.asLongBuffer().get(target, offset, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                offset += count;
+            }
+        }
+
+        /**
+         * Garante ao menos {@code bytes} disponíveis no buffer, lendo o próximo bloco do canal
+         */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new IOException("Snapshot truncado");
+                }
+                consumed += read;
+            }
+            buffer.flip();
+        }
+    }
+}
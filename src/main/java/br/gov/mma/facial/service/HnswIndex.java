@@ -0,0 +1,372 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Grafo HNSW (Hierarchical Navigable Small World) sobre os vetores da {@link FaceGallery}.
+ *
+ * O índice guarda apenas a topologia: os nós são as posições da galeria e as distâncias
+ * são calculadas sob demanda pela métrica informada em cada chamada, de modo que os bytes
+ * continuam em um único array contíguo. Inserções são incrementais e remoções apenas marcam
+ * o nó (soft delete): ele segue navegável, mas nunca é devolvido como resultado.
+ *
+ * Não é thread-safe para escrita; a galeria serializa inserções e remoções com o lock de
+ * escrita e permite buscas concorrentes sob o lock de leitura.
+ *
+ * As distâncias são empacotadas com o nó em um long (distância nos 32 bits altos), o que
+ * limita cada distância a Integer.MAX_VALUE; valores maiores são saturados.
+ */
+final class HnswIndex {
+
+    private static final long SEED = 0x484E_5357L;
+
+    private final int maxLinks;
+    private final int maxLinksLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(SEED);
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+    /**
+     * links[nó][camada] = {quantidade, vizinho1, vizinho2, ...}
+     */
+    private int[][][] links = new int[0][][];
+    private boolean[] deleted = new boolean[0];
+    private int nodeCount;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(BiometricProperties.HnswConfig config) {
+        this.maxLinks = config.getM();
+        this.maxLinksLayer0 = config.getM() * 2;
+        this.efConstruction = config.getEfConstruction();
+        this.levelMultiplier = 1.0 / Math.log(config.getM());
+    }
+
+    /**
+     * Distância entre dois nós do índice
+     */
+    interface Metric {
+        long distance(int nodeA, int nodeB);
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int liveCount() {
+        return nodeCount - deletedCount;
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    boolean isDeleted(int node) {
+        return deleted[node];
+    }
+
+    /**
+     * Marca o nó como removido; ele continua servindo de ponte na navegação do grafo
+     */
+    void markDeleted(int node) {
+        if (!deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Insere o próximo nó (a posição {@link #nodeCount()} da galeria)
+     */
+    void insert(Metric metric) {
+        int node = nodeCount;
+        int level = randomLevel();
+        ensureCapacity(node + 1);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[(l == 0 ? maxLinksLayer0 : maxLinks) + 1];
+        }
+        nodeCount++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        IntToLongFunction toNode = other -> metric.distance(node, other);
+        long[] entries = {pack(toNode.applyAsLong(entryPoint), entryPoint)};
+        for (int l = maxLevel; l > level; l--) {
+            entries = Arrays.copyOf(searchLayer(toNode, entries, 1, l, false), 1);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = searchLayer(toNode, entries, efConstruction, l, false);
+            int limit = l == 0 ? maxLinksLayer0 : maxLinks;
+            int[] neighbors = selectNeighbors(candidates, maxLinks, metric);
+            int[] own = links[node][l];
+            for (int neighbor : neighbors) {
+                own[++own[0]] = neighbor;
+                connect(neighbor, node, l, limit, metric);
+            }
+            entries = candidates;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Busca aproximada dos vizinhos mais próximos da consulta
+     *
+     * @param queryDistance distância da consulta até um nó
+     * @param ef tamanho da lista de candidatos (controle de recall/latência)
+     * @return até {@code ef} resultados não removidos, empacotados e em ordem crescente de distância
+     */
+    long[] search(IntToLongFunction queryDistance, int ef) {
+        if (entryPoint < 0 || deletedCount == nodeCount) {
+            return new long[0];
+        }
+        long[] entries = {pack(queryDistance.applyAsLong(entryPoint), entryPoint)};
+        for (int l = maxLevel; l > 0; l--) {
+            entries = Arrays.copyOf(searchLayer(queryDistance, entries, 1, l, false), 1);
+        }
+        return searchLayer(queryDistance, entries, ef, 0, true);
+    }
+
+    static long distanceOf(long packed) {
+        return packed >>> 32;
+    }
+
+    static int nodeOf(long packed) {
+        return (int) packed;
+    }
+
+    private static long pack(long distance, int node) {
+        return (Math.min(distance, Integer.MAX_VALUE) << 32) | node;
+    }
+
+    /**
+     * Busca gulosa em uma camada mantendo os {@code ef} melhores resultados
+     */
+    private long[] searchLayer(IntToLongFunction queryDistance, long[] entries, int ef, int level,
+                               boolean skipDeleted) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(nodeCount);
+        LongHeap candidates = new LongHeap(false);
+        LongHeap results = new LongHeap(true);
+
+        for (long entry : entries) {
+            visited.visit(nodeOf(entry));
+            candidates.push(entry);
+            if (!skipDeleted || !deleted[nodeOf(entry)]) {
+                results.push(entry);
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            long current = candidates.pop();
+            if (results.size() >= ef && distanceOf(current) > distanceOf(results.peek())) {
+                break;
+            }
+            int[] neighbors = links[nodeOf(current)][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                long distance = queryDistance.applyAsLong(neighbor);
+                if (results.size() < ef || distance < distanceOf(results.peek())) {
+                    long packed = pack(distance, neighbor);
+                    candidates.push(packed);
+                    if (!skipDeleted || !deleted[neighbor]) {
+                        results.push(packed);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results.toSortedArray();
+    }
+
+    /**
+     * Heurística de seleção do HNSW: mantém um candidato apenas se ele estiver mais perto do
+     * nó base do que de todos os vizinhos já escolhidos, completando com os descartados
+     *
+     * @param candidates candidatos empacotados em ordem crescente de distância
+     */
+    private int[] selectNeighbors(long[] candidates, int count, Metric metric) {
+        int[] selected = new int[Math.min(count, candidates.length)];
+        boolean[] taken = new boolean[candidates.length];
+        int size = 0;
+        for (int i = 0; i < candidates.length && size < selected.length; i++) {
+            int candidate = nodeOf(candidates[i]);
+            long distance = distanceOf(candidates[i]);
+            boolean diverse = true;
+            for (int j = 0; j < size && diverse; j++) {
+                diverse = metric.distance(candidate, selected[j]) >= distance;
+            }
+            if (diverse) {
+                selected[size++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && size < selected.length; i++) {
+            if (!taken[i]) {
+                selected[size++] = nodeOf(candidates[i]);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Adiciona a aresta de volta, podando a lista do vizinho quando ela excede o limite
+     */
+    private void connect(int node, int newNeighbor, int level, int limit, Metric metric) {
+        int[] neighbors = links[node][level];
+        if (neighbors[0] < limit) {
+            neighbors[++neighbors[0]] = newNeighbor;
+            return;
+        }
+        long[] candidates = new long[neighbors[0] + 1];
+        for (int i = 1; i <= neighbors[0]; i++) {
+            candidates[i - 1] = pack(metric.distance(node, neighbors[i]), neighbors[i]);
+        }
+        candidates[neighbors[0]] = pack(metric.distance(node, newNeighbor), newNeighbor);
+        Arrays.sort(candidates);
+        int[] selected = selectNeighbors(candidates, limit, metric);
+        neighbors[0] = selected.length;
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - random.nextDouble();
+        return (int) (-Math.log(uniform) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (links.length >= required) {
+            return;
+        }
+        int capacity = Math.max(64, Math.max(required, links.length * 2));
+        links = Arrays.copyOf(links, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    /**
+     * Marcas de visita por thread, reiniciadas em O(1) trocando a época
+     */
+    private static final class VisitedMarks {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        void reset(int nodes) {
+            if (marks.length < nodes) {
+                marks = new int[Math.max(nodes, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * @return true se o nó ainda não havia sido visitado nesta busca
+         */
+        boolean visit(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    /**
+     * Heap binário de longs empacotados (mínimo ou máximo)
+     */
+    private static final class LongHeap {
+        private final boolean max;
+        private long[] values = new long[16];
+        private int size;
+
+        LongHeap(boolean max) {
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return values[0];
+        }
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int position = size++;
+            values[position] = value;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (!before(values[position], values[parent])) {
+                    break;
+                }
+                swap(position, parent);
+                position = parent;
+            }
+        }
+
+        long pop() {
+            long top = values[0];
+            values[0] = values[--size];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(values[child + 1], values[child])) {
+                    child++;
+                }
+                if (!before(values[child], values[position])) {
+                    break;
+                }
+                swap(position, child);
+                position = child;
+            }
+            return top;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private boolean before(long a, long b) {
+            return max ? a > b : a < b;
+        }
+
+        private void swap(int a, int b) {
+            long value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import org.opencv.core.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Estado de uma sessão de liveness por streaming, atualizado a cada quadro recebido.
+ *
+ * A memória é limitada e independe da duração da sessão: a última face normalizada (para a
+ * energia de movimento), a posição da face (para o rastreamento), uma janela circular com a
+ * variância da região dos olhos (para a piscada) e o template do melhor quadro até o momento.
+ * Os quadros de uma sessão chegam um por vez; a instância não é compartilhada entre sessões.
+ */
+final class LivenessSession {
+
+    /**
+     * Quadros recentes considerados na mediana da variância dos olhos
+     */
+    static final int EYE_WINDOW = 16;
+
+    /**
+     * Quadros com a variância dos olhos registrada antes de procurar piscadas
+     */
+    private static final int EYE_WARMUP = 4;
+
+    /**
+     * Faixa da face normalizada que contém os olhos, em frações da altura
+     */
+    private static final double EYE_BAND_TOP = 0.20;
+    private static final double EYE_BAND_BOTTOM = 0.45;
+
+    /**
+     * Variância, relativa à mediana, a partir da qual os olhos são considerados reabertos
+     */
+    private static final double EYE_REOPEN = 0.9;
+
+    /**
+     * Deslocamento do centro da face entre quadros consecutivos, em larguras de face, que
+     * caracteriza a perda do rastreamento (troca de rosto ou de foto diante da câmera)
+     */
+    private static final double TRACK_JUMP = 0.5;
+
+    /**
+     * Observação de um quadro: face no plano cinza (e em frações do quadro), face normalizada,
+     * template e nitidez da face normalizada ({@link FaceWorkspace#normalizedSharpness()}), ou
+     * apenas a triagem de qualidade (null com a triagem desligada) quando nenhuma face foi extraída
+     */
+    record Observation(Rect face, FaceRegion region, byte[] normalizedFace, byte[] template, double sharpness,
+                       FrameQuality quality) {
+        boolean hasFace() {
+            return template != null;
+        }
+    }
+
+    private final String id;
+    private final long startedNanos = System.nanoTime();
+
+    private int frames;
+    private int faceFrames;
+    private int trackBreaks;
+
+    private byte[] previousFace;
+    private boolean hasPrevious;
+    private double previousCenterX;
+    private double previousCenterY;
+    private FaceRegion regionHint;
+
+    private double motionSum;
+    private int motionSamples;
+
+    private final double[] eyeVariances = new double[EYE_WINDOW];
+    private final double[] medianScratch = new double[EYE_WINDOW];
+    private int eyeCount;
+    private boolean eyesClosed;
+    private boolean blinkDetected;
+
+    private byte[] bestTemplate;
+    private double bestScore = Double.NEGATIVE_INFINITY;
+
+    LivenessSession(String id) {
+        this.id = id;
+    }
+
+    String id() {
+        return id;
+    }
+
+    /**
+     * Incorpora um quadro à sessão
+     *
+     * @param blinkDrop queda relativa da variância dos olhos que caracteriza olhos fechados
+     */
+    void record(Observation observation, double blinkDrop) {
+        frames++;
+        if (observation == null || !observation.hasFace()) {
+            // Sem face não há movimento a medir: o próximo quadro recomeça a comparação
+            hasPrevious = false;
+            regionHint = null;
+            return;
+        }
+        faceFrames++;
+
+        byte[] face = observation.normalizedFace();
+        Rect rect = observation.face();
+        double centerX = rect.x + rect.width / 2.0;
+        double centerY = rect.y + rect.height / 2.0;
+        if (hasPrevious && face.length == previousFace.length) {
+            double jump = Math.hypot(centerX - previousCenterX, centerY - previousCenterY);
+            if (jump > TRACK_JUMP * rect.width) {
+                trackBreaks++;
+            } else {
+                motionSum += meanAbsoluteDifference(face, previousFace);
+                motionSamples++;
+            }
+        }
+        if (previousFace == null || previousFace.length != face.length) {
+            previousFace = new byte[face.length];
+        }
+        System.arraycopy(face, 0, previousFace, 0, face.length);
+        previousCenterX = centerX;
+        previousCenterY = centerY;
+        hasPrevious = true;
+        regionHint = observation.region();
+
+        trackBlink(eyeBandVariance(face), blinkDrop);
+
+        // Melhor quadro para a comparação biométrica: a face normalizada mais nítida, como no
+        // ranqueamento do cadastro; independe da triagem de qualidade estar ligada
+        if (bestTemplate == null || observation.sharpness() > bestScore) {
+            bestTemplate = observation.template();
+            bestScore = observation.sharpness();
+        }
+    }
+
+    /**
+     * Olhos fechados: variância da faixa dos olhos abaixo de {@code blinkDrop} vezes a mediana
+     * recente; a piscada se completa quando a variância volta ao patamar da mediana
+     */
+    private void trackBlink(double variance, double blinkDrop) {
+        if (eyeCount >= EYE_WARMUP) {
+            double median = eyeMedian();
+            if (variance < blinkDrop * median) {
+                eyesClosed = true;
+            } else if (eyesClosed && variance >= EYE_REOPEN * median) {
+                eyesClosed = false;
+                blinkDetected = true;
+            }
+        }
+        eyeVariances[eyeCount % EYE_WINDOW] = variance;
+        eyeCount++;
+    }
+
+    private double eyeMedian() {
+        int size = Math.min(eyeCount, EYE_WINDOW);
+        System.arraycopy(eyeVariances, 0, medianScratch, 0, size);
+        Arrays.sort(medianScratch, 0, size);
+        return size % 2 == 1
+            ? medianScratch[size / 2]
+            : (medianScratch[size / 2 - 1] + medianScratch[size / 2]) / 2.0;
+    }
+
+    /**
+     * Variância dos níveis de cinza na faixa dos olhos da face normalizada (quadrada)
+     */
+    static double eyeBandVariance(byte[] face) {
+        int side = (int) Math.round(Math.sqrt(face.length));
+        int top = (int) (side * EYE_BAND_TOP);
+        int bottom = (int) (side * EYE_BAND_BOTTOM);
+        long sum = 0;
+        long sumSquares = 0;
+        for (int i = top * side; i < bottom * side; i++) {
+            int value = face[i] & 0xFF;
+            sum += value;
+            sumSquares += value * value;
+        }
+        int count = (bottom - top) * side;
+        double mean = (double) sum / count;
+        return (double) sumSquares / count - mean * mean;
+    }
+
+    /**
+     * Diferença absoluta média (0-255) entre duas faces normalizadas
+     */
+    static double meanAbsoluteDifference(byte[] face, byte[] previous) {
+        long sum = 0;
+        for (int i = 0; i < face.length; i++) {
+            sum += Math.abs((face[i] & 0xFF) - (previous[i] & 0xFF));
+        }
+        return (double) sum / face.length;
+    }
+
+    int frames() {
+        return frames;
+    }
+
+    boolean blinkDetected() {
+        return blinkDetected;
+    }
+
+    /**
+     * Energia de movimento média entre quadros consecutivos com face
+     */
+    double motion() {
+        return motionSamples == 0 ? 0.0 : motionSum / motionSamples;
+    }
+
+    /**
+     * Posição da face no último quadro, usada como dica de detecção do próximo; null se o último
+     * quadro não teve face
+     */
+    FaceRegion regionHint() {
+        return regionHint;
+    }
+
+    byte[] bestTemplate() {
+        return bestTemplate;
+    }
+
+    /**
+     * Decide a sessão quando possível
+     *
+     * @param finished o cliente encerrou o envio de quadros
+     * @return o motivo do veredito, ou null se a sessão deve continuar recebendo quadros
+     */
+    LivenessVerdict.Reason evaluate(BiometricProperties.LivenessStreamConfig config, boolean finished) {
+        LivenessVerdict.Reason unmet = unmetCriterion(config);
+        if (unmet == null && frames >= config.getMinFrames()) {
+            return LivenessVerdict.Reason.LIVE;
+        }
+        boolean exhausted = finished
+            || frames >= config.getMaxFrames()
+            || System.nanoTime() - startedNanos >= config.getSessionTimeoutSeconds() * 1_000_000_000L;
+        if (!exhausted) {
+            return null;
+        }
+        return frames < config.getMinFrames() ? LivenessVerdict.Reason.TOO_FEW_FRAMES : unmet;
+    }
+
+    private LivenessVerdict.Reason unmetCriterion(BiometricProperties.LivenessStreamConfig config) {
+        if (frames == 0 || (double) faceFrames / frames < config.getMinFaceRatio()) {
+            return LivenessVerdict.Reason.NO_FACE;
+        }
+        if (trackBreaks > 0) {
+            return LivenessVerdict.Reason.TRACK_LOST;
+        }
+        if (motion() < config.getMinMotion()) {
+            return LivenessVerdict.Reason.NO_MOTION;
+        }
+        if (Boolean.TRUE.equals(config.getRequireBlink()) && !blinkDetected) {
+            return LivenessVerdict.Reason.NO_BLINK;
+        }
+        return null;
+    }
+}
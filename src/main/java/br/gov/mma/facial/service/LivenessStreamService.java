@@ -0,0 +1,227 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.service.BiometricExecutor.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessões de liveness por streaming: o navegador envia quadros da câmera, na largura de
+ * trabalho da detecção, por uma única conexão e o servidor acumula, quadro a quadro, rastreamento da face, energia de movimento e
+ * variância da região dos olhos até emitir o veredito.
+ *
+ * Cada quadro passa pela triagem de qualidade, detecção e extração no executor biométrico. O
+ * veredito positivo emite um token de uso único que referencia o template do melhor quadro da
+ * sessão. O login facial recebe o token junto com uma captura na resolução da câmera e só a
+ * aceita se for a mesma face desse quadro: a comparação usa a captura completa, e a captura
+ * fica vinculada à sessão que passou pela verificação.
+ *
+ * O número de sessões abertas e de tokens pendentes é limitado; ambos ficam em memória. Um
+ * token só deixa de valer ao ser usado ou ao expirar: com o limite de tokens atingido, a
+ * sessão aprovada recebe {@link LivenessVerdict.Reason#BUSY} em vez de descartar tokens de
+ * outros usuários.
+ */
+@Service
+public class LivenessStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivenessStreamService.class);
+
+    /**
+     * Resultado do processamento de um quadro
+     *
+     * @param faceRegion posição da face no quadro, ou null se nenhuma face foi extraída
+     * @param quality motivo da triagem de qualidade, ou null se o quadro não pôde ser decodificado
+     * @param verdict veredito, quando a sessão foi decidida neste quadro
+     */
+    public record Update(int frames, boolean faceDetected, FaceRegion faceRegion, FrameQuality.Reason quality,
+                         double motion, boolean blinkDetected, LivenessVerdict verdict) {
+    }
+
+    /**
+     * Template do melhor quadro de uma sessão aprovada, aguardando o login facial
+     */
+    private record Proof(byte[] template, long expiresAtNanos) {
+    }
+
+    private final BiometricService biometricService;
+    private final BiometricExecutor biometricExecutor;
+    private final BiometricProperties.LivenessStreamConfig config;
+    private final Map<String, LivenessSession> sessions = new ConcurrentHashMap<>();
+    // Ordem de inserção = ordem de expiração, pois a validade é a mesma para todos os tokens
+    private final Map<String, Proof> proofs = new LinkedHashMap<>();
+    private final Map<LivenessVerdict.Reason, Counter> verdicts = new EnumMap<>(LivenessVerdict.Reason.class);
+    private final Counter rejectedSessions;
+
+    public LivenessStreamService(BiometricService biometricService, BiometricExecutor biometricExecutor,
+                                 BiometricProperties biometricProperties, MeterRegistry meterRegistry) {
+        this.biometricService = biometricService;
+        this.biometricExecutor = biometricExecutor;
+        this.config = biometricProperties.getLivenessStream();
+
+        for (LivenessVerdict.Reason reason : LivenessVerdict.Reason.values()) {
+            verdicts.put(reason, Counter.builder("biometric.liveness.stream.verdicts")
+                .description("Vereditos das sessões de liveness por streaming")
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        this.rejectedSessions = Counter.builder("biometric.liveness.stream.rejections")
+            .description("Sessões de liveness recusadas pelo limite de sessões abertas")
+            .register(meterRegistry);
+        Gauge.builder("biometric.liveness.stream.sessions", sessions, Map::size)
+            .description("Sessões de liveness por streaming abertas")
+            .register(meterRegistry);
+        Gauge.builder("biometric.liveness.stream.proofs", this, LivenessStreamService::pendingProofs)
+            .description("Tokens de liveness emitidos e ainda não usados nem expirados")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Abre uma sessão
+     *
+     * @return identificador da sessão, ou null se o limite de sessões abertas foi atingido
+     */
+    public String open() {
+        if (sessions.size() >= config.getMaxSessions()) {
+            rejectedSessions.increment();
+            logger.warn("Sessão de liveness recusada: {} sessões abertas", sessions.size());
+            return null;
+        }
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new LivenessSession(sessionId));
+        return sessionId;
+    }
+
+    /**
+     * Processa um quadro da sessão no executor biométrico
+     *
+     * @throws BiometricOverloadException se o executor estiver saturado (o quadro é descartado)
+     * @throws IllegalStateException se a sessão não existir ou já tiver sido decidida
+     */
+    public Update processFrame(String sessionId, byte[] image) throws Exception {
+        LivenessSession session = require(sessionId);
+        // A face do quadro anterior restringe a detecção deste quadro a uma janela ao redor dela
+        FaceRegion regionHint = session.regionHint();
+        LivenessSession.Observation observation = biometricExecutor.execute(Priority.LOGIN,
+            () -> biometricService.observeLivenessFrame(image, regionHint));
+
+        session.record(observation, config.getBlinkDrop());
+        LivenessVerdict.Reason reason = session.evaluate(config, false);
+        LivenessVerdict verdict = reason != null ? conclude(session, reason) : null;
+
+        return new Update(session.frames(),
+            observation != null && observation.hasFace(),
+            observation != null ? observation.region() : null,
+            observation != null && observation.quality() != null ? observation.quality().reason() : null,
+            session.motion(), session.blinkDetected(), verdict);
+    }
+
+    /**
+     * Encerra o envio de quadros e decide a sessão com o que foi recebido
+     */
+    public LivenessVerdict finish(String sessionId) {
+        LivenessSession session = require(sessionId);
+        return conclude(session, session.evaluate(config, true));
+    }
+
+    /**
+     * Descarta a sessão (conexão encerrada antes do veredito)
+     */
+    public void close(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Indica se o token de um veredito positivo ainda pode ser consumido, sem consumi-lo
+     */
+    public boolean hasProof(String livenessToken) {
+        long now = System.nanoTime();
+        synchronized (proofs) {
+            purgeExpiredProofs(now);
+            return proofs.containsKey(livenessToken);
+        }
+    }
+
+    /**
+     * Consome o token emitido por um veredito positivo
+     *
+     * @return template do melhor quadro da sessão, ou null se o token for inválido, expirado ou já usado
+     */
+    public byte[] consumeProof(String livenessToken) {
+        long now = System.nanoTime();
+        Proof proof;
+        synchronized (proofs) {
+            purgeExpiredProofs(now);
+            proof = proofs.remove(livenessToken);
+        }
+        return proof != null ? proof.template() : null;
+    }
+
+    int openSessions() {
+        return sessions.size();
+    }
+
+    int pendingProofs() {
+        synchronized (proofs) {
+            purgeExpiredProofs(System.nanoTime());
+            return proofs.size();
+        }
+    }
+
+    /**
+     * Remove os tokens expirados, do mais antigo até o primeiro ainda válido. Chamado com o
+     * monitor de {@code proofs} adquirido.
+     */
+    private void purgeExpiredProofs(long now) {
+        Iterator<Proof> pending = proofs.values().iterator();
+        while (pending.hasNext() && now - pending.next().expiresAtNanos() > 0) {
+            pending.remove();
+        }
+    }
+
+    private LivenessSession require(String sessionId) {
+        LivenessSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new IllegalStateException("Sessão de liveness inexistente ou encerrada: " + sessionId);
+        }
+        return session;
+    }
+
+    private LivenessVerdict conclude(LivenessSession session, LivenessVerdict.Reason reason) {
+        sessions.remove(session.id());
+
+        String token = null;
+        if (reason == LivenessVerdict.Reason.LIVE) {
+            long now = System.nanoTime();
+            synchronized (proofs) {
+                purgeExpiredProofs(now);
+                if (proofs.size() < config.getMaxPendingProofs()) {
+                    token = UUID.randomUUID().toString();
+                    long expiresAt = now + TimeUnit.SECONDS.toNanos(config.getProofTtlSeconds());
+                    proofs.put(token, new Proof(session.bestTemplate(), expiresAt));
+                }
+            }
+            if (token == null) {
+                logger.warn("Limite de {} tokens de liveness pendentes atingido", config.getMaxPendingProofs());
+                reason = LivenessVerdict.Reason.BUSY;
+            }
+        }
+        verdicts.get(reason).increment();
+
+        logger.info("Sessão de liveness {} decidida: {} ({} quadros, movimento={}, piscada={})",
+            session.id(), reason, session.frames(), Math.round(session.motion() * 100) / 100.0,
+            session.blinkDetected());
+        return new LivenessVerdict(reason, session.frames(), session.motion(), session.blinkDetected(), token);
+    }
+}
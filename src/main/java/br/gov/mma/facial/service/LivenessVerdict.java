@@ -0,0 +1,41 @@
+package br.gov.mma.facial.service;
+
+/**
+ * Veredito de uma sessão de liveness por streaming.
+ *
+ * @param reason        {@link Reason#LIVE} ou o critério não atendido
+ * @param frames        quadros recebidos na sessão
+ * @param motion        energia de movimento média entre quadros consecutivos
+ * @param blinkDetected se uma piscada foi observada
+ * @param livenessToken token de uso único que referencia o melhor quadro da sessão para o
+ *                      login facial; presente apenas no veredito positivo
+ */
+public record LivenessVerdict(Reason reason, int frames, double motion, boolean blinkDetected, String livenessToken) {
+
+    /**
+     * Motivos do veredito, com a orientação exibível ao usuário
+     */
+    public enum Reason {
+        LIVE("Vitalidade confirmada"),
+        NO_FACE("Rosto não encontrado na maior parte dos quadros. Centralize o rosto na câmera."),
+        TRACK_LOST("O rosto mudou de posição bruscamente. Mantenha-se diante da câmera."),
+        NO_MOTION("Nenhum movimento detectado. Mova levemente a cabeça."),
+        NO_BLINK("Nenhuma piscada detectada. Pisque os olhos naturalmente."),
+        TOO_FEW_FRAMES("Quadros insuficientes para a verificação. Tente novamente."),
+        BUSY("Muitas verificações pendentes. Tente novamente em instantes.");
+
+        private final String message;
+
+        Reason(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public boolean live() {
+        return reason == Reason.LIVE;
+    }
+}
@@ -0,0 +1,131 @@
+package br.gov.mma.facial.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Escopo de vida dos {@link Mat} de uma requisição, usado com try-with-resources.
+ *
+ * Todo Mat criado ou recebido pelo pipeline é registrado na arena e liberado com
+ * {@link Mat#release()} no fechamento, em ordem inversa de criação. Sem isso os buffers
+ * nativos só eram devolvidos pela finalização do GC, que não enxerga a memória fora do heap:
+ * sob carga o RSS do processo crescia com o heap ocioso.
+ *
+ * A arena também mantém a contabilidade global de memória nativa (bytes e Mats vivos,
+ * alocações e bytes liberados), exposta como métricas por {@link NativeMatMetrics}. Os bytes
+ * de cada arena são recalculados pela própria thread dona a cada novo registro e no fechamento.
+ *
+ * Não é thread-safe: cada arena pertence à thread que a abriu.
+ */
+public final class MatArena implements AutoCloseable {
+
+    private static final LongAdder LIVE_BYTES = new LongAdder();
+    private static final LongAdder LIVE_MATS = new LongAdder();
+    private static final LongAdder ALLOCATIONS = new LongAdder();
+    private static final LongAdder RELEASED_BYTES = new LongAdder();
+
+    private final List<Mat> mats = new ArrayList<>();
+    private long accountedBytes;
+    private boolean closed;
+
+    private MatArena() {}
+
+    public static MatArena open() {
+        return new MatArena();
+    }
+
+    /**
+     * Novo Mat vazio, alocado pelo OpenCV na primeira operação que o usar como destino
+     */
+    public Mat mat() {
+        return track(new Mat());
+    }
+
+    /**
+     * Região de interesse; compartilha os dados do Mat de origem
+     */
+    public Mat submat(Mat parent, Rect roi) {
+        return track(new Mat(parent, roi));
+    }
+
+    /**
+     * Registra um Mat criado fora da arena (por exemplo o retorno de uma decodificação)
+     *
+     * @return o próprio Mat, ou null se {@code mat} for null
+     */
+    public <T extends Mat> T track(T mat) {
+        if (mat == null) {
+            return null;
+        }
+        if (closed) {
+            mat.release();
+            throw new IllegalStateException("Arena de Mats já foi fechada");
+        }
+        mats.add(mat);
+        refreshBytes();
+        LIVE_MATS.increment();
+        ALLOCATIONS.increment();
+        return mat;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        refreshBytes();
+        for (int i = mats.size() - 1; i >= 0; i--) {
+            mats.get(i).release();
+        }
+        LIVE_MATS.add(-mats.size());
+        LIVE_BYTES.add(-accountedBytes);
+        RELEASED_BYTES.add(accountedBytes);
+        accountedBytes = 0;
+        mats.clear();
+    }
+
+    /**
+     * Bytes nativos retidos pelas arenas abertas
+     */
+    public static long liveBytes() {
+        return LIVE_BYTES.sum();
+    }
+
+    /**
+     * Mats registrados em arenas abertas
+     */
+    public static long liveMats() {
+        return LIVE_MATS.sum();
+    }
+
+    /**
+     * Total de Mats registrados desde o início do processo
+     */
+    public static long allocations() {
+        return ALLOCATIONS.sum();
+    }
+
+    /**
+     * Total de bytes nativos liberados no fechamento das arenas
+     */
+    public static long releasedBytes() {
+        return RELEASED_BYTES.sum();
+    }
+
+    private void refreshBytes() {
+        long bytes = 0;
+        for (Mat mat : mats) {
+            // Sub-matrizes apontam para os dados do Mat de origem, já contabilizados
+            if (!mat.isSubmatrix()) {
+                bytes += mat.total() * mat.elemSize();
+            }
+        }
+        LIVE_BYTES.add(bytes - accountedBytes);
+        accountedBytes = bytes;
+    }
+}
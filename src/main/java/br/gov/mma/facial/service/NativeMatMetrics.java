@@ -0,0 +1,41 @@
+package br.gov.mma.facial.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica no Micrometer a contabilidade de memória nativa das {@link MatArena}s e das
+ * áreas de trabalho de extração ({@link FaceWorkspace})
+ */
+@Component
+public class NativeMatMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("biometric.native.mat.bytes", MatArena::liveBytes)
+            .description("Bytes nativos retidos por Mats do OpenCV em uso")
+            .baseUnit("bytes")
+            .register(registry);
+
+        Gauge.builder("biometric.native.mat.live", MatArena::liveMats)
+            .description("Mats do OpenCV em uso")
+            .register(registry);
+
+        Gauge.builder("biometric.native.workspace.bytes", FaceWorkspace::residentBytes)
+            .description("Bytes nativos pré-alocados nas áreas de trabalho de extração")
+            .baseUnit("bytes")
+            .register(registry);
+
+        FunctionCounter.builder("biometric.native.mat.allocations", MatArena.class, arena -> MatArena.allocations())
+            .description("Mats do OpenCV alocados pelo pipeline biométrico")
+            .register(registry);
+
+        FunctionCounter.builder("biometric.native.mat.released", MatArena.class, arena -> MatArena.releasedBytes())
+            .description("Bytes nativos liberados explicitamente pelo pipeline biométrico")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+}
@@ -0,0 +1,103 @@
+package br.gov.mma.facial.service;
+
+/**
+ * Regras de fusão das distâncias de todos os templates de um mesmo usuário em uma única
+ * distância por usuário (na escala bruta do algoritmo, convertida depois em score).
+ *
+ * A fusão é calculada em uma passada sobre o bloco contíguo de templates do usuário,
+ * preservando o abandono antecipado: o limite recebido vale para a distância fundida.
+ */
+public enum ScoreFusion {
+
+    /**
+     * Menor distância entre o probe e os templates do usuário
+     */
+    MIN("min") {
+        @Override
+        public long blockDistance(TemplateAlgorithm metric, byte[] probe, byte[] block, int offset, int count,
+                                  int length, long bound) {
+            long best = Long.MAX_VALUE;
+            for (int t = 0; t < count; t++) {
+                long distance = metric.distance(probe, 0, block, offset + t * length, length, Math.min(bound, best));
+                if (distance < best) {
+                    best = distance;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public long fuse(long[] distances, int count) {
+            long best = Long.MAX_VALUE;
+            for (int t = 0; t < count; t++) {
+                best = Math.min(best, distances[t]);
+            }
+            return best;
+        }
+    },
+
+    /**
+     * Média das distâncias entre o probe e os templates do usuário
+     */
+    MEAN("mean") {
+        @Override
+        public long blockDistance(TemplateAlgorithm metric, byte[] probe, byte[] block, int offset, int count,
+                                  int length, long bound) {
+            long totalBound = bound > Long.MAX_VALUE / count ? Long.MAX_VALUE : bound * count;
+            long sum = 0;
+            for (int t = 0; t < count; t++) {
+                sum += metric.distance(probe, 0, block, offset + t * length, length, totalBound - sum);
+                if (sum > totalBound) {
+                    return bound == Long.MAX_VALUE ? Long.MAX_VALUE : bound + 1;
+                }
+            }
+            return sum / count;
+        }
+
+        @Override
+        public long fuse(long[] distances, int count) {
+            long sum = 0;
+            for (int t = 0; t < count; t++) {
+                sum += distances[t];
+            }
+            return count == 0 ? Long.MAX_VALUE : sum / count;
+        }
+    };
+
+    private final String name;
+
+    ScoreFusion(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Distância fundida sobre {@code count} templates consecutivos de {@code length} bytes a partir de {@code offset}
+     *
+     * @return a distância fundida se for menor ou igual a {@code bound}; caso contrário um valor maior que {@code bound}
+     */
+    public abstract long blockDistance(TemplateAlgorithm metric, byte[] probe, byte[] block, int offset, int count,
+                                       int length, long bound);
+
+    /**
+     * Fusão de distâncias já calculadas
+     */
+    public abstract long fuse(long[] distances, int count);
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolve a regra configurada (min ou mean)
+     *
+     * @throws IllegalArgumentException se o nome não for reconhecido
+     */
+    public static ScoreFusion fromName(String name) {
+        for (ScoreFusion fusion : values()) {
+            if (fusion.name.equalsIgnoreCase(name)) {
+                return fusion;
+            }
+        }
+        throw new IllegalArgumentException("Regra de fusão de scores desconhecida: " + name);
+    }
+}
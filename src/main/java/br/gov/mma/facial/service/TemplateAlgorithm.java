@@ -0,0 +1,133 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Algoritmos de template facial registrados, identificados pelo campo algorithmVersion.
+ *
+ * Cada algoritmo define sua métrica de distância (em inteiros, com abandono antecipado),
+ * a conversão para score e o threshold aplicável. Templates de algoritmos diferentes
+ * não são comparáveis entre si.
+ */
+public enum TemplateAlgorithm {
+
+    /**
+     * Pixels da face normalizada (128x128 equalizada), comparados por distância RMS
+     */
+    PIXEL_RMS("LBPH-1.0", "LBPH-v1.0") {
+        @Override
+        public long distance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+            return TemplateDistance.squaredDistance(a, aOffset, b, bOffset, length, bound);
+        }
+
+        @Override
+        public double score(long distance, int length) {
+            return TemplateDistance.score(distance, length);
+        }
+
+        @Override
+        public long boundForScore(double maxScore, int length) {
+            return TemplateDistance.boundForScore(maxScore, length);
+        }
+
+        @Override
+        public double threshold(BiometricProperties properties) {
+            return properties.getThreshold();
+        }
+    },
+
+    /**
+     * Histogramas LBP uniformes por célula da grade, comparados por qui-quadrado médio por bin
+     */
+    LBP_HISTOGRAM("LBPH-HIST-1.0") {
+        @Override
+        public long distance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+            return TemplateDistance.chiSquareDistance(a, aOffset, b, bOffset, length, bound);
+        }
+
+        @Override
+        public double score(long distance, int length) {
+            return (double) distance / ((double) TemplateDistance.CHI_SQUARE_SCALE * length);
+        }
+
+        @Override
+        public long boundForScore(double maxScore, int length) {
+            double bound = maxScore * TemplateDistance.CHI_SQUARE_SCALE * length;
+            return bound >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) Math.floor(bound);
+        }
+
+        @Override
+        public double threshold(BiometricProperties properties) {
+            return properties.getLbph().getHistogramThreshold();
+        }
+    };
+
+    private final String version;
+    private final List<String> aliases;
+
+    TemplateAlgorithm(String version, String... aliases) {
+        this.version = version;
+        this.aliases = Arrays.asList(aliases);
+    }
+
+    /**
+     * Distância bruta entre dois templates; acima de {@code bound} o valor retornado é apenas um limite inferior
+     */
+    public abstract long distance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound);
+
+    /**
+     * Converte a distância bruta no score comparado com o threshold (menor é melhor)
+     */
+    public abstract double score(long distance, int length);
+
+    /**
+     * Maior distância bruta cujo score não excede {@code maxScore}
+     */
+    public abstract long boundForScore(double maxScore, int length);
+
+    /**
+     * Threshold configurado para este algoritmo
+     */
+    public abstract double threshold(BiometricProperties properties);
+
+    /**
+     * Score entre dois templates completos
+     *
+     * @return score ou Double.MAX_VALUE se os templates forem nulos ou de tamanhos diferentes
+     */
+    public double score(byte[] template1, byte[] template2) {
+        if (template1 == null || template2 == null || template1.length != template2.length
+                || template1.length == 0) {
+            return Double.MAX_VALUE;
+        }
+        return score(distance(template1, 0, template2, 0, template1.length, Long.MAX_VALUE), template1.length);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Indica se o algorithmVersion persistido pertence a este algoritmo
+     */
+    public boolean matches(String algorithmVersion) {
+        return version.equals(algorithmVersion) || aliases.contains(algorithmVersion);
+    }
+
+    /**
+     * Resolve o algoritmo de um algorithmVersion persistido ou configurado
+     *
+     * @throws IllegalArgumentException se a versão não estiver registrada
+     */
+    public static TemplateAlgorithm fromVersion(String algorithmVersion) {
+        for (TemplateAlgorithm algorithm : values()) {
+            if (algorithm.matches(algorithmVersion)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Versão de algoritmo de template desconhecida: " + algorithmVersion);
+    }
+}
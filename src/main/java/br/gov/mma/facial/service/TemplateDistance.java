@@ -0,0 +1,195 @@
+package br.gov.mma.facial.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Kernel de distância entre templates faciais, compartilhado pela identificação 1:N
+ * e pela validação 1:1 do provider de autenticação.
+ *
+ * A distância é a soma dos quadrados das diferenças entre bytes sem sinal, acumulada
+ * em inteiros. Quando o módulo jdk.incubator.vector está disponível (JVM iniciada com
+ * --add-modules jdk.incubator.vector) usa a Vector API; caso contrário usa o laço escalar.
+ *
+ * Para templates de histograma LBP oferece também a distância qui-quadrado, calculada
+ * em ponto fixo a partir de uma tabela pré-computada para todos os pares de bytes.
+ */
+public final class TemplateDistance {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateDistance.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Propriedade de sistema que força o kernel escalar (diagnóstico)
+     */
+    private static final String DISABLE_VECTOR_PROPERTY = "app.biometric.distance.disable-vector";
+
+    /**
+     * Granularidade (em bytes) da verificação de abandono antecipado
+     */
+    static final int ABANDON_BLOCK_BYTES = 1024;
+
+    /**
+     * Fator de ponto fixo dos termos qui-quadrado ((a-b)²/(a+b) * 16)
+     */
+    public static final int CHI_SQUARE_SCALE = 16;
+
+    private static final int CHI_SQUARE_BLOCK_BINS = 256;
+
+    private static final int[] CHI_SQUARE_TABLE = buildChiSquareTable();
+
+    private static final Kernel KERNEL = selectKernel();
+
+    private TemplateDistance() {}
+
+    /**
+     * Soma dos quadrados das diferenças entre {@code length} bytes de {@code a} e {@code b}
+     */
+    public static long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        return KERNEL.squaredDistance(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Variante com abandono antecipado: interrompe a soma assim que o parcial ultrapassa {@code bound}
+     *
+     * @return a distância exata se for menor ou igual a {@code bound}; caso contrário um valor maior que {@code bound}
+     */
+    public static long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+        return KERNEL.squaredDistance(a, aOffset, b, bOffset, length, bound);
+    }
+
+    /**
+     * Distância qui-quadrado em ponto fixo entre histogramas quantizados em bytes,
+     * com abandono antecipado assim que a soma parcial ultrapassa {@code bound}
+     */
+    public static long chiSquareDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+        long distance = 0;
+        int i = 0;
+        while (i < length) {
+            int blockEnd = Math.min(length, i + CHI_SQUARE_BLOCK_BINS);
+            for (; i < blockEnd; i++) {
+                distance += CHI_SQUARE_TABLE[((a[aOffset + i] & 0xFF) << 8) | (b[bOffset + i] & 0xFF)];
+            }
+            if (distance > bound) {
+                return distance;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Maior distância quadrática cujo score RMS não excede {@code maxScore}
+     */
+    public static long boundForScore(double maxScore, int length) {
+        double bound = maxScore * maxScore * length;
+        return bound >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) Math.floor(bound);
+    }
+
+    /**
+     * Score RMS entre dois templates completos (mesma escala do threshold configurado)
+     *
+     * @return score ou Double.MAX_VALUE se os templates forem nulos ou de tamanhos diferentes
+     */
+    public static double score(byte[] template1, byte[] template2) {
+        if (template1 == null || template2 == null || template1.length != template2.length
+                || template1.length == 0) {
+            return Double.MAX_VALUE;
+        }
+        return score(squaredDistance(template1, 0, template2, 0, template1.length), template1.length);
+    }
+
+    /**
+     * Converte uma distância quadrática em score RMS
+     */
+    public static double score(long squaredDistance, int length) {
+        return Math.sqrt((double) squaredDistance / length);
+    }
+
+    /**
+     * Indica se o kernel vetorial está ativo
+     */
+    public static boolean isVectorized() {
+        return !(KERNEL instanceof ScalarKernel);
+    }
+
+    /**
+     * Implementação escalar de referência, também usada como fallback
+     */
+    static long scalarSquaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        long distance = 0;
+        for (int i = 0; i < length; i++) {
+            int diff = (a[aOffset + i] & 0xFF) - (b[bOffset + i] & 0xFF);
+            distance += diff * diff;
+        }
+        return distance;
+    }
+
+    /**
+     * Versão escalar com abandono antecipado, verificando o limite a cada bloco
+     */
+    static long scalarSquaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+        long distance = 0;
+        int i = 0;
+        while (i < length) {
+            int blockEnd = Math.min(length, i + ABANDON_BLOCK_BYTES);
+            for (; i < blockEnd; i++) {
+                int diff = (a[aOffset + i] & 0xFF) - (b[bOffset + i] & 0xFF);
+                distance += diff * diff;
+            }
+            if (distance > bound) {
+                return distance;
+            }
+        }
+        return distance;
+    }
+
+    private static int[] buildChiSquareTable() {
+        int[] table = new int[256 * 256];
+        for (int a = 0; a < 256; a++) {
+            for (int b = 0; b < 256; b++) {
+                int sum = a + b;
+                int diff = a - b;
+                table[(a << 8) | b] = sum == 0 ? 0 : (int) Math.round((double) diff * diff * CHI_SQUARE_SCALE / sum);
+            }
+        }
+        return table;
+    }
+
+    private static Kernel selectKernel() {
+        if (Boolean.getBoolean(DISABLE_VECTOR_PROPERTY)
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            logger.info("Kernel de distância de templates: escalar");
+            return new ScalarKernel();
+        }
+        try {
+            Kernel kernel = new VectorTemplateDistance();
+            logger.info("Kernel de distância de templates: Vector API ({})", VectorTemplateDistance.describe());
+            return kernel;
+        } catch (LinkageError | RuntimeException e) {
+            logger.warn("Vector API indisponível, usando kernel escalar: {}", e.getMessage());
+            return new ScalarKernel();
+        }
+    }
+
+    /**
+     * Contrato das implementações do kernel
+     */
+    interface Kernel {
+        long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+        long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound);
+    }
+
+    private static final class ScalarKernel implements Kernel {
+        @Override
+        public long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+            return scalarSquaredDistance(a, aOffset, b, bOffset, length);
+        }
+
+        @Override
+        public long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+            return scalarSquaredDistance(a, aOffset, b, bOffset, length, bound);
+        }
+    }
+}
@@ -28,11 +28,14 @@ public class UserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final FaceGallery faceGallery;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
+                       FaceGallery faceGallery) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.faceGallery = faceGallery;
     }
 
     /**
@@ -164,6 +167,7 @@ public class UserService {
      */
     public void delete(User user) {
         userRepository.delete(user);
+        faceGallery.removeUserAfterCommit(user.getId());
         logger.info("Usuário deletado: {} (ID: {})", user.getEmail(), user.getId());
     }
 
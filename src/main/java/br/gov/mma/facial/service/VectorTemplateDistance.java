@@ -0,0 +1,71 @@
+package br.gov.mma.facial.service;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementação do kernel de distância com a Vector API (jdk.incubator.vector).
+ *
+ * Carrega blocos de bytes na forma preferida da CPU, expande cada parte para lanes
+ * de int sem sinal e acumula os quadrados das diferenças em um vetor de int.
+ * Só é referenciada por {@link TemplateDistance} depois de confirmar que o módulo existe.
+ */
+final class VectorTemplateDistance implements TemplateDistance.Kernel {
+
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int PARTS = BYTE_SPECIES.length() / INT_SPECIES.length();
+
+    /**
+     * Bytes acumulados em int antes de reduzir para long.
+     * 1024 * 255² cabe folgadamente em um int mesmo após a redução das lanes.
+     */
+    private static final int BLOCK_BYTES = TemplateDistance.ABANDON_BLOCK_BYTES;
+
+    static String describe() {
+        return BYTE_SPECIES.vectorBitSize() + " bits, " + BYTE_SPECIES.length() + " lanes";
+    }
+
+    @Override
+    public long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        return squaredDistance(a, aOffset, b, bOffset, length, Long.MAX_VALUE);
+    }
+
+    /**
+     * O limite é verificado ao final de cada bloco, quando o acumulador já é reduzido para long
+     */
+    @Override
+    public long squaredDistance(byte[] a, int aOffset, byte[] b, int bOffset, int length, long bound) {
+        int upperBound = BYTE_SPECIES.loopBound(length);
+        int step = BYTE_SPECIES.length();
+        long distance = 0;
+        int i = 0;
+
+        while (i < upperBound) {
+            int blockEnd = Math.min(upperBound, i + BLOCK_BYTES);
+            IntVector accumulator = IntVector.zero(INT_SPECIES);
+            for (; i < blockEnd; i += step) {
+                ByteVector va = ByteVector.fromArray(BYTE_SPECIES, a, aOffset + i);
+                ByteVector vb = ByteVector.fromArray(BYTE_SPECIES, b, bOffset + i);
+                for (int part = 0; part < PARTS; part++) {
+                    IntVector ia = ((IntVector) va.convertShape(VectorOperators.B2I, INT_SPECIES, part)).and(0xFF);
+                    IntVector ib = ((IntVector) vb.convertShape(VectorOperators.B2I, INT_SPECIES, part)).and(0xFF);
+                    IntVector diff = ia.sub(ib);
+                    accumulator = accumulator.add(diff.mul(diff));
+                }
+            }
+            distance += accumulator.reduceLanes(VectorOperators.ADD);
+            if (distance > bound) {
+                return distance;
+            }
+        }
+
+        for (; i < length; i++) {
+            int diff = (a[aOffset + i] & 0xFF) - (b[bOffset + i] & 0xFF);
+            distance += diff * diff;
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,7 @@
+-- V9__Add_compact_template_column.sql
+-- Adiciona a representação compacta (projeção aleatória quantizada em 8 bits) ao lado do template completo
+-- Usada como pré-filtro da identificação 1:N; linhas antigas ficam NULL e são codificadas na carga da galeria
+
+ALTER TABLE user_face_templates ADD COLUMN IF NOT EXISTS compact_template BYTEA;
+
+COMMENT ON COLUMN user_face_templates.compact_template IS 'Template compacto quantizado para pré-filtro da identificação';
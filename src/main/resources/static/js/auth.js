@@ -210,32 +210,57 @@ class AuthManager {
             return await this.handleTraditionalLogin(emailOrMatricula, password);
         }
 
-        this.showLoading('Capturando imagem facial...');
+        const enableLiveness = this.livenessCheck ? this.livenessCheck.checked : true;
+        const sessionId = this.generateSessionId();
+        const metadata = {
+            timestamp: new Date().toISOString(),
+            userAgent: navigator.userAgent,
+            resolution: `${window.screen.width}x${window.screen.height}`
+        };
+
+        // Streaming liveness: frames over one connection; the verdict's token binds the capture below to the session
+        let verdict = null;
+        if (enableLiveness) {
+            this.showLoading('Verificando vitalidade... olhe para a câmera e pisque naturalmente.');
+            verdict = await window.cameraManager.streamLiveness(progress => {
+                if (progress.message) this.showLoading(progress.message);
+            });
+            if (verdict && !verdict.live) {
+                this.showMessage(verdict.message || 'Falha na verificação de vitalidade', 'warning');
+                return;
+            }
+        }
 
-        // Capture frame from camera
+        // Full-resolution capture; with a streaming verdict the server accepts it only if it is the same face
+        this.showLoading('Capturando imagem facial...');
         const imageBase64 = await window.cameraManager.captureFrame();
-        
+
         if (!imageBase64) {
             throw new Error('Falha na captura da imagem');
         }
+        // Echo the last face position so the server searches around it first
+        const faceFields = { faceImageBase64: imageBase64, faceRegionHint: window.cameraManager.faceRegionHint };
+        if (verdict) {
+            faceFields.livenessToken = verdict.livenessToken;
+        }
 
         this.showLoading('Processando autenticação com biometria...');
 
-        const enableLiveness = this.livenessCheck ? this.livenessCheck.checked : true;
-        const sessionId = this.generateSessionId();
-
-        const response = await this.makeRequest('POST', '/login-face', {
-            emailOrMatricula: emailOrMatricula,
-            password: password,
-            faceImageBase64: imageBase64,
-            sessionId: sessionId,
-            enableLivenessCheck: enableLiveness,
-            metadata: {
-                timestamp: new Date().toISOString(),
-                userAgent: navigator.userAgent,
-                resolution: `${window.screen.width}x${window.screen.height}`
-            }
-        });
+        let response;
+        try {
+            response = await this.makeRequest('POST', '/login-face', {
+                emailOrMatricula: emailOrMatricula,
+                password: password,
+                ...faceFields,
+                sessionId: sessionId,
+                enableLivenessCheck: enableLiveness,
+                metadata: metadata
+            });
+        } catch (error) {
+            // Failed attempts still report where the face was, for the retry
+            window.cameraManager.rememberFaceRegion(error.data || { faceRegionHint: null });
+            throw error;
+        }
 
         if (response.success !== false) {
             this.handleAuthSuccess(response);
@@ -578,17 +603,23 @@ class AuthManager {
         const response = await fetch(url, config);
         
         if (!response.ok) {
+            const body = await response.json().catch(() => null);
+            let error;
             if (response.status === 401) {
-                throw new Error('Credenciais inválidas');
+                error = new Error('Credenciais inválidas');
             } else if (response.status === 403) {
-                throw new Error('Acesso negado');
+                error = new Error('Acesso negado');
             } else if (response.status === 429) {
-                throw new Error('Muitas tentativas. Tente novamente em alguns minutos.');
+                error = new Error('Muitas tentativas. Tente novamente em alguns minutos.');
             } else if (response.status >= 500) {
-                throw new Error('Erro interno do servidor');
+                error = new Error('Erro interno do servidor');
             } else {
-                throw new Error(`Erro HTTP ${response.status}`);
+                // Biometric rejections carry a user-facing message (e.g. quality gate coaching)
+                error = new Error(body && body.message ? body.message : `Erro HTTP ${response.status}`);
             }
+            // Structured data of the rejection (e.g. the face position hint) for the caller
+            error.data = body ? body.data : null;
+            throw error;
         }
 
         const result = await response.json();
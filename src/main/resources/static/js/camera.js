@@ -10,6 +10,10 @@ class CameraManager {
         this.isDetecting = false;
         this.detectionInterval = null;
         this.faceCascade = null;
+        this.qualityThresholds = undefined;
+        this.qualityThumbnail = null;
+        // Face position from the server's last response ("x,y,w,h" fractions), echoed on the next frame
+        this.faceRegionHint = null;
         
         this.initializeElements();
     }
@@ -120,6 +124,7 @@ class CameraManager {
             if (this.video) {
                 this.video.srcObject = null;
             }
+            this.faceRegionHint = null;
 
             this.showPlaceholder();
             this.updateStatus('Câmera desconectada.', 'info');
@@ -161,6 +166,13 @@ class CameraManager {
             const imageData = this.ctx.getImageData(0, 0, this.canvas.width, this.canvas.height);
             const faceDetected = this.simulateFaceDetection(imageData);
 
+            // Quality gate on a thumbnail, measured in the browser with the server's thresholds
+            const quality = await this.checkFrameQuality();
+            if (quality && !quality.accepted) {
+                this.updateStatus(quality.message, 'warning');
+                return;
+            }
+
             if (faceDetected) {
                 this.updateStatus('Rosto detectado! Pronto para autenticar.', 'success');
                 this.drawFaceBox(faceDetected);
@@ -173,6 +185,165 @@ class CameraManager {
         }
     }
 
+    streamLiveness(onProgress = null) {
+        // Streams frames to a server liveness session over one WebSocket, at the width the server
+        // announces (its detection working width, where the minimum face size applies).
+        // Resolves with the verdict message, or null when streaming is unavailable (caller falls back).
+        if (!('WebSocket' in window) || !this.video || !this.canvas) {
+            return Promise.resolve(null);
+        }
+
+        return new Promise(resolve => {
+            const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:';
+            let socket;
+            try {
+                socket = new WebSocket(`${protocol}//${window.location.host}/api/auth/liveness-stream`);
+            } catch (error) {
+                console.warn('Liveness por streaming indisponível:', error);
+                resolve(null);
+                return;
+            }
+
+            const frame = document.createElement('canvas');
+            const frameCtx = frame.getContext('2d');
+
+            let timer = null;
+            let verdict = null;
+            let inFlight = false;
+            const stop = () => {
+                if (timer) {
+                    clearInterval(timer);
+                    timer = null;
+                }
+            };
+
+            const start = frameWidth => {
+                frame.width = Math.min(frameWidth, this.canvas.width);
+                frame.height = Math.round(frame.width * this.canvas.height / this.canvas.width);
+                // One frame in flight at a time: the server's pace sets the frame rate
+                timer = setInterval(() => {
+                    if (inFlight || socket.readyState !== WebSocket.OPEN) return;
+                    inFlight = true;
+                    frameCtx.drawImage(this.video, 0, 0, frame.width, frame.height);
+                    frame.toBlob(blob => {
+                        if (blob && socket.readyState === WebSocket.OPEN) {
+                            socket.send(blob);
+                        } else {
+                            inFlight = false;
+                        }
+                    }, 'image/jpeg', 0.7);
+                }, 150);
+            };
+
+            socket.onmessage = event => {
+                const message = JSON.parse(event.data);
+                if (message.type === 'ready') {
+                    start(message.frameWidth);
+                } else if (message.type === 'verdict') {
+                    verdict = message;
+                    stop();
+                } else {
+                    inFlight = false;
+                    this.rememberFaceRegion(message);
+                    if (onProgress) onProgress(message);
+                }
+            };
+
+            socket.onerror = () => stop();
+            socket.onclose = () => {
+                stop();
+                resolve(verdict);
+            };
+        });
+    }
+
+    rememberFaceRegion(data) {
+        // Keeps the server's face position hint; a response without a face clears it
+        if (data && 'faceRegionHint' in data) {
+            this.faceRegionHint = data.faceRegionHint || null;
+        }
+    }
+
+    async loadQualityThresholds() {
+        // Fetched once per page; null while loading, when unavailable or when the gate is disabled
+        if (this.qualityThresholds !== undefined) return this.qualityThresholds;
+        this.qualityThresholds = null;
+        try {
+            const response = await fetch('/api/auth/frame-quality');
+            if (response.ok) {
+                const result = await response.json();
+                this.qualityThresholds = result.data && result.data.enabled ? result.data : null;
+            }
+        } catch (error) {
+            console.warn('Limites da triagem de qualidade indisponíveis:', error);
+        }
+        return this.qualityThresholds;
+    }
+
+    async checkFrameQuality() {
+        // Same measures as the server's FrameQualityGate: brightness, contrast and Laplacian variance
+        const thresholds = await this.loadQualityThresholds();
+        if (!thresholds) return null;
+
+        if (!this.qualityThumbnail) {
+            this.qualityThumbnail = document.createElement('canvas');
+            this.qualityThumbnail.width = Math.min(thresholds.thumbnailWidth, this.canvas.width);
+            this.qualityThumbnail.height = Math.max(1,
+                Math.round(this.qualityThumbnail.width * this.canvas.height / this.canvas.width));
+        }
+        const width = this.qualityThumbnail.width;
+        const height = this.qualityThumbnail.height;
+        const ctx = this.qualityThumbnail.getContext('2d');
+        ctx.drawImage(this.canvas, 0, 0, width, height);
+        const pixels = ctx.getImageData(0, 0, width, height).data;
+
+        const gray = new Float32Array(width * height);
+        let sum = 0;
+        let sumSquares = 0;
+        for (let i = 0; i < gray.length; i++) {
+            const value = 0.299 * pixels[i * 4] + 0.587 * pixels[i * 4 + 1] + 0.114 * pixels[i * 4 + 2];
+            gray[i] = value;
+            sum += value;
+            sumSquares += value * value;
+        }
+        const brightness = sum / gray.length;
+        const contrast = Math.sqrt(Math.max(0, sumSquares / gray.length - brightness * brightness));
+
+        let laplacianSum = 0;
+        let laplacianSquares = 0;
+        let count = 0;
+        for (let y = 1; y < height - 1; y++) {
+            for (let x = 1; x < width - 1; x++) {
+                const i = y * width + x;
+                const laplacian = gray[i - 1] + gray[i + 1] + gray[i - width] + gray[i + width] - 4 * gray[i];
+                laplacianSum += laplacian;
+                laplacianSquares += laplacian * laplacian;
+                count++;
+            }
+        }
+        const laplacianMean = count ? laplacianSum / count : 0;
+        const sharpness = count ? laplacianSquares / count - laplacianMean * laplacianMean : 0;
+
+        let reason = 'OK';
+        if (brightness < thresholds.minBrightness) {
+            reason = 'TOO_DARK';
+        } else if (brightness > thresholds.maxBrightness) {
+            reason = 'TOO_BRIGHT';
+        } else if (contrast < thresholds.minContrast) {
+            reason = 'LOW_CONTRAST';
+        } else if (sharpness < thresholds.minSharpness) {
+            reason = 'BLURRY';
+        }
+        return {
+            accepted: reason === 'OK',
+            reason,
+            brightness,
+            contrast,
+            sharpness,
+            message: thresholds.messages[reason]
+        };
+    }
+
     simulateFaceDetection(imageData) {
         // Simplified face detection simulation
         // In production, this would use actual computer vision algorithms
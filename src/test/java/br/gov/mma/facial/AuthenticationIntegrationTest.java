@@ -7,20 +7,38 @@ import br.gov.mma.facial.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @ActiveProfiles("test")
 class AuthenticationIntegrationTest {
 
+    @Autowired
+    private MockMvc mockMvc;
+
     @Autowired
     private UserService userService;
 
@@ -68,4 +86,48 @@ class AuthenticationIntegrationTest {
         Authentication matriculaAuth = authenticationManager.authenticate(tokenWithMatricula);
         assertThat(matriculaAuth.isAuthenticated()).isTrue();
     }
+
+    @Test
+    void loginFaceAcceptsMultipartAndRawJpegBodies() throws Exception {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9};
+
+        mockMvc.perform(multipart("/api/auth/login-face")
+                .file(new MockMultipartFile("faceImage", "face.jpg", MediaType.IMAGE_JPEG_VALUE, jpeg))
+                .param("sessionId", "multipart-session")
+                .param("enableLivenessCheck", "false"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Falha no processamento da imagem facial"));
+        verify(biometricService).analyzeFrame(any(byte[].class), eq(false));
+
+        mockMvc.perform(post("/api/auth/login-face")
+                .contentType(MediaType.IMAGE_JPEG)
+                .param("sessionId", "jpeg-session")
+                .content(jpeg))
+            .andExpect(status().isBadRequest());
+        verify(biometricService).analyzeFrame(any(byte[].class), eq(true));
+        verify(biometricService, org.mockito.Mockito.never()).analyzeFrame(any(String.class), anyBoolean());
+    }
+
+    @Test
+    void binaryLoginHonoursLivenessToken() throws Exception {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9};
+
+        mockMvc.perform(multipart("/api/auth/login-face")
+                .file(new MockMultipartFile("faceImage", "face.jpg", MediaType.IMAGE_JPEG_VALUE, jpeg))
+                .param("sessionId", "multipart-session")
+                .param("livenessToken", "unknown-token"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message")
+                .value("Verificação de vitalidade expirada ou inválida. Repita a verificação."));
+        verify(biometricService, org.mockito.Mockito.never()).analyzeFrame(any(byte[].class), anyBoolean());
+    }
+
+    @Test
+    void frameQualityThresholdsAreServedForTheBrowserGate() throws Exception {
+        mockMvc.perform(get("/api/auth/frame-quality"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.data.enabled").value(false))
+            .andExpect(jsonPath("$.data.thumbnailWidth").value(96))
+            .andExpect(jsonPath("$.data.messages.BLURRY").exists());
+    }
 }
@@ -0,0 +1,114 @@
+package br.gov.mma.facial.security;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.entity.FaceTemplate;
+import br.gov.mma.facial.entity.User;
+import br.gov.mma.facial.repository.FaceTemplateRepository;
+import br.gov.mma.facial.repository.UserRepository;
+import br.gov.mma.facial.service.FaceGallery;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BiometricAuthenticationProviderTest {
+
+    private static final String USERNAME = "ana@mma.gov.br";
+
+    private final FaceTemplateRepository faceTemplateRepository = mock(FaceTemplateRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final BiometricAuthenticationProvider provider = new BiometricAuthenticationProvider(
+        faceTemplateRepository, userRepository, new BiometricProperties());
+
+    @Test
+    void rescoresTheTemplateSelectedByTheGallery() {
+        User user = user(10L);
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+        FaceTemplate matched = template(1L, user, (byte) 100);
+        when(faceTemplateRepository.findById(1L)).thenReturn(Optional.of(matched));
+        when(faceTemplateRepository.findByUser(user)).thenReturn(List.of(matched));
+
+        Authentication authenticated = provider.authenticate(
+            new BiometricAuthenticationToken(USERNAME, filled((byte) 100), new FaceGallery.Match(10L, 1L, 0.0)));
+
+        assertThat(authenticated.isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void rejectsGalleryMatchesThatDoNotHoldAgainstTheDatabase() {
+        User user = user(10L);
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+        FaceTemplate own = template(1L, user, (byte) 100);
+        when(faceTemplateRepository.findById(1L)).thenReturn(Optional.of(own));
+        when(faceTemplateRepository.findByUser(user)).thenReturn(List.of(own));
+        when(faceTemplateRepository.findById(2L)).thenReturn(Optional.of(template(2L, user(20L), (byte) 200)));
+
+        // O score informado no token não é aceito: o probe está longe do template do usuário
+        assertThatThrownBy(() -> provider.authenticate(
+            new BiometricAuthenticationToken(USERNAME, filled((byte) 200), new FaceGallery.Match(10L, 1L, 0.0))))
+            .isInstanceOf(BadCredentialsException.class);
+        // Template de outro usuário
+        assertThatThrownBy(() -> provider.authenticate(
+            new BiometricAuthenticationToken(USERNAME, filled((byte) 200), new FaceGallery.Match(10L, 2L, 0.0))))
+            .isInstanceOf(BadCredentialsException.class);
+        // Template inexistente
+        assertThatThrownBy(() -> provider.authenticate(
+            new BiometricAuthenticationToken(USERNAME, filled((byte) 100), new FaceGallery.Match(10L, 3L, 0.0))))
+            .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void rescoresGalleryMatchesWithTheGalleryTemplateSetAndFusion() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getSearch().setFusion("mean");
+        properties.getSearch().setTemplatesPerUser(2);
+        BiometricAuthenticationProvider meanProvider = new BiometricAuthenticationProvider(
+            faceTemplateRepository, userRepository, properties);
+        User user = user(10L);
+        FaceTemplate outdated = template(1L, user, (byte) 200);
+        FaceTemplate older = template(2L, user, (byte) 100);
+        FaceTemplate matched = template(3L, user, (byte) 100);
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+        when(faceTemplateRepository.findById(3L)).thenReturn(Optional.of(matched));
+        BiometricAuthenticationToken token =
+            new BiometricAuthenticationToken(USERNAME, filled((byte) 100), new FaceGallery.Match(10L, 3L, 0.0));
+
+        // Só os templatesPerUser mais recentes entram na fusão, como na galeria
+        when(faceTemplateRepository.findByUser(user)).thenReturn(List.of(matched, outdated, older));
+        assertThat(meanProvider.authenticate(token).isAuthenticated()).isTrue();
+
+        // Com a média, um template recente distante reprova mesmo com o template indicado idêntico
+        FaceTemplate distant = template(4L, user, (byte) 200);
+        when(faceTemplateRepository.findByUser(user)).thenReturn(List.of(outdated, older, matched, distant));
+        assertThatThrownBy(() -> meanProvider.authenticate(
+            new BiometricAuthenticationToken(USERNAME, filled((byte) 100), new FaceGallery.Match(10L, 3L, 0.0))))
+            .isInstanceOf(BadCredentialsException.class);
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(USERNAME);
+        return user;
+    }
+
+    private static FaceTemplate template(long id, User user, byte value) {
+        FaceTemplate template = new FaceTemplate(user, filled(value), "LBPH-1.0");
+        template.setId(id);
+        return template;
+    }
+
+    private static byte[] filled(byte value) {
+        byte[] bytes = new byte[1024];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
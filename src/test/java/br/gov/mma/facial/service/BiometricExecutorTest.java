@@ -0,0 +1,238 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.service.BiometricExecutor.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BiometricExecutorTest {
+
+    @Test
+    void shedsLoadWhenQueueIsFullOrWaitExpires() throws Exception {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getExecutor().setThreads(1);
+        properties.getExecutor().setQueueCapacity(1);
+        properties.getExecutor().setQueueTimeoutMs(500L);
+        properties.getExecutor().setRetryAfterSeconds(7);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BiometricExecutor executor = new BiometricExecutor(properties, registry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> call(executor, () -> {
+                started.countDown();
+                release.await();
+                return "done";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Ocupa a única posição da fila e expira sem começar
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> call(executor, () -> "late"));
+            waitForQueueDepth(executor, 1);
+            assertThatThrownBy(() -> executor.execute(Priority.LOGIN, () -> "rejected"))
+                .isInstanceOf(BiometricOverloadException.class)
+                .extracting(e -> ((BiometricOverloadException) e).getRetryAfterSeconds())
+                .isEqualTo(7);
+            assertThatThrownBy(queued::join).hasCauseInstanceOf(BiometricOverloadException.class);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertThat(registry.get("biometric.executor.rejections").tags("priority", "login", "reason", "queue-full").counter().count()).isEqualTo(1);
+        assertThat(registry.get("biometric.executor.rejections").tags("priority", "login", "reason", "queue-timeout").counter().count()).isEqualTo(1);
+        assertThat(registry.get("biometric.executor.queue.wait").tag("priority", "login").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsImmediatelyWhenTotalQueueIsFull() throws Exception {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getExecutor().setThreads(1);
+        properties.getExecutor().setQueueCapacity(2);
+        properties.getExecutor().setMaxQueued(2);
+        properties.getExecutor().setQueueTimeoutMs(10_000L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BiometricExecutor executor = new BiometricExecutor(properties, registry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> call(executor, () -> {
+                started.countDown();
+                release.await();
+                return "done";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<String> login = CompletableFuture.supplyAsync(() -> call(executor, () -> "login"));
+            CompletableFuture<String> enrollment =
+                CompletableFuture.supplyAsync(() -> call(executor, Priority.ENROLLMENT, () -> "enrollment"));
+            waitForQueueDepth(executor, 2);
+
+            // A fila do lote está vazia, mas o total já chegou ao limite: recusa sem esperar
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> executor.execute(Priority.BATCH, () -> "rejected"))
+                .isInstanceOf(BiometricOverloadException.class);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+            release.countDown();
+            CompletableFuture.allOf(running, login, enrollment).get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertThat(registry.get("biometric.executor.rejections").tags("priority", "batch", "reason", "queue-full").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void servesLoginBeforeEnrollmentAndPromotesStarvingTasks() throws Exception {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getExecutor().setThreads(1);
+        properties.getExecutor().setQueueTimeoutMs(10_000L);
+        properties.getExecutor().setStarvationThresholdMs(200L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BiometricExecutor executor = new BiometricExecutor(properties, registry);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> blocker = CompletableFuture.supplyAsync(() -> call(executor, Priority.BATCH, () -> {
+                started.countDown();
+                release.await();
+                return "blocker";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<String> batch = submit(executor, Priority.BATCH, "batch", order);
+            waitForQueueDepth(executor, 1);
+            CompletableFuture<String> enrollment = submit(executor, Priority.ENROLLMENT, "enrollment", order);
+            waitForQueueDepth(executor, 2);
+            CompletableFuture<String> login = submit(executor, Priority.LOGIN, "login", order);
+            waitForQueueDepth(executor, 3);
+
+            // Ainda sem inanição: login e cadastro passam à frente do lote mais antigo
+            release.countDown();
+            CompletableFuture.allOf(blocker, batch, enrollment, login).get(5, TimeUnit.SECONDS);
+            assertThat(order).containsExactly("login", "enrollment", "batch");
+
+            // O lote que esperou além do limite é atendido antes de um login recém-chegado
+            order.clear();
+            CountDownLatch secondStart = new CountDownLatch(1);
+            CountDownLatch secondRelease = new CountDownLatch(1);
+            CompletableFuture<String> secondBlocker = CompletableFuture.supplyAsync(() -> call(executor, Priority.LOGIN, () -> {
+                secondStart.countDown();
+                secondRelease.await();
+                return "blocker";
+            }));
+            assertThat(secondStart.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<String> starving = submit(executor, Priority.BATCH, "batch", order);
+            waitForQueueDepth(executor, 1);
+            Thread.sleep(300);
+            CompletableFuture<String> lateLogin = submit(executor, Priority.LOGIN, "login", order);
+            waitForQueueDepth(executor, 2);
+            secondRelease.countDown();
+            CompletableFuture.allOf(secondBlocker, starving, lateLogin).get(5, TimeUnit.SECONDS);
+            assertThat(order).containsExactly("batch", "login");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertThat(registry.get("biometric.executor.promotions").tag("priority", "batch").counter().count()).isEqualTo(1);
+        assertThat(registry.get("biometric.executor.latency").tag("priority", "login").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void propagatesTaskExceptionsUnwrapped() {
+        BiometricExecutor executor = new BiometricExecutor(new BiometricProperties(), new SimpleMeterRegistry());
+        try {
+            assertThatThrownBy(() -> executor.execute(Priority.ENROLLMENT, () -> {
+                throw new IOException("imagem inválida");
+            })).isInstanceOf(IOException.class).hasMessage("imagem inválida");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void runsBatchInParallelAndRejectsItWhole() throws Exception {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getExecutor().setThreads(3);
+        properties.getExecutor().setQueueCapacity(3);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BiometricExecutor executor = new BiometricExecutor(properties, registry);
+        try {
+            // Só termina se as três tarefas estiverem em execução ao mesmo tempo
+            CountDownLatch together = new CountDownLatch(3);
+            List<Callable<Integer>> tasks = List.of(1, 2, 3).stream()
+                .<Callable<Integer>>map(value -> () -> {
+                    together.countDown();
+                    assertThat(together.await(5, TimeUnit.SECONDS)).isTrue();
+                    return value * 10;
+                })
+                .toList();
+            assertThat(executor.executeAll(Priority.ENROLLMENT, tasks)).containsExactly(10, 20, 30);
+
+            // Lote maior que a fila: recusado sem executar nenhuma tarefa
+            List<String> executed = new CopyOnWriteArrayList<>();
+            List<Callable<String>> oversized = List.of("a", "b", "c", "d").stream()
+                .<Callable<String>>map(name -> () -> {
+                    executed.add(name);
+                    return name;
+                })
+                .toList();
+            assertThatThrownBy(() -> executor.executeAll(Priority.ENROLLMENT, oversized))
+                .isInstanceOf(BiometricOverloadException.class);
+            assertThat(executed).isEmpty();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(registry.get("biometric.executor.rejections").tags("priority", "enrollment", "reason", "queue-full").counter().count()).isEqualTo(1);
+    }
+
+    private static CompletableFuture<String> submit(BiometricExecutor executor, Priority priority,
+                                                    String name, List<String> order) {
+        return CompletableFuture.supplyAsync(() -> call(executor, priority, () -> {
+            order.add(name);
+            return name;
+        }));
+    }
+
+    private static <T> T call(BiometricExecutor executor, Callable<T> task) {
+        return call(executor, Priority.LOGIN, task);
+    }
+
+    private static <T> T call(BiometricExecutor executor, Priority priority, Callable<T> task) {
+        try {
+            return executor.execute(priority, task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitForQueueDepth(BiometricExecutor executor, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.queueDepth() < depth && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BiometricServiceTest {
+
+    @Test
+    void mapsDetectionRectBackToFullResolution() {
+        Rect rect = BiometricService.scaleRect(new Rect(100, 50, 80, 80), 3.0, 1920, 1080);
+
+        assertThat(rect).isEqualTo(new Rect(300, 150, 240, 240));
+    }
+
+    @Test
+    void clampsMappedRectToImageBounds() {
+        Rect rect = BiometricService.scaleRect(new Rect(600, 300, 40, 60), 3.0, 1920, 1080);
+
+        assertThat(rect.x + rect.width).isEqualTo(1920);
+        assertThat(rect.y + rect.height).isEqualTo(1080);
+    }
+}
@@ -0,0 +1,53 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CascadeClassifierPoolTest {
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void lendsExclusiveClassifiersAndTimesOutWhenExhausted() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getDetection().setPoolSize(2);
+        properties.getDetection().setBorrowTimeoutMs(20L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CascadeClassifierPool pool = new CascadeClassifierPool(
+            properties.getCascadeClassifierPath(), properties.getDetection(), registry);
+
+        try (CascadeClassifierPool.Lease first = pool.borrow();
+             CascadeClassifierPool.Lease second = pool.borrow()) {
+            assertThat(first.classifier()).isNotSameAs(second.classifier());
+            assertThat(pool.available()).isZero();
+            assertThatThrownBy(pool::borrow).isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThat(pool.available()).isEqualTo(2);
+        assertThat(registry.get("biometric.detection.pool.wait").timer().count()).isEqualTo(3);
+        assertThat(registry.get("biometric.detection.pool.timeouts").counter().count()).isEqualTo(1);
+        assertThat(registry.get("biometric.detection.pool.available").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void cachesClasspathCascadeInASingleFile() throws Exception {
+        Path first = CascadeClassifierPool.resolveCascadeFile("haarcascade_frontalface_default.xml");
+        long modified = Files.getLastModifiedTime(first).toMillis();
+
+        Path second = CascadeClassifierPool.resolveCascadeFile("haarcascade_frontalface_default.xml");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(Files.getLastModifiedTime(second).toMillis()).isEqualTo(modified);
+    }
+}
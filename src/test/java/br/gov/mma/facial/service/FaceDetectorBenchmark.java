@@ -0,0 +1,160 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vazão e taxa de detecção das implementações de {@link FaceDetector}.
+ * Executar com {@code mvn test -Pbenchmark}.
+ *
+ * A vazão é medida em quadros sintéticos na largura de trabalho padrão (640 px), onde o custo é
+ * dominado pela varredura da pirâmide. A taxa de detecção usa o conjunto de amostras em
+ * {@code -Dface.samples=<diretório>} (padrão {@code src/test/resources/faces}; imagens .jpg/.png
+ * com exatamente uma face cada). O detector dnn só participa com {@code -Dface.dnn.model}
+ * (e {@code -Dface.dnn.config}, se o formato exigir).
+ */
+@Tag("benchmark")
+class FaceDetectorBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final int WORKING_WIDTH = 640;
+    private static final Size MIN_FACE = new Size(128, 128);
+
+    private final FaceWorkspace workspace = new FaceWorkspace(BiometricService.NORMALIZED_FACE_SIZE);
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void comparesThroughputAndDetectionRate() throws IOException {
+        List<Mat> synthetic = syntheticFrames(8);
+        List<Mat> samples = loadSamples(Path.of(System.getProperty("face.samples", "src/test/resources/faces")));
+
+        System.out.printf("%-6s %12s %12s%n", "detector", "quadros/s", "detecção");
+        for (FaceDetector detector : detectors()) {
+            double throughput = throughput(detector, synthetic);
+            String rate = samples.isEmpty()
+                ? "sem amostras"
+                : String.format(Locale.ROOT, "%.1f%% (%d)", 100.0 * detected(detector, samples) / samples.size(),
+                    samples.size());
+            System.out.printf(Locale.ROOT, "%-8s %12.1f %12s%n", detector.name(), throughput, rate);
+            assertThat(throughput).isPositive();
+        }
+    }
+
+    private static List<FaceDetector> detectors() {
+        List<FaceDetector> detectors = new ArrayList<>();
+        for (String name : new String[] {CascadeFaceDetector.HAAR, CascadeFaceDetector.LBP}) {
+            BiometricProperties properties = new BiometricProperties();
+            properties.getDetection().setDetector(name);
+            properties.getDetection().setPoolSize(1);
+            detectors.add(FaceDetector.create(properties, new SimpleMeterRegistry()));
+        }
+        String dnnModel = System.getProperty("face.dnn.model");
+        if (dnnModel != null) {
+            BiometricProperties properties = new BiometricProperties();
+            properties.getDetection().setDetector(DnnFaceDetector.NAME);
+            properties.getDetection().setDnnModelPath(dnnModel);
+            properties.getDetection().setDnnConfigPath(System.getProperty("face.dnn.config", ""));
+            detectors.add(FaceDetector.create(properties, new SimpleMeterRegistry()));
+        }
+        return detectors;
+    }
+
+    private double throughput(FaceDetector detector, List<Mat> frames) {
+        for (int i = 0; i < WARMUP; i++) {
+            detect(detector, frames.get(i % frames.size()));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            detect(detector, frames.get(i % frames.size()));
+        }
+        return ITERATIONS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private int detected(FaceDetector detector, List<Mat> samples) {
+        int found = 0;
+        for (Mat sample : samples) {
+            if (detect(detector, sample).length > 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private Rect[] detect(FaceDetector detector, Mat gray) {
+        Size maxSize = new Size(Math.min(gray.cols(), gray.rows()), Math.min(gray.cols(), gray.rows()));
+        return detector.detect(gray, MIN_FACE, maxSize, workspace);
+    }
+
+    /**
+     * Amostras em escala de cinza reduzidas à largura de trabalho, como na extração
+     */
+    private static List<Mat> loadSamples(Path directory) throws IOException {
+        List<Mat> samples = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return samples;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (!name.endsWith(".jpg") && !name.endsWith(".jpeg") && !name.endsWith(".png")) {
+                    continue;
+                }
+                Mat gray = Imgcodecs.imread(file.toString(), Imgcodecs.IMREAD_GRAYSCALE);
+                if (gray.empty()) {
+                    continue;
+                }
+                if (gray.cols() > WORKING_WIDTH) {
+                    double scale = (double) gray.cols() / WORKING_WIDTH;
+                    Imgproc.resize(gray, gray, new Size(WORKING_WIDTH, Math.round(gray.rows() / scale)),
+                        0, 0, Imgproc.INTER_AREA);
+                }
+                samples.add(gray);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Quadros 640x480 com textura e gradientes, sem faces: pior caso da varredura em cascata
+     */
+    private static List<Mat> syntheticFrames(int count) {
+        Random random = new Random(29);
+        List<Mat> frames = new ArrayList<>();
+        for (int f = 0; f < count; f++) {
+            byte[] pixels = new byte[WORKING_WIDTH * 480];
+            for (int y = 0; y < 480; y++) {
+                for (int x = 0; x < WORKING_WIDTH; x++) {
+                    pixels[y * WORKING_WIDTH + x] = (byte) ((x / 3 + y / 2 + f * 17 + random.nextInt(40)) & 0xFF);
+                }
+            }
+            Mat frame = new Mat(480, WORKING_WIDTH, org.opencv.core.CvType.CV_8UC1);
+            frame.put(0, 0, pixels);
+            frames.add(frame);
+        }
+        return frames;
+    }
+}
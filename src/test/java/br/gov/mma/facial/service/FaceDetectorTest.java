@@ -0,0 +1,47 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FaceDetectorTest {
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void createsConfiguredCascadeDetector() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getDetection().setDetector(" LBP ");
+        properties.getDetection().setPoolSize(1);
+
+        FaceDetector detector = FaceDetector.create(properties, new SimpleMeterRegistry());
+
+        assertThat(detector.name()).isEqualTo("lbp");
+        Mat blank = new Mat(240, 320, CvType.CV_8UC1, new Scalar(128));
+        assertThat(detector.detect(blank, new Size(64, 64), new Size(240, 240), new FaceWorkspace(128))).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownDetectorAndMissingDnnModel() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getDetection().setDetector("yolo");
+        assertThatThrownBy(() -> FaceDetector.create(properties, new SimpleMeterRegistry()))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        properties.getDetection().setDetector("dnn");
+        properties.getDetection().setDnnModelPath("inexistente/modelo.caffemodel");
+        assertThatThrownBy(() -> FaceDetector.create(properties, new SimpleMeterRegistry()))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
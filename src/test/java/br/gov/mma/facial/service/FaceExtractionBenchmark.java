@@ -0,0 +1,123 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Alocação por extração: pipeline antigo (buffers novos a cada chamada) contra a área de
+ * trabalho reaproveitada. Executar com {@code mvn test -Pbenchmark}.
+ *
+ * A detecção de faces fica de fora (a região da face é fixa) para isolar o custo dos passos
+ * de decodificação, recorte, redimensionamento, equalização e histograma.
+ */
+@Tag("benchmark")
+class FaceExtractionBenchmark {
+
+    private static final int FACE = BiometricService.NORMALIZED_FACE_SIZE;
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 2000;
+    private static final Rect FACE_RECT = new Rect(200, 120, 240, 240);
+
+    private final LbpHistogramExtractor extractor = new LbpHistogramExtractor(2, 16, 8, 8);
+    private final FrameDecoder decoder = new FrameDecoder(true, 1);
+    private final FaceWorkspace workspace = new FaceWorkspace(FACE);
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void workspaceExtractionAllocatesLessPerCall() throws IOException {
+        byte[] jpeg = syntheticJpeg(640, 480);
+        assertThat(workspaceExtraction(jpeg)).isEqualTo(legacyExtraction(jpeg));
+
+        Allocation legacy = measure("buffers por chamada", () -> legacyExtraction(jpeg));
+        Allocation reused = measure("área de trabalho", () -> workspaceExtraction(jpeg));
+
+        assertThat(reused.heapBytes()).isLessThan(legacy.heapBytes());
+        assertThat(reused.nativeBytes()).isLessThan(legacy.nativeBytes());
+        assertThat(reused.nativeMats()).isLessThan(legacy.nativeMats());
+    }
+
+    /**
+     * Sequência da extração antes da área de trabalho
+     */
+    private byte[] legacyExtraction(byte[] jpeg) {
+        try (MatArena arena = MatArena.open()) {
+            MatOfByte encoded = arena.track(new MatOfByte(jpeg));
+            Mat gray = arena.track(Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_GRAYSCALE));
+            Mat faceROI = arena.submat(gray, FACE_RECT);
+            Mat normalized = arena.mat();
+            Imgproc.resize(faceROI, normalized, new Size(FACE, FACE));
+            Mat equalized = arena.mat();
+            Imgproc.equalizeHist(normalized, equalized);
+            byte[] pixels = new byte[(int) (equalized.total() * equalized.elemSize())];
+            equalized.get(0, 0, pixels);
+            return extractor.extract(pixels, FACE, FACE);
+        }
+    }
+
+    private byte[] workspaceExtraction(byte[] jpeg) {
+        try (MatArena arena = MatArena.open()) {
+            Mat gray = arena.track(decoder.decodeGray(jpeg, workspace));
+            byte[] pixels = workspace.normalize(gray, FACE_RECT);
+            return extractor.extract(pixels, FACE, FACE, workspace.histogramCounts(extractor.templateLength()));
+        }
+    }
+
+    private static Allocation measure(String label, Supplier<byte[]> extraction) {
+        for (int i = 0; i < WARMUP; i++) {
+            extraction.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long heapBefore = threads.getCurrentThreadAllocatedBytes();
+        long matsBefore = MatArena.allocations();
+        long nativeBefore = MatArena.releasedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            extraction.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        Allocation allocation = new Allocation(
+            (threads.getCurrentThreadAllocatedBytes() - heapBefore) / ITERATIONS,
+            (MatArena.releasedBytes() - nativeBefore) / ITERATIONS,
+            (double) (MatArena.allocations() - matsBefore) / ITERATIONS);
+        System.out.printf("%-20s heap=%,d B/chamada nativo=%,d B/chamada mats=%.1f/chamada tempo=%,d us/chamada%n",
+            label, allocation.heapBytes(), allocation.nativeBytes(), allocation.nativeMats(),
+            elapsed / ITERATIONS / 1000);
+        return allocation;
+    }
+
+    private static byte[] syntheticJpeg(int width, int height) throws IOException {
+        Random random = new Random(13);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getRaster().setSample(x, y, 0, ((x ^ y) + random.nextInt(32)) & 0xFF);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private record Allocation(long heapBytes, long nativeBytes, double nativeMats) {}
+}
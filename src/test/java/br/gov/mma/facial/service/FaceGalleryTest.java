@@ -0,0 +1,287 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import br.gov.mma.facial.entity.FaceTemplate;
+import br.gov.mma.facial.entity.User;
+import br.gov.mma.facial.repository.FaceTemplateRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class FaceGalleryTest {
+
+    private final FaceGallery gallery = new FaceGallery(mock(FaceTemplateRepository.class), new BiometricProperties(),
+        new CompactTemplateEncoder(new BiometricProperties()));
+
+    @Test
+    void findsClosestTemplateAndDropsRemovedUsers() {
+        gallery.rebuild(List.of(
+            primaryTemplate(1L, 10L, (byte) 10),
+            primaryTemplate(2L, 20L, (byte) 200),
+            primaryTemplate(3L, 30L, (byte) 100)
+        ));
+
+        FaceGallery.Match match = gallery.findBest(filled((byte) 190));
+
+        assertThat(match).isNotNull();
+        assertThat(match.userId()).isEqualTo(20L);
+        assertThat(match.templateId()).isEqualTo(2L);
+        assertThat(match.score()).isEqualTo(10.0);
+
+        gallery.removeUser(20L);
+
+        assertThat(gallery.size()).isEqualTo(2);
+        assertThat(gallery.findBest(filled((byte) 190)).userId()).isEqualTo(30L);
+    }
+
+    @Test
+    void fusesEveryActiveTemplateOfAUser() {
+        FaceTemplate secondary = primaryTemplate(4L, 40L, (byte) 50);
+        secondary.setIsPrimary(false);
+        FaceTemplate expired = primaryTemplate(6L, 40L, (byte) 150);
+        expired.setExpiresAt(LocalDateTime.now().minusDays(1));
+
+        gallery.addAfterCommit(List.of(primaryTemplate(5L, 50L, (byte) 60), secondary,
+            primaryTemplate(7L, 40L, (byte) 90), expired));
+
+        assertThat(gallery.size()).isEqualTo(3);
+        assertThat(gallery.userCount()).isEqualTo(2);
+        FaceGallery.Match match = gallery.findBest(filled((byte) 88));
+        assertThat(match.userId()).isEqualTo(40L);
+        assertThat(match.templateId()).isEqualTo(7L);
+        assertThat(match.score()).isEqualTo(2.0);
+
+        BiometricProperties properties = new BiometricProperties();
+        properties.getSearch().setFusion("mean");
+        properties.getSearch().setTemplatesPerUser(2);
+        FaceGallery meanGallery = new FaceGallery(mock(FaceTemplateRepository.class), properties,
+            new CompactTemplateEncoder(properties));
+        meanGallery.rebuild(List.of(primaryTemplate(1L, 10L, (byte) 0), primaryTemplate(2L, 10L, (byte) 100),
+            primaryTemplate(3L, 10L, (byte) 120), primaryTemplate(4L, 20L, (byte) 95)));
+
+        // O template mais antigo do usuário 10 sai do bloco: mean((10², 10²)) contra 5² do usuário 20
+        assertThat(meanGallery.size()).isEqualTo(3);
+        assertThat(meanGallery.findTopK(filled((byte) 110), 2, Double.MAX_VALUE))
+            .extracting(FaceGallery.Match::userId, FaceGallery.Match::score)
+            .containsExactly(tuple(10L, 10.0), tuple(20L, 15.0));
+    }
+
+    @Test
+    void parallelSearchAgreesWithSequentialScanAndHonoursThreshold() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getSearch().setParallelism(4);
+        properties.getSearch().setMinShardSize(2);
+        FaceGallery parallelGallery = new FaceGallery(mock(FaceTemplateRepository.class), properties,
+            new CompactTemplateEncoder(properties));
+
+        List<FaceTemplate> templates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            templates.add(primaryTemplate(i, 1000L + i, (byte) i));
+        }
+        parallelGallery.rebuild(templates);
+        gallery.rebuild(templates);
+
+        try {
+            FaceGallery.Match parallel = parallelGallery.findBest(filled((byte) 137));
+            assertThat(parallel.userId()).isEqualTo(1137L);
+            assertThat(parallel).isEqualTo(gallery.findBest(filled((byte) 137)));
+
+            assertThat(parallelGallery.findBest(filled((byte) 250), 5.0)).isNull();
+            assertThat(parallelGallery.findBest(filled((byte) 250), 51.0).userId()).isEqualTo(1199L);
+        } finally {
+            parallelGallery.shutdown();
+        }
+    }
+
+    @Test
+    void topKReturnsRankedCandidatesFromEveryShard() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getSearch().setParallelism(3);
+        properties.getSearch().setMinShardSize(4);
+        FaceGallery parallelGallery = new FaceGallery(mock(FaceTemplateRepository.class), properties,
+            new CompactTemplateEncoder(properties));
+
+        List<FaceTemplate> templates = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            templates.add(primaryTemplate(i, 2000L + i, (byte) (i * 2)));
+        }
+        parallelGallery.rebuild(templates);
+
+        try {
+            List<FaceGallery.Match> topK = parallelGallery.findTopK(filled((byte) 101), 4, Double.MAX_VALUE);
+
+            assertThat(topK).extracting(FaceGallery.Match::userId).containsExactly(2050L, 2051L, 2049L, 2052L);
+            assertThat(topK).extracting(FaceGallery.Match::score).containsExactly(1.0, 1.0, 3.0, 3.0);
+        } finally {
+            parallelGallery.shutdown();
+        }
+    }
+
+    @Test
+    void compactGalleryPrefiltersCodesAndReranksFullTemplates() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getCompact().setEnabled(true);
+        properties.getCompact().setDimensions(64);
+        properties.getCompact().setRerankCandidates(8);
+        FaceTemplateRepository repository = mock(FaceTemplateRepository.class);
+        FaceGallery compactGallery = new FaceGallery(repository, properties, new CompactTemplateEncoder(properties));
+
+        Random random = new Random(42);
+        Map<Long, byte[]> stored = new HashMap<>();
+        List<FaceTemplate> templates = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            byte[] bytes = new byte[1024];
+            random.nextBytes(bytes);
+            stored.put(id, bytes);
+            FaceTemplate template = primaryTemplate(id, 5000L + id, (byte) 0);
+            template.setTemplateBytes(bytes);
+            templates.add(template);
+        }
+        compactGallery.rebuild(templates);
+
+        byte[] probe = stored.get(123L).clone();
+        for (int i = 0; i < probe.length; i += 16) {
+            probe[i] ^= 0x07;
+        }
+
+        FaceGallery.Match match = compactGallery.findBest(probe);
+
+        assertThat(match.userId()).isEqualTo(5123L);
+        assertThat(match.score()).isEqualTo(TemplateDistance.score(probe, stored.get(123L)));
+        assertThat(compactGallery.findBest(probe, 0.1)).isNull();
+        // O re-ranqueamento usa os templates residentes, sem consultar o banco
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void hnswIndexAgreesWithExactScanAndSkipsSoftDeletedUsers() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getSearch().getHnsw().setEnabled(true);
+        properties.getSearch().getHnsw().setM(8);
+        properties.getSearch().getHnsw().setEfConstruction(64);
+        properties.getSearch().getHnsw().setMaxDeletedRatio(0.5);
+        FaceGallery indexedGallery = new FaceGallery(mock(FaceTemplateRepository.class), properties,
+            new CompactTemplateEncoder(properties));
+
+        Random random = new Random(7);
+        List<FaceTemplate> templates = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            byte[] bytes = new byte[64];
+            random.nextBytes(bytes);
+            FaceTemplate template = primaryTemplate(id, 9000L + id, (byte) 0);
+            template.setTemplateBytes(bytes);
+            templates.add(template);
+        }
+        indexedGallery.rebuild(templates);
+        gallery.rebuild(templates);
+
+        for (int q = 0; q < 20; q++) {
+            byte[] probe = templates.get(q * 10).getTemplateBytes().clone();
+            probe[q] ^= 0x03;
+            List<FaceGallery.Match> approximate = indexedGallery.findTopK(probe, 3, Double.MAX_VALUE);
+            assertThat(approximate.get(0)).isEqualTo(gallery.findBest(probe));
+            assertThat(approximate).extracting(FaceGallery.Match::score).isSorted();
+        }
+
+        byte[] probe = templates.get(100).getTemplateBytes();
+        indexedGallery.removeUser(9101L);
+
+        assertThat(indexedGallery.size()).isEqualTo(199);
+        assertThat(indexedGallery.findTopK(probe, 5, Double.MAX_VALUE))
+            .extracting(FaceGallery.Match::userId).doesNotContain(9101L);
+
+        // Com o bloco cheio, um template novo descarta o primeiro e o usuário é religado no grafo
+        List<FaceTemplate> enrolled = new ArrayList<>();
+        for (long id = 301; id <= 305; id++) {
+            byte[] bytes = new byte[64];
+            random.nextBytes(bytes);
+            FaceTemplate template = primaryTemplate(id, 9050L, (byte) 0);
+            template.setTemplateBytes(bytes);
+            enrolled.add(template);
+        }
+        indexedGallery.addAfterCommit(enrolled);
+
+        assertThat(indexedGallery.userCount()).isEqualTo(199);
+        assertThat(indexedGallery.size()).isEqualTo(203);
+        FaceGallery.Match relinked = indexedGallery.findBest(enrolled.get(4).getTemplateBytes());
+        assertThat(relinked.userId()).isEqualTo(9050L);
+        assertThat(relinked.templateId()).isEqualTo(305L);
+    }
+
+    @Test
+    void restoresSnapshotAndReconcilesWithDatabase(@TempDir Path directory) {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getSnapshot().setEnabled(true);
+        properties.getSnapshot().setPath(directory.resolve("gallery.snapshot").toString());
+        FaceGallery writer = new FaceGallery(mock(FaceTemplateRepository.class), properties,
+            new CompactTemplateEncoder(properties));
+        writer.rebuild(List.of(primaryTemplate(1L, 10L, (byte) 10), primaryTemplate(2L, 20L, (byte) 20),
+            primaryTemplate(3L, 30L, (byte) 30)));
+        writer.writeSnapshot();
+        writer.shutdown();
+
+        // Depois do snapshot: o usuário 20 foi removido e o usuário 30 ganhou um template novo
+        FaceTemplate enrolled = primaryTemplate(4L, 30L, (byte) 35);
+        FaceTemplateRepository repository = mock(FaceTemplateRepository.class);
+        when(repository.findActiveTemplateKeys(any())).thenReturn(List.of(key(1L, 10L), key(3L, 30L), key(4L, 30L)));
+        when(repository.findActiveTemplatesByUserIds(eq(List.of(30L)), any()))
+            .thenReturn(List.of(primaryTemplate(3L, 30L, (byte) 30), enrolled));
+
+        FaceGallery restored = new FaceGallery(repository, properties, new CompactTemplateEncoder(properties));
+        restored.load();
+        restored.shutdown();
+
+        verify(repository, never()).findAllActiveTemplates(any());
+        assertThat(restored.userCount()).isEqualTo(2);
+        assertThat(restored.size()).isEqualTo(3);
+        assertThat(restored.findBest(filled((byte) 11)).userId()).isEqualTo(10L);
+        assertThat(restored.findBest(filled((byte) 19)).userId()).isEqualTo(10L);
+        assertThat(restored.findBest(filled((byte) 36)).templateId()).isEqualTo(4L);
+    }
+
+    private static FaceTemplateRepository.TemplateKeyView key(Long id, Long userId) {
+        return new FaceTemplateRepository.TemplateKeyView() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public Long getUserId() { return userId; }
+
+            @Override
+            public String getAlgorithmVersion() { return "LBPH-1.0"; }
+        };
+    }
+
+    private static FaceTemplate primaryTemplate(long templateId, long userId, byte value) {
+        User user = new User();
+        user.setId(userId);
+        FaceTemplate template = new FaceTemplate(user, filled(value), "LBPH-1.0");
+        template.setId(templateId);
+        template.setIsPrimary(true);
+        return template;
+    }
+
+    private static byte[] filled(byte value) {
+        byte[] bytes = new byte[64];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FaceRegionTest {
+
+    @Test
+    void hintRoundTripsAndIsIndependentOfResolution() {
+        FaceRegion region = FaceRegion.of(new Rect(200, 120, 160, 160), 640, 480);
+
+        FaceRegion parsed = FaceRegion.parse(region.format());
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.x()).isEqualTo(0.3125);
+        assertThat(parsed.height()).isEqualTo(0.3333);
+
+        // A mesma dica vale para a miniatura do streaming e para a captura em resolução maior
+        assertThat(parsed.searchWindow(2.0, 320, 240)).isEqualTo(new Rect(60, 20, 160, 160));
+        assertThat(parsed.searchWindow(2.0, 1280, 960)).isEqualTo(new Rect(240, 80, 640, 640));
+    }
+
+    @Test
+    void windowIsClampedAndMalformedHintsAreIgnored() {
+        FaceRegion corner = new FaceRegion(0.0, 0.0, 0.25, 0.25);
+        assertThat(corner.searchWindow(2.0, 400, 400)).isEqualTo(new Rect(0, 0, 150, 150));
+        assertThat(new FaceRegion(0.1, 0.1, 0.8, 0.8).searchWindow(2.0, 400, 400)).isNull();
+
+        assertThat(FaceRegion.parse(null)).isNull();
+        assertThat(FaceRegion.parse("")).isNull();
+        assertThat(FaceRegion.parse("0.1,0.2,0.3")).isNull();
+        assertThat(FaceRegion.parse("a,b,c,d")).isNull();
+        assertThat(FaceRegion.parse("0.9,0.1,0.5,0.5")).isNull();
+        assertThat(FaceRegion.parse("0.1,0.1,0,0.5")).isNull();
+    }
+}
@@ -0,0 +1,51 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FrameAnalysisTest {
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void derivesAndCachesPlanesFromColorFrame() {
+        MatArena arena = MatArena.open();
+        Mat color = arena.track(new Mat(40, 60, CvType.CV_8UC3, new Scalar(10, 120, 200)));
+        Mat gray;
+
+        try (FrameAnalysis frame = new FrameAnalysis(arena, color, null, 2)) {
+            gray = frame.gray();
+            assertThat(gray.type()).isEqualTo(CvType.CV_8UC1);
+            assertThat(gray.cols()).isEqualTo(30);
+            assertThat(gray.rows()).isEqualTo(20);
+            assertThat(frame.gray()).isSameAs(gray);
+        }
+
+        assertThat(color.empty()).isTrue();
+        assertThat(gray.empty()).isTrue();
+    }
+
+    @Test
+    void grayOnlyFrameHasNoColorPlanes() {
+        MatArena arena = MatArena.open();
+        Mat gray = arena.track(new Mat(20, 20, CvType.CV_8UC1, new Scalar(90)));
+
+        try (FrameAnalysis frame = new FrameAnalysis(arena, null, gray, 1)) {
+            assertThat(frame.hasColor()).isFalse();
+            assertThat(frame.gray()).isSameAs(gray);
+            assertThat(frame.isFaceDetected()).isFalse();
+            frame.setFaceRect(null);
+            assertThat(frame.isFaceDetected()).isTrue();
+            assertThatThrownBy(frame::color).isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FrameDecoderTest {
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void nativeAndImageIOPathsDecodeTheSamePixels() throws IOException {
+        byte[] png = grayPng(64, 48);
+
+        Mat nativeGray = new FrameDecoder(true, 1).decodeGray(png);
+        Mat fallbackGray = new FrameDecoder(false, 1).decodeGray(png);
+
+        assertThat(nativeGray.type()).isEqualTo(CvType.CV_8UC1);
+        assertThat(pixels(nativeGray)).isEqualTo(pixels(fallbackGray));
+
+        Mat color = new FrameDecoder(true, 1).decodeColor(png);
+        assertThat(color.type()).isEqualTo(CvType.CV_8UC3);
+        assertThat(color.cols()).isEqualTo(64);
+        assertThat(color.rows()).isEqualTo(48);
+    }
+
+    @Test
+    void reducedScaleShrinksGrayImageOnBothPaths() throws IOException {
+        byte[] png = grayPng(64, 48);
+
+        for (boolean nativeEnabled : new boolean[] {true, false}) {
+            Mat reduced = new FrameDecoder(nativeEnabled, 4).decodeGray(png);
+            assertThat(reduced.cols()).isEqualTo(16);
+            assertThat(reduced.rows()).isEqualTo(12);
+        }
+    }
+
+    @Test
+    void returnsNullForUnrecognizedBytes() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThat(new FrameDecoder(true, 1).decodeGray(garbage)).isNull();
+        assertThat(new FrameDecoder(false, 1).decodeColor(garbage)).isNull();
+    }
+
+    @Test
+    void readsCappedImageAndDecodesItInWorkspace() throws IOException {
+        byte[] png = noisePng(320, 320);
+        FaceWorkspace workspace = new FaceWorkspace(128);
+
+        byte[] read = FrameDecoder.readImage(new ByteArrayInputStream(png), png.length);
+        Mat decoded = new FrameDecoder(true, 1).decodeGray(read, workspace);
+
+        assertThat(pixels(decoded)).isEqualTo(pixels(new FrameDecoder(true, 1).decodeGray(png)));
+        assertThatThrownBy(() -> FrameDecoder.readImage(new ByteArrayInputStream(png), png.length - 1))
+            .isInstanceOf(IOException.class);
+    }
+
+    private static byte[] noisePng(int width, int height) throws IOException {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getRaster().setSample(x, y, 0, random.nextInt(256));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] grayPng(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y * 13) & 0xFF);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] pixels(Mat mat) {
+        byte[] data = new byte[(int) mat.total() * mat.channels()];
+        mat.get(0, 0, data);
+        return data;
+    }
+}
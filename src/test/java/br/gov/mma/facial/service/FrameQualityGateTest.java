@@ -0,0 +1,80 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameQualityGateTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FrameQualityGate gate = new FrameQualityGate(new BiometricProperties().getQuality(), registry);
+    private final FaceWorkspace workspace = new FaceWorkspace(BiometricService.NORMALIZED_FACE_SIZE);
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void acceptsTexturedFrameAndReportsMeasures() {
+        FrameQuality quality = gate.assess(texturedFrame(), workspace);
+
+        assertThat(quality.reason()).isEqualTo(FrameQuality.Reason.OK);
+        assertThat(quality.accepted()).isTrue();
+        assertThat(quality.brightness()).isBetween(100.0, 155.0);
+        assertThat(quality.contrast()).isGreaterThan(18.0);
+        assertThat(quality.sharpness()).isGreaterThan(20.0);
+    }
+
+    @Test
+    void rejectsDarkBrightFlatAndBlurryFrames() {
+        assertThat(gate.assess(new Mat(480, 640, CvType.CV_8UC1, new Scalar(15)), workspace).reason())
+            .isEqualTo(FrameQuality.Reason.TOO_DARK);
+        assertThat(gate.assess(new Mat(480, 640, CvType.CV_8UC1, new Scalar(245)), workspace).reason())
+            .isEqualTo(FrameQuality.Reason.TOO_BRIGHT);
+        assertThat(gate.assess(new Mat(480, 640, CvType.CV_8UC1, new Scalar(128)), workspace).reason())
+            .isEqualTo(FrameQuality.Reason.LOW_CONTRAST);
+
+        // Gradiente suave: contraste suficiente, mas sem bordas
+        Mat gradient = new Mat(480, 640, CvType.CV_8UC1);
+        byte[] pixels = new byte[480 * 640];
+        for (int y = 0; y < 480; y++) {
+            for (int x = 0; x < 640; x++) {
+                pixels[y * 640 + x] = (byte) (40 + x * 170 / 640);
+            }
+        }
+        gradient.put(0, 0, pixels);
+        assertThat(gate.assess(gradient, workspace).reason()).isEqualTo(FrameQuality.Reason.BLURRY);
+
+        assertThat(registry.get("biometric.quality.rejections").tag("reason", "blurry").counter().count()).isEqualTo(1);
+        assertThat(registry.get("biometric.quality.rejections").tag("reason", "too_dark").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Blocos de 16 px com níveis aleatórios: bordas nítidas e contraste de uma cena real
+     */
+    private static Mat texturedFrame() {
+        Random random = new Random(7);
+        byte[] pixels = new byte[480 * 640];
+        int[] blocks = new int[(480 / 16) * (640 / 16)];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = 60 + random.nextInt(140);
+        }
+        for (int y = 0; y < 480; y++) {
+            for (int x = 0; x < 640; x++) {
+                pixels[y * 640 + x] = (byte) blocks[(y / 16) * (640 / 16) + x / 16];
+            }
+        }
+        Mat frame = new Mat(480, 640, CvType.CV_8UC1);
+        frame.put(0, 0, pixels);
+        return frame;
+    }
+}
@@ -0,0 +1,56 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LbpHistogramExtractorTest {
+
+    private final LbpHistogramExtractor extractor = new LbpHistogramExtractor(2, 16, 8, 8);
+
+    @Test
+    void producesCompactTemplateOfConfiguredGrid() {
+        assertThat(extractor.templateLength()).isEqualTo(8 * 8 * 18);
+        assertThat(extractor.extract(new byte[128 * 128], 128, 128)).hasSize(1152);
+    }
+
+    @Test
+    void flatImageFallsEntirelyIntoAllOnesBin() {
+        byte[] flat = new byte[128 * 128];
+        Arrays.fill(flat, (byte) 90);
+
+        byte[] template = extractor.extract(flat, 128, 128);
+
+        for (int cell = 0; cell < 64; cell++) {
+            for (int bin = 0; bin < 18; bin++) {
+                assertThat(template[cell * 18 + bin] & 0xFF).isEqualTo(bin == 16 ? 255 : 0);
+            }
+        }
+    }
+
+    @Test
+    void histogramScoreSeparatesSimilarFromDifferentFaces() {
+        Random random = new Random(7);
+        byte[] face = new byte[128 * 128];
+        random.nextBytes(face);
+        byte[] similar = face.clone();
+        for (int i = 0; i < similar.length; i += 97) {
+            similar[i] = (byte) ((similar[i] & 0xFF) ^ 0x01);
+        }
+        byte[] other = new byte[128 * 128];
+        random.nextBytes(other);
+        for (int i = 0; i < other.length; i++) {
+            other[i] = (byte) ((other[i] & 0x0F) + (i % 128));
+        }
+
+        byte[] reference = extractor.extract(face, 128, 128);
+        double similarScore = TemplateAlgorithm.LBP_HISTOGRAM.score(reference, extractor.extract(similar, 128, 128));
+        double otherScore = TemplateAlgorithm.LBP_HISTOGRAM.score(reference, extractor.extract(other, 128, 128));
+
+        assertThat(TemplateAlgorithm.LBP_HISTOGRAM.score(reference, reference)).isZero();
+        assertThat(similarScore).isLessThan(otherScore);
+    }
+}
@@ -0,0 +1,105 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Custo das medidas de liveness: quadro inteiro (HSV completo e Laplaciano de 64 bits) contra
+ * a região da face com os buffers da área de trabalho. Executar com {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class LivenessBenchmark {
+
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final Rect FACE_RECT = new Rect(480, 180, 320, 320);
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 500;
+
+    private final FaceWorkspace workspace = new FaceWorkspace(BiometricService.NORMALIZED_FACE_SIZE);
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void faceRegionCostsFractionOfFullFrame() {
+        Mat color = syntheticFrame();
+        Mat gray = new Mat();
+        Imgproc.cvtColor(color, gray, Imgproc.COLOR_BGR2GRAY);
+
+        // Mesmos pixels: as medidas da região coincidem com as do quadro inteiro restritas à face
+        try (MatArena arena = MatArena.open()) {
+            Mat hsv = arena.mat();
+            Imgproc.cvtColor(color, hsv, Imgproc.COLOR_BGR2HSV);
+            Mat laplacian = arena.mat();
+            Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+            assertThat(regionMeasures(color, gray)[0])
+                .isCloseTo(Core.mean(arena.submat(hsv, FACE_RECT)).val[1], within(1e-6));
+            assertThat(regionMeasures(color, gray)[1])
+                .isCloseTo(Core.mean(arena.submat(laplacian, FACE_RECT)).val[0], within(1e-6));
+        }
+
+        double fullFrame = nanosPerCall(() -> fullFrameMeasures(color, gray));
+        double region = nanosPerCall(() -> regionMeasures(color, gray));
+        System.out.printf(Locale.ROOT, "liveness quadro inteiro: %.1f us, região da face: %.1f us (%.1fx)%n",
+            fullFrame / 1e3, region / 1e3, fullFrame / region);
+
+        assertThat(region).isLessThan(fullFrame);
+    }
+
+    /**
+     * Medidas como eram feitas antes: HSV e Laplaciano de 64 bits do quadro inteiro
+     */
+    private static double[] fullFrameMeasures(Mat color, Mat gray) {
+        try (MatArena arena = MatArena.open()) {
+            Mat hsv = arena.mat();
+            Imgproc.cvtColor(color, hsv, Imgproc.COLOR_BGR2HSV);
+            Mat laplacian = arena.mat();
+            Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+            return new double[] {Core.mean(hsv).val[1], Core.mean(laplacian).val[0]};
+        }
+    }
+
+    private double[] regionMeasures(Mat color, Mat gray) {
+        try (MatArena arena = MatArena.open()) {
+            return new double[] {
+                workspace.meanSaturation(arena.submat(color, FACE_RECT)),
+                workspace.meanLaplacian(arena.submat(gray, FACE_RECT))
+            };
+        }
+    }
+
+    private static double nanosPerCall(Runnable measure) {
+        for (int i = 0; i < WARMUP; i++) {
+            measure.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            measure.run();
+        }
+        return (double) (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static Mat syntheticFrame() {
+        Random random = new Random(11);
+        byte[] pixels = new byte[WIDTH * HEIGHT * 3];
+        random.nextBytes(pixels);
+        Mat frame = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3);
+        frame.put(0, 0, pixels);
+        return frame;
+    }
+}
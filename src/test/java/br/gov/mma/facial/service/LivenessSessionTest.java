@@ -0,0 +1,116 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LivenessSessionTest {
+
+    private static final int SIDE = BiometricService.NORMALIZED_FACE_SIZE;
+    private static final FrameQuality SHARP = new FrameQuality(FrameQuality.Reason.OK, 120, 40, 300);
+
+    private final BiometricProperties.LivenessStreamConfig config = new BiometricProperties().getLivenessStream();
+    private final Random random = new Random(3);
+
+    @Test
+    void movingFaceThatBlinksIsLive() {
+        LivenessSession session = new LivenessSession("s1");
+        LivenessVerdict.Reason reason = null;
+        for (int i = 0; i < 20 && reason == null; i++) {
+            boolean closed = i == 9 || i == 10;
+            session.record(observation(new Rect(100 + i, 80, 200, 200), face(random, closed, 8)), config.getBlinkDrop());
+            reason = session.evaluate(config, false);
+        }
+
+        assertThat(reason).isEqualTo(LivenessVerdict.Reason.LIVE);
+        assertThat(session.blinkDetected()).isTrue();
+        assertThat(session.motion()).isGreaterThan(config.getMinMotion());
+        assertThat(session.bestTemplate()).isNotNull();
+    }
+
+    @Test
+    void staticPhotoHasNoMotionAndNoBlink() {
+        LivenessSession session = new LivenessSession("s2");
+        byte[] photo = face(random, false, 0);
+        for (int i = 0; i < config.getMaxFrames(); i++) {
+            session.record(observation(new Rect(100, 80, 200, 200), photo), config.getBlinkDrop());
+            if (i < config.getMaxFrames() - 1) {
+                assertThat(session.evaluate(config, false)).isNull();
+            }
+        }
+
+        assertThat(session.evaluate(config, false)).isEqualTo(LivenessVerdict.Reason.NO_MOTION);
+    }
+
+    @Test
+    void reportsMissingFaceTrackJumpAndEarlyFinish() {
+        LivenessSession empty = new LivenessSession("s3");
+        for (int i = 0; i < 10; i++) {
+            empty.record(new LivenessSession.Observation(null, null, null, null, 0.0, SHARP), config.getBlinkDrop());
+        }
+        assertThat(empty.evaluate(config, true)).isEqualTo(LivenessVerdict.Reason.NO_FACE);
+
+        LivenessSession swapped = new LivenessSession("s4");
+        for (int i = 0; i < 10; i++) {
+            int x = i == 5 ? 400 : 100;
+            swapped.record(observation(new Rect(x, 80, 200, 200), face(random, i == 3, 8)), config.getBlinkDrop());
+        }
+        assertThat(swapped.evaluate(config, true)).isEqualTo(LivenessVerdict.Reason.TRACK_LOST);
+
+        LivenessSession brief = new LivenessSession("s5");
+        brief.record(observation(new Rect(100, 80, 200, 200), face(random, false, 8)), config.getBlinkDrop());
+        assertThat(brief.regionHint()).isEqualTo(FaceRegion.of(new Rect(100, 80, 200, 200), 640, 480));
+        brief.record(new LivenessSession.Observation(null, null, null, null, 0.0, SHARP), config.getBlinkDrop());
+        assertThat(brief.regionHint()).isNull();
+        assertThat(brief.evaluate(config, false)).isNull();
+        assertThat(brief.evaluate(config, true)).isEqualTo(LivenessVerdict.Reason.TOO_FEW_FRAMES);
+    }
+
+    @Test
+    void bestTemplateIsTheSharpestFaceWithoutQualityGate() {
+        LivenessSession session = new LivenessSession("s6");
+        byte[] blurry = face(random, false, 8);
+        byte[] sharp = face(random, false, 8);
+        session.record(observation(new Rect(100, 80, 200, 200), blurry, 50), config.getBlinkDrop());
+        session.record(observation(new Rect(101, 80, 200, 200), sharp, 400), config.getBlinkDrop());
+        session.record(observation(new Rect(102, 80, 200, 200), face(random, false, 8), 120), config.getBlinkDrop());
+
+        assertThat(session.bestTemplate()).isEqualTo(sharp);
+    }
+
+    static LivenessSession.Observation observation(Rect rect, byte[] face) {
+        return observation(rect, face, 300);
+    }
+
+    static LivenessSession.Observation observation(Rect rect, byte[] face, double sharpness) {
+        return new LivenessSession.Observation(rect, FaceRegion.of(rect, 640, 480), face, face.clone(), sharpness,
+            null);
+    }
+
+    /**
+     * Face normalizada sintética: faixa dos olhos listrada (aberta) ou uniforme (fechada),
+     * com ruído de amplitude {@code noise} simulando o movimento entre quadros
+     */
+    static byte[] face(Random random, boolean eyesClosed, int noise) {
+        byte[] face = new byte[SIDE * SIDE];
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                int value;
+                if (y >= SIDE * 0.2 && y < SIDE * 0.45) {
+                    value = eyesClosed ? 110 : ((x / 4) % 2 == 0 ? 40 : 200);
+                } else {
+                    value = 90 + (x + y) / 4;
+                }
+                if (noise > 0) {
+                    value += random.nextInt(2 * noise + 1) - noise;
+                }
+                face[y * SIDE + x] = (byte) Math.max(0, Math.min(255, value));
+            }
+        }
+        return face;
+    }
+}
@@ -0,0 +1,70 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Rect;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LivenessStreamServiceTest {
+
+    private final BiometricProperties properties = new BiometricProperties();
+    private final BiometricExecutor executor = new BiometricExecutor(properties, new SimpleMeterRegistry());
+    private final BiometricService biometricService = mock(BiometricService.class);
+    private final Random random = new Random(5);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void pendingProofsAreNeverEvictedByNewSessions() throws Exception {
+        properties.getLivenessStream().setMaxPendingProofs(1);
+        AtomicInteger frame = new AtomicInteger();
+        when(biometricService.observeLivenessFrame(any(), any())).thenAnswer(invocation -> {
+            int i = frame.getAndIncrement() % 20;
+            return LivenessSessionTest.observation(new Rect(100 + i, 80, 200, 200),
+                LivenessSessionTest.face(random, i == 9 || i == 10, 8));
+        });
+        LivenessStreamService service = new LivenessStreamService(biometricService, executor, properties,
+            new SimpleMeterRegistry());
+
+        LivenessVerdict first = runSession(service);
+        assertThat(first.reason()).isEqualTo(LivenessVerdict.Reason.LIVE);
+        assertThat(first.livenessToken()).isNotNull();
+
+        // Limite atingido: a nova sessão aprovada não recebe token e o pendente continua válido
+        frame.set(0);
+        LivenessVerdict second = runSession(service);
+        assertThat(second.reason()).isEqualTo(LivenessVerdict.Reason.BUSY);
+        assertThat(second.livenessToken()).isNull();
+
+        assertThat(service.hasProof(first.livenessToken())).isTrue();
+        assertThat(service.consumeProof(first.livenessToken())).isNotNull();
+        assertThat(service.hasProof(first.livenessToken())).isFalse();
+        assertThat(service.consumeProof(first.livenessToken())).isNull();
+
+        frame.set(0);
+        assertThat(runSession(service).livenessToken()).isNotNull();
+    }
+
+    private static LivenessVerdict runSession(LivenessStreamService service) throws Exception {
+        String sessionId = service.open();
+        for (int i = 0; i < 20; i++) {
+            LivenessStreamService.Update update = service.processFrame(sessionId, new byte[] {1});
+            if (update.verdict() != null) {
+                return update.verdict();
+            }
+        }
+        return service.finish(sessionId);
+    }
+}
@@ -0,0 +1,85 @@
+package br.gov.mma.facial.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MatArenaTest {
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void releasesEveryMatAndReturnsAccountingToBaseline() {
+        long liveBytes = MatArena.liveBytes();
+        long liveMats = MatArena.liveMats();
+        long allocations = MatArena.allocations();
+        long releasedBytes = MatArena.releasedBytes();
+        Mat source;
+        Mat blurred;
+
+        try (MatArena arena = MatArena.open()) {
+            source = arena.track(new Mat(100, 100, CvType.CV_8UC1, new Scalar(7)));
+            blurred = arena.mat();
+            Imgproc.blur(source, blurred, new Size(3, 3));
+            Mat roi = arena.submat(blurred, new Rect(10, 10, 20, 20));
+
+            assertThat(roi.isSubmatrix()).isTrue();
+            assertThat(MatArena.liveMats() - liveMats).isEqualTo(3);
+            // O destino do blur só é contabilizado no próximo registro (o ROI, que não conta bytes)
+            assertThat(MatArena.liveBytes() - liveBytes).isEqualTo(20_000);
+        }
+
+        assertThat(source.empty()).isTrue();
+        assertThat(blurred.empty()).isTrue();
+        assertThat(MatArena.liveMats()).isEqualTo(liveMats);
+        assertThat(MatArena.liveBytes()).isEqualTo(liveBytes);
+        assertThat(MatArena.allocations() - allocations).isEqualTo(3);
+        assertThat(MatArena.releasedBytes() - releasedBytes).isEqualTo(20_000);
+    }
+
+    @Test
+    void bytesGaugeCountsDecodedFrameAsSoonAsItIsTracked() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new NativeMatMetrics().bindTo(registry);
+        Gauge bytes = registry.get("biometric.native.mat.bytes").gauge();
+        MatOfByte png = new MatOfByte();
+        Mat original = new Mat(60, 80, CvType.CV_8UC1, new Scalar(128));
+        Imgcodecs.imencode(".png", original, png);
+        original.release();
+        double before = bytes.value();
+
+        try (MatArena arena = MatArena.open()) {
+            Mat frame = arena.track(new FrameDecoder(true, 1).decodeGray(png.toArray()));
+
+            assertThat(bytes.value() - before).isEqualTo(frame.total() * frame.elemSize());
+        }
+        png.release();
+
+        assertThat(bytes.value()).isEqualTo(before);
+    }
+
+    @Test
+    void rejectsMatsAfterClose() {
+        MatArena arena = MatArena.open();
+        arena.close();
+        Mat late = new Mat(4, 4, CvType.CV_8UC1);
+
+        assertThatThrownBy(() -> arena.track(late)).isInstanceOf(IllegalStateException.class);
+        assertThat(late.empty()).isTrue();
+    }
+}
@@ -0,0 +1,90 @@
+package br.gov.mma.facial.service;
+
+import br.gov.mma.facial.config.BiometricProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Custo da detecção com a dica de posição do quadro anterior: a janela ampliada ao redor da
+ * face contra a varredura da imagem inteira, na largura de trabalho padrão (640 px) e com a
+ * ampliação padrão. Executar com {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class RegionHintBenchmark {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final Size MIN_FACE = new Size(64, 64);
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    private final FaceWorkspace workspace = new FaceWorkspace(BiometricService.NORMALIZED_FACE_SIZE);
+
+    @BeforeAll
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void hintWindowCostsFractionOfFullFrame() {
+        BiometricProperties properties = new BiometricProperties();
+        properties.getDetection().setPoolSize(1);
+        FaceDetector detector = FaceDetector.create(properties, new SimpleMeterRegistry());
+        Mat frame = syntheticFrame();
+
+        // Face do quadro anterior com 160 px de lado, no centro da imagem
+        FaceRegion hint = FaceRegion.of(new Rect(240, 160, 160, 160), WIDTH, HEIGHT);
+        Rect window = hint.searchWindow(properties.getDetection().getRoiExpansion(), WIDTH, HEIGHT);
+        assertThat(window).isNotNull();
+
+        double fullFrame = nanosPerCall(() -> detector.detect(frame, MIN_FACE, new Size(HEIGHT, HEIGHT), workspace));
+        double region = nanosPerCall(() -> {
+            try (MatArena arena = MatArena.open()) {
+                int side = Math.min(window.width, window.height);
+                detector.detect(arena.submat(frame, window), MIN_FACE, new Size(side, side), workspace);
+            }
+        });
+        System.out.printf(Locale.ROOT, "detecção quadro inteiro: %.2f ms, janela %dx%d: %.2f ms (%.1fx)%n",
+            fullFrame / 1e6, window.width, window.height, region / 1e6, fullFrame / region);
+
+        assertThat(region).isLessThan(fullFrame);
+    }
+
+    private static double nanosPerCall(Runnable call) {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        return (double) (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    /**
+     * Quadro com textura e gradientes, sem faces: pior caso da varredura em cascata
+     */
+    private static Mat syntheticFrame() {
+        Random random = new Random(31);
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                pixels[y * WIDTH + x] = (byte) ((x / 3 + y / 2 + random.nextInt(40)) & 0xFF);
+            }
+        }
+        Mat frame = new Mat(HEIGHT, WIDTH, CvType.CV_8UC1);
+        frame.put(0, 0, pixels);
+        return frame;
+    }
+}
@@ -0,0 +1,62 @@
+package br.gov.mma.facial.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateDistanceTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void matchesScalarReferenceForAnyLengthAndOffset() {
+        for (int length : new int[] {1, 7, 63, 1024, 1031, 16384}) {
+            byte[] a = randomBytes(length + 5);
+            byte[] b = randomBytes(length + 3);
+
+            long expected = TemplateDistance.scalarSquaredDistance(a, 5, b, 3, length);
+
+            assertThat(TemplateDistance.squaredDistance(a, 5, b, 3, length)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void handlesExtremeValuesWithoutOverflow() {
+        byte[] zeros = new byte[16384];
+        byte[] full = new byte[16384];
+        Arrays.fill(full, (byte) 0xFF);
+
+        assertThat(TemplateDistance.squaredDistance(zeros, 0, full, 0, full.length))
+            .isEqualTo(16384L * 255 * 255);
+        assertThat(TemplateDistance.score(zeros, full)).isEqualTo(255.0);
+    }
+
+    @Test
+    void abandonsOnlyWhenPartialSumExceedsBound() {
+        byte[] a = randomBytes(16384);
+        byte[] b = randomBytes(16384);
+        long exact = TemplateDistance.squaredDistance(a, 0, b, 0, a.length);
+
+        assertThat(TemplateDistance.squaredDistance(a, 0, b, 0, a.length, exact)).isEqualTo(exact);
+        assertThat(TemplateDistance.squaredDistance(a, 0, b, 0, a.length, exact / 4))
+            .isGreaterThan(exact / 4)
+            .isLessThan(exact);
+        assertThat(TemplateDistance.scalarSquaredDistance(a, 0, b, 0, a.length, exact / 4))
+            .isGreaterThan(exact / 4);
+    }
+
+    @Test
+    void rejectsIncompatibleTemplates() {
+        assertThat(TemplateDistance.score(null, new byte[4])).isEqualTo(Double.MAX_VALUE);
+        assertThat(TemplateDistance.score(new byte[4], new byte[8])).isEqualTo(Double.MAX_VALUE);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}